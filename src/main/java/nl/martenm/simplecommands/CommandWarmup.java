@@ -0,0 +1,370 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.AsyncTabCompletion;
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import nl.martenm.simplecommands.arguments.SimpleParsedCommand;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.*;
+
+/**
+ * Runs a synthetic workload through command trees so the JIT compiles the dispatch path before the first player uses it.
+ * Without this the first commands after a restart run interpreted and load classes, which players notice as lag.
+ *
+ * Every path of the tree is routed with a sender that has all permissions and ignores messages.
+ * This covers routing, permission checks, the help of every node and parsing the arguments of {@link SimpleParsedCommand}s.
+ * The warm-up has its own entry point, {@link SimpleCommand#warmUp}, so handlers are never called and normal dispatch has no special cases.
+ * Nothing is rejected or recorded and the permission bit sets are bypassed. Lazy commands that were not constructed yet are not constructed.
+ *
+ * The input of an argument is its {@link SimpleCommandArgument#exampleInput(int)}. Without one the first tab completion
+ * that parses is used, colours stripped.
+ *
+ * The warm-up runs on the calling thread and stops when the time budget is used up.
+ */
+public class CommandWarmup {
+
+    public static final int DEFAULT_ROUNDS = 500;
+    public static final long DEFAULT_BUDGET_MILLIS = 500;
+
+    private static final Sender SENDER = new Sender();
+
+    private final List<SimpleCommand> commands = new ArrayList<>();
+    private final int rounds;
+    private final long budgetMillis;
+
+    public CommandWarmup() {
+        this(DEFAULT_ROUNDS, DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param rounds The amount of times every path is dispatched
+     * @param budgetMillis The maximum time the warm-up may take
+     */
+    public CommandWarmup(int rounds, long budgetMillis) {
+        if(rounds < 1) throw new RuntimeException("The warm-up needs at least one round!");
+        this.rounds = rounds;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Adds a command tree to warm up.
+     * @param command The top command of the tree
+     */
+    public void add(SimpleCommand command) {
+        commands.add(command);
+    }
+
+    /**
+     * Runs the warm-up one tick after enabling, when the server has finished loading.
+     * The result is logged by the plugin.
+     * @param plugin The plugin
+     */
+    public void schedule(JavaPlugin plugin) {
+        Bukkit.getScheduler().runTaskLater(plugin, () -> plugin.getLogger().info("Command warm-up: " + run()), 1L);
+    }
+
+    /**
+     * Runs the warm-up on the current thread.
+     * @return The result
+     */
+    public Result run() {
+        Result[] result = new Result[1];
+        PermissionBitSets.bypass(() -> result[0] = runWorkloads());
+        return result[0];
+    }
+
+    private Result runWorkloads() {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1000000L;
+
+        List<Workload> workloads = new ArrayList<>();
+        for(SimpleCommand command : commands) {
+            collect(command, command, new ArrayList<>(), workloads);
+        }
+
+        int dispatches = 0;
+        int failed = 0;
+        boolean complete = true;
+
+        rounds:
+        for(int round = 0; round < rounds; round++) {
+            Iterator<Workload> iterator = workloads.iterator();
+            while(iterator.hasNext()) {
+                if(System.nanoTime() - deadline > 0) {
+                    complete = false;
+                    break rounds;
+                }
+
+                Workload workload = iterator.next();
+                try {
+                    workload.command.warmUp(SENDER, null, workload.command.getName(), workload.args);
+                    dispatches++;
+                } catch (RuntimeException ex) {
+                    // Leave out a path that cannot be warmed up, it should not slow down the others.
+                    iterator.remove();
+                    failed++;
+                }
+            }
+        }
+
+        return new Result(workloads.size() + failed, dispatches, failed, complete, (System.nanoTime() - start) / 1000000L);
+    }
+
+    /**
+     * Adds the paths of the node and its sub-commands.
+     */
+    private static void collect(SimpleCommand top, SimpleCommand node, List<String> path, List<Workload> workloads) {
+        if(node instanceof LazyCommand) {
+            LazyCommand lazy = (LazyCommand) node;
+            if(!lazy.isInstantiated()) {
+                workloads.add(new Workload(top, path));
+                return;
+            }
+            node = lazy.getInstance();
+        }
+
+        if(node instanceof RootCommand) {
+            Collection<SimpleCommand> children = ((RootCommand) node).getSubCommands();
+
+            // The path itself renders the help.
+            workloads.add(new Workload(top, path));
+            for(SimpleCommand child : children) {
+                path.add(child.getName());
+                collect(top, child, path, workloads);
+                path.remove(path.size() - 1);
+            }
+            return;
+        }
+
+        List<String> args = new ArrayList<>(path);
+        if(node instanceof SimpleParsedCommand) {
+            for(SimpleCommandArgument argument : ((SimpleParsedCommand) node).getArguments()) {
+                for(int component = 0; component < argument.getTokenCount(); component++) {
+                    args.add(sample(argument, component));
+                }
+            }
+        }
+        workloads.add(new Workload(top, args));
+    }
+
+    /**
+     * Gets an input for one token of the argument.
+     */
+    private static String sample(SimpleCommandArgument<?> argument, int component) {
+        String example = argument.exampleInput(component);
+        if(example != null) return example;
+
+        // Async completions could do real lookups.
+        if(argument instanceof AsyncTabCompletion) return "0";
+
+        List<String> completions = argument.complete(SENDER, component, "");
+        if(completions == null || completions.isEmpty()) return "0";
+
+        // Completions can be display text like the coloured name of the argument, use one that parses.
+        // The tokens of a multi token argument cannot be checked on their own.
+        for(String completion : completions) {
+            String input = ChatColor.stripColor(completion);
+            if(argument.getTokenCount() > 1 || parses(argument, input)) return input;
+        }
+        return ChatColor.stripColor(completions.get(0));
+    }
+
+    private static boolean parses(SimpleCommandArgument<?> argument, String input) {
+        try {
+            argument.parse(input);
+            return true;
+        } catch (ParseFailedException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private static final class Workload {
+        final SimpleCommand command;
+        final String[] args;
+
+        Workload(SimpleCommand command, List<String> args) {
+            this.command = command;
+            this.args = args.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * The outcome of a warm-up.
+     */
+    public static final class Result {
+
+        private final int paths;
+        private final int dispatches;
+        private final int failed;
+        private final boolean complete;
+        private final long millis;
+
+        Result(int paths, int dispatches, int failed, boolean complete, long millis) {
+            this.paths = paths;
+            this.dispatches = dispatches;
+            this.failed = failed;
+            this.complete = complete;
+            this.millis = millis;
+        }
+
+        /**
+         * @return The amount of paths in the trees
+         */
+        public int getPaths() {
+            return paths;
+        }
+
+        /**
+         * @return The amount of warm-up dispatches
+         */
+        public int getDispatches() {
+            return dispatches;
+        }
+
+        /**
+         * @return The amount of paths that threw an exception and were left out
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return True if all rounds ran within the time budget
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * @return The time the warm-up took in milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d dispatches over %d paths in %d ms%s%s", dispatches, paths, millis,
+                    failed == 0 ? "" : String.format(", %d paths failed", failed),
+                    complete ? "" : ", stopped at the time budget");
+        }
+    }
+
+    /**
+     * Sender with every permission that ignores everything sent to it.
+     */
+    private static final class Sender implements CommandSender {
+
+        private final Spigot spigot = new Spigot();
+
+        @Override
+        public void sendMessage(String message) {
+
+        }
+
+        @Override
+        public void sendMessage(String... messages) {
+
+        }
+
+        @Override
+        public void sendMessage(UUID uuid, String message) {
+
+        }
+
+        @Override
+        public void sendMessage(UUID uuid, String... messages) {
+
+        }
+
+        @Override
+        public Server getServer() {
+            return Bukkit.getServer();
+        }
+
+        @Override
+        public String getName() {
+            return "SimpleCommands warm-up";
+        }
+
+        @Override
+        public Spigot spigot() {
+            return spigot;
+        }
+
+        @Override
+        public boolean isPermissionSet(String name) {
+            return true;
+        }
+
+        @Override
+        public boolean isPermissionSet(Permission perm) {
+            return true;
+        }
+
+        @Override
+        public boolean hasPermission(String name) {
+            return true;
+        }
+
+        @Override
+        public boolean hasPermission(Permission perm) {
+            return true;
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) {
+            throw new UnsupportedOperationException("The warm-up sender has no attachments");
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin) {
+            throw new UnsupportedOperationException("The warm-up sender has no attachments");
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value, int ticks) {
+            throw new UnsupportedOperationException("The warm-up sender has no attachments");
+        }
+
+        @Override
+        public PermissionAttachment addAttachment(Plugin plugin, int ticks) {
+            throw new UnsupportedOperationException("The warm-up sender has no attachments");
+        }
+
+        @Override
+        public void removeAttachment(PermissionAttachment attachment) {
+
+        }
+
+        @Override
+        public void recalculatePermissions() {
+
+        }
+
+        @Override
+        public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean isOp() {
+            return true;
+        }
+
+        @Override
+        public void setOp(boolean value) {
+
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package nl.martenm.simplecommands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Placeholder for a sub-command that is only constructed when it is first executed.
+ * The name, aliases, description and permission are given up front and are used for the help,
+ * tab completion of the name and the permission checks of the parent, so the real command is not needed for those.
+ *
+ * The real command should use the same name and permission. Its own aliases are ignored, add them to this placeholder instead.
+ * In a frozen tree the real command is not frozen and checks permissions directly.
+ */
+public class LazyCommand extends SimpleCommand {
+
+    private final Supplier<? extends SimpleCommand> supplier;
+    private volatile SimpleCommand instance = null;
+
+    public LazyCommand(String name, String description, String permission, boolean playerOnly, Supplier<? extends SimpleCommand> supplier) {
+        super(name, description, permission, playerOnly);
+        this.supplier = supplier;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+        return getInstance().onCommand(sender, command, s, args);
+    }
+
+    /**
+     * Completing the arguments of the command requires the real command, so it is constructed here as well.
+     */
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String s, String[] args) {
+        return getInstance().onTabComplete(sender, command, s, args);
+    }
+
+    /**
+     * Only warms up the real command if it exists already, a warm-up should not construct it.
+     */
+    @Override
+    protected void warmUp(CommandSender sender, Command command, String s, String[] args) {
+        SimpleCommand instance = this.instance;
+        if(instance != null) instance.warmUp(sender, command, s, args);
+    }
+
+    @Override
+    protected void setParent(RootCommand parent) {
+        super.setParent(parent);
+        SimpleCommand instance = this.instance;
+        if(instance != null) instance.setParent(parent);
+    }
+
+    @Override
+    protected void invalidateCache() {
+        super.invalidateCache();
+        SimpleCommand instance = this.instance;
+        if(instance != null) instance.invalidateCache();
+    }
+
+    /**
+     * Gets the real command, constructing it if this has not happened yet.
+     * If the supplier throws an exception it is tried again on the next call.
+     * @return The command
+     */
+    public SimpleCommand getInstance() {
+        SimpleCommand instance = this.instance;
+        if(instance != null) return instance;
+
+        synchronized (this) {
+            if(this.instance != null) return this.instance;
+            if(parent == null) throw new RuntimeException(String.format("The lazy command %s has no parent!", getName()));
+
+            instance = supplier.get();
+            if(instance == null) throw new RuntimeException(String.format("The supplier of the lazy command %s returned null!", getFullName()));
+            if(!instance.getName().equals(getName())) {
+                throw new RuntimeException(String.format("The lazy command %s created a command named %s!", getFullName(), instance.getName()));
+            }
+
+            instance.setParent((RootCommand) parent);
+            this.instance = instance;
+            return instance;
+        }
+    }
+
+    /**
+     * Returns true if the real command has been constructed.
+     * @return True if constructed
+     */
+    public boolean isInstantiated() {
+        return instance != null;
+    }
+}
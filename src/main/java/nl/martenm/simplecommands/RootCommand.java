@@ -1,9 +1,16 @@
 package nl.martenm.simplecommands;
 
+import nl.martenm.simplecommands.completion.CompletionCache;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import nl.martenm.simplecommands.permissions.PermissionScope;
+import nl.martenm.simplecommands.recording.CommandRecorder;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 /**
  * A Root command is not supposed to execute any custom command logic.
@@ -15,10 +22,33 @@ import java.util.*;
  */
 public abstract class RootCommand extends SimpleCommand {
 
-    // List of all subCommands
-    private final List<SimpleCommand> subCommands = new ArrayList<>();
-    // Command map, this includes aliases
-    private final Map<String, SimpleCommand> commandMap = new HashMap<>();
+    // Passed on to sub-commands without arguments, so the last step of a dispatch does not allocate an array.
+    private static final String[] NO_ARGS = new String[0];
+
+    // Immutable view of all subCommands and the command map (including aliases).
+    // It is replaced as a whole on every change so readers never observe a half applied registration.
+    private volatile Children children = Children.EMPTY;
+
+    // Guards the copy-on-write updates of the children.
+    private final Object childrenLock = new Object();
+
+    // Providers of generated sub-commands. Replaced as a whole under the children lock, like the children.
+    private volatile List<SubCommandProvider> providers = Collections.emptyList();
+
+    // The children merged with the generated sub-commands. Null when it has to be built again.
+    private volatile Children snapshot = null;
+
+    // Records the dispatches when this is the top command of the tree. Null when not recording.
+    private volatile CommandRecorder recorder = null;
+
+    // Increased on every change of the sub-commands below this node when it is the top command.
+    private final AtomicLong structureVersion = new AtomicLong();
+
+    // Amount of node ids handed out when this is the top command of a frozen tree. Guarded by the children lock.
+    private int nodeCount = 0;
+
+    // Ids of replaced nodes that can be handed out again, so replacing sub-commands does not grow the ids. Guarded by the children lock.
+    private final BitSet freeNodeIds = new BitSet();
 
     public RootCommand(String name, boolean playerOnly) {
         super(name, playerOnly);
@@ -34,15 +64,23 @@ public abstract class RootCommand extends SimpleCommand {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+        if(parent == null) {
+            CommandRecorder recorder = this.recorder;
+            if(recorder != null) recorder.record(sender, s, args);
+        }
+
+        // Take one snapshot so the whole dispatch runs against a consistent view.
+        Children children = children();
+
         // If there are no subcommands the onCommand method should have been overwritten.
         // Throw an exception if this is not the case.
-        if(commandMap.size() == 0) {
+        if(children.commandMap.size() == 0 && providers.isEmpty()) {
             throw new RuntimeException("No sub-commands for the command: " + getFullName());
         }
 
         // Respect the PlayerOnly command.
         if(!isAllowedSender(sender)) {
-            sender.sendMessage(SimpleCommandMessages.PLAYER_ONLY.m());
+            reject(sender, SimpleCommandMessages.PLAYER_ONLY);
             return true;
         }
 
@@ -50,24 +88,26 @@ public abstract class RootCommand extends SimpleCommand {
         // Send a help about these. If the available subCommands.size() == 0 that means the sender cannot execute any due to missing
         // permissions or them being playerOnly commands.
         if(args.length == 0) {
-            List<SimpleCommand> subCommands = getSubCommands(sender);
-
-            // Check if the subCommands are possible
-            if(subCommands.size() == 0) {
-                sender.sendMessage(SimpleCommandMessages.NO_PERMISSION.m());
+            return evaluatePermissions(sender, () -> {
+                List<SimpleCommand> subCommands = getSubCommands(sender);
+
+                // Check if the subCommands are possible
+                if(subCommands.size() == 0) {
+                    reject(sender, SimpleCommandMessages.NO_PERMISSION);
+                    return true;
+                }
+
+                // Remove hidden commands and send the help.
+                subCommands.removeIf(cmd -> cmd.isHidden(sender));
+                sendHelp(sender, subCommands);
                 return true;
-            }
-
-            // Remove hidden commands and send the help.
-            subCommands.removeIf(cmd -> cmd.isHidden(sender));
-            sendHelp(sender, subCommands);
-            return true;
+            });
         }
 
-        SimpleCommand sc = commandMap.get(args[0]);
+        SimpleCommand sc = children.commandMap.get(args[0]);
 
         if(sc == null) {
-            sender.sendMessage(String.format(SimpleCommandMessages.UNKNOWN_ARGUMENT.m(), args[0]));
+            reject(sender, SimpleCommandMessages.UNKNOWN_ARGUMENT, args[0]);
             return true;
         }
 
@@ -78,18 +118,42 @@ public abstract class RootCommand extends SimpleCommand {
          */
 
         if(!sc.isAllowedSender(sender)) {
-            sender.sendMessage(SimpleCommandMessages.PLAYER_ONLY.m());
+            reject(sender, SimpleCommandMessages.PLAYER_ONLY);
             return true;
         }
 
         // Do the permission check for the child.
         if(!sc.checkPermission(sender)) {
-            sender.sendMessage(SimpleCommandMessages.NO_PERMISSION.m());
+            reject(sender, SimpleCommandMessages.NO_PERMISSION);
             return true;
         }
 
         // Pass on the command to the next handler. Remove the first argument.
-        return sc.onCommand(sender, command, s, Arrays.copyOfRange(args, 1, args.length));
+        return sc.onCommand(sender, command, s, shift(args));
+    }
+
+    /**
+     * Routes a warm-up like {@link #onCommand} does, unless this node has no sub-commands and {@link #onCommand} is the handler.
+     * Nothing is rejected: an unknown or forbidden sub-command ends the warm-up of the path.
+     */
+    @Override
+    protected void warmUp(CommandSender sender, Command command, String s, String[] args) {
+        Children children = children();
+        if(children.commandMap.size() == 0 && providers.isEmpty()) return;
+
+        if(args.length == 0) {
+            evaluatePermissions(sender, () -> {
+                List<SimpleCommand> subCommands = getSubCommands(sender);
+                subCommands.removeIf(cmd -> cmd.isHidden(sender));
+                sendHelp(sender, subCommands);
+                return null;
+            });
+            return;
+        }
+
+        SimpleCommand sc = children.commandMap.get(args[0]);
+        if(sc == null || !sc.checkPermission(sender)) return;
+        sc.warmUp(sender, command, s, shift(args));
     }
 
     /**
@@ -99,7 +163,7 @@ public abstract class RootCommand extends SimpleCommand {
      */
     @Override
     public boolean checkPermission(CommandSender sender) {
-        if(this.commandMap.size() != 0) return true;
+        if(children().commandMap.size() != 0) return true;
         return super.checkPermission(sender);
     }
 
@@ -110,38 +174,462 @@ public abstract class RootCommand extends SimpleCommand {
 
         // Argument length is one. We can do suggestions now
         if(args.length == 1) {
+            CompletionCache cache = getCompletionCache();
+            if(cache == null) return getSubCommandCompletions(sender, args[0]);
+            return cache.complete(sender, getFullName(), 0, args[0], prefix -> getSubCommandCompletions(sender, prefix));
+        }
+
+        SimpleCommand next = children().commandMap.get(args[0]);
+        if(next == null) return null;
+
+        return next.onTabComplete(sender, command, s, shift(args));
+    }
+
+    /**
+     * Removes the first argument.
+     * @param args The arguments, at least one
+     * @return The remaining arguments
+     */
+    private static String[] shift(String[] args) {
+        if(args.length == 1) return NO_ARGS;
+        return Arrays.copyOfRange(args, 1, args.length);
+    }
+
+    /**
+     * Gets the tab completions of all sub-commands the sender can see.
+     * @param sender The sender
+     * @param prefix The already typed string
+     * @return The completions
+     */
+    private List<String> getSubCommandCompletions(CommandSender sender, String prefix) {
+        return evaluatePermissions(sender, () -> {
             List<String> completions = new ArrayList<>();
             getSubCommands(sender).forEach(cmd -> {
                 if(cmd.isHidden(sender)) return;
-                completions.addAll(cmd.getTabCompletions(args[0]));
+                completions.addAll(cmd.getTabCompletions(prefix));
             });
 
             return completions;
-        }
-
-        SimpleCommand next = commandMap.get(args[0]);
-        if(next == null) return null;
+        });
+    }
 
-        return next.onTabComplete(sender, command, s, Arrays.copyOfRange(args, 1, args.length));
+    /**
+     * Runs a pass over the sub-commands. If batch permissions are enabled all permission checks
+     * in the pass are answered by one snapshot of the senders permissions.
+     */
+    private <T> T evaluatePermissions(CommandSender sender, Supplier<T> pass) {
+        if(!isBatchPermissions()) return pass.get();
+        return PermissionScope.evaluate(sender, pass);
     }
 
     /**
      * Command used to add sub-commands to a SimpleCommand.
+     * The change is published as a new snapshot, so it is safe to call this while other threads dispatch commands.
      * @param command The command
      */
     public void addCommand(SimpleCommand command) {
-        if(this.subCommands.contains(command)) {
-            throw new RuntimeException(String.format("Attempted to add the command %s but it was already added! (Root: %s)", command.getName(), this.name));
+        addCommands(Collections.singletonList(command));
+    }
+
+    /**
+     * Adds multiple sub-commands at once. All commands become visible at the same time.
+     * Prefer this over repeated {@link #addCommand(SimpleCommand)} calls for large amounts of commands,
+     * every change copies the current children.
+     * @param commands The commands
+     */
+    public void addCommands(Collection<? extends SimpleCommand> commands) {
+        synchronized (childrenLock) {
+            checkNotFrozen();
+            Children current = this.children;
+            List<SimpleCommand> subCommands = new ArrayList<>(current.commands);
+            Map<String, SimpleCommand> commandMap = new HashMap<>(current.commandMap);
+            Set<SimpleCommand> added = new HashSet<>(current.commands);
+
+            for(SimpleCommand command : commands) {
+                if(!added.add(command)) {
+                    throw new RuntimeException(String.format("Attempted to add the command %s but it was already added! (Root: %s)", command.getName(), this.name));
+                }
+                subCommands.add(command);
+                Children.map(commandMap, command);
+            }
+
+            // Set the parent before publishing so readers never see an orphaned child.
+            for(SimpleCommand command : commands) {
+                command.setParent(this);
+            }
+
+            publish(new Children(subCommands, commandMap));
+        }
+    }
+
+    /**
+     * Adds a sub-command that is only constructed when it is first executed, see {@link LazyCommand}.
+     * @param name The name of the command
+     * @param description The description or null
+     * @param permission The permission or null
+     * @param playerOnly If the command is player only
+     * @param supplier Constructs the command
+     * @param aliases The aliases of the command
+     * @return The placeholder that was added
+     */
+    public LazyCommand addLazyCommand(String name, String description, String permission, boolean playerOnly, Supplier<? extends SimpleCommand> supplier, String... aliases) {
+        LazyCommand command = new LazyCommand(name, description, permission, playerOnly, supplier);
+        for(String alias : aliases) {
+            command.addAlias(alias);
+        }
+        addCommand(command);
+        return command;
+    }
+
+    /**
+     * Records every dispatch of this tree, for example to replay real traffic in a benchmark.
+     * Only used on the command without a parent.
+     * @param recorder The recorder or null to stop recording. The previous recorder is not closed.
+     */
+    public void setRecorder(CommandRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return The recorder of this tree or null if not recording
+     */
+    public CommandRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Adds a provider of sub-commands that are generated at runtime, for example one per arena.
+     * The generated sub-commands are cached together with the normal sub-commands until {@link #invalidateSubCommands()}
+     * is called, so dispatch, the help and tab completions are as fast as with normal sub-commands.
+     * A normal sub-command wins if a generated one uses the same name or alias.
+     * Generated sub-commands are never frozen and check their permissions directly.
+     * Providers can also be added and removed after the tree is frozen.
+     * @param provider The provider
+     */
+    public void addSubCommandProvider(SubCommandProvider provider) {
+        synchronized (childrenLock) {
+            List<SubCommandProvider> next = new ArrayList<>(providers);
+            next.add(provider);
+            this.providers = Collections.unmodifiableList(next);
+            invalidateSnapshot();
+        }
+
+        // Whether this node is allowed depends on the generated sub-commands as well.
+        invalidatePermissionBits();
+    }
+
+    /**
+     * Removes a provider of sub-commands. Its sub-commands are removed as well.
+     * @param provider The provider
+     * @return True if the provider was added to this node
+     */
+    public boolean removeSubCommandProvider(SubCommandProvider provider) {
+        synchronized (childrenLock) {
+            List<SubCommandProvider> next = new ArrayList<>(providers);
+            if(!next.remove(provider)) return false;
+            this.providers = Collections.unmodifiableList(next);
+            invalidateSnapshot();
+        }
+
+        invalidatePermissionBits();
+        return true;
+    }
+
+    /**
+     * Drops the generated sub-commands. The providers are asked for them again on the next use.
+     * Call this when the data the sub-commands are generated from has changed.
+     */
+    public void invalidateSubCommands() {
+        synchronized (childrenLock) {
+            invalidateSnapshot();
+        }
+
+        invalidatePermissionBits();
+    }
+
+    /**
+     * Gets the current sub-commands merged with the generated ones.
+     * @return The snapshot
+     */
+    private Children children() {
+        Children snapshot = this.snapshot;
+        if(snapshot != null) return snapshot;
+
+        synchronized (childrenLock) {
+            if(this.snapshot != null) return this.snapshot;
+
+            Children children = this.children;
+            if(providers.isEmpty()) {
+                this.snapshot = children;
+                return children;
+            }
+
+            List<SimpleCommand> subCommands = new ArrayList<>(children.commands);
+            Map<String, SimpleCommand> commandMap = new HashMap<>(children.commandMap);
+            Set<SimpleCommand> added = new HashSet<>(children.commands);
+            for(SubCommandProvider provider : providers) {
+                for(SimpleCommand command : provider.getSubCommands()) {
+                    if(!added.add(command)) continue;
+
+                    if(command.getParent() != this) {
+                        command.setParent(this);
+                        command.invalidateCache();
+                    }
+                    subCommands.add(command);
+                    commandMap.putIfAbsent(command.name, command);
+                    command.getAliases().forEach(alias -> commandMap.putIfAbsent(alias, command));
+                }
+            }
+
+            snapshot = new Children(subCommands, commandMap);
+            if(isFrozen()) snapshot = snapshot.compact();
+            this.snapshot = snapshot;
+            return snapshot;
+        }
+    }
+
+    /**
+     * Publishes new sub-commands. Should only be called while holding the children lock.
+     * @param children The sub-commands
+     */
+    private void publish(Children children) {
+        this.children = children;
+        invalidateSnapshot();
+    }
+
+    /**
+     * Drops the merged sub-commands and the cached tab completions, which may list commands that changed.
+     */
+    private void invalidateSnapshot() {
+        this.snapshot = null;
+        getTop().structureVersion.incrementAndGet();
+
+        CompletionCache cache = getCompletionCache();
+        if(cache != null) cache.clear();
+    }
+
+    private void invalidatePermissionBits() {
+        // The permission bits include the generated sub-commands.
+        PermissionBitSets bitSets = getPermissionBitSets();
+        if(bitSets != null) bitSets.invalidateAll();
+    }
+
+    /**
+     * Removes a sub-command including all of its aliases.
+     * Executions that already started on the removed command will finish normally, which is
+     * why the parent of the removed command is left untouched.
+     * @param command The command
+     * @return True if the command was a sub-command of this node
+     */
+    public boolean removeCommand(SimpleCommand command) {
+        synchronized (childrenLock) {
+            checkNotFrozen();
+            Children current = this.children;
+            if(!current.commands.contains(command)) return false;
+
+            List<SimpleCommand> subCommands = new ArrayList<>(current.commands);
+            subCommands.remove(command);
+
+            // Rebuild the map. Another command may have shadowed (or been shadowed by) one of the removed keys.
+            Map<String, SimpleCommand> commandMap = new HashMap<>();
+            subCommands.forEach(cmd -> Children.map(commandMap, cmd));
+
+            publish(new Children(subCommands, commandMap));
+            return true;
+        }
+    }
+
+    /**
+     * Atomically replaces all sub-commands of this node with the sub-commands of the replacement.
+     * The sub-command providers are replaced as well, and the help formatter if the replacement has one.
+     * The replacement is only used as a container, its own name, aliases and permission are ignored.
+     * This allows a complete tree to be rebuilt (for example on a config reload) on any thread and then
+     * be swapped in under an already registered command without calling {@link #registerCommand} again.
+     *
+     * Executions that already started finish against the old sub-commands.
+     * The replacement should not be used after calling this method.
+     *
+     * If this node is frozen the new sub-commands are validated and frozen before they are swapped in.
+     * They reuse the node ids of the old sub-commands, so the node count only grows if the replacement is larger.
+     * @param replacement The node containing the new sub-commands
+     */
+    public void replaceSubCommands(RootCommand replacement) {
+        if(replacement == this) throw new RuntimeException(String.format("Cannot replace the sub-commands of %s with itself!", getFullName()));
+        if(replacement.isFrozen()) throw new RuntimeException(String.format("Cannot replace the sub-commands of %s with a frozen tree!", getFullName()));
+
+        Children next;
+        List<SubCommandProvider> nextProviders;
+        synchronized (replacement.childrenLock) {
+            next = replacement.children;
+            nextProviders = replacement.providers;
+        }
+
+        synchronized (childrenLock) {
+
+            // Move the new children to this node. Cached values were computed with the replacement as parent.
+            moveChildren(next, this);
+
+            if(isFrozen()) {
+                List<String> problems = new ArrayList<>();
+                validateChildren(next, problems);
+                if(!problems.isEmpty()) {
+                    // Rejected, the children stay with the replacement that still contains them.
+                    moveChildren(next, replacement);
+                    throw new RuntimeException(formatProblems(problems));
+                }
+
+                // The new nodes take the ids of the old children first, so repeated replacements do not grow the bit sets.
+                RootCommand top = getTop();
+                synchronized (top.childrenLock) {
+                    for(SimpleCommand command : this.children.commands) {
+                        collectNodeIds(command, top.freeNodeIds);
+                    }
+                    for(SimpleCommand command : next.commands) {
+                        command.freeze(getDepth() + 1, top::nextNodeId);
+                    }
+                }
+            }
+
+            // Written before the children are published, readers that see the new children also see these.
+            if(replacement.helpFormatter != null) this.helpFormatter = replacement.helpFormatter;
+            this.providers = nextProviders;
+
+            // The permission bits were built for the old children. Reused ids must never be answered by them,
+            // so they are dropped in the same step as the new children are published.
+            PermissionBitSets bitSets = getPermissionBitSets();
+            if(bitSets != null) bitSets.invalidateAll(() -> publish(next));
+            else publish(next);
+        }
+    }
+
+    private static void collectNodeIds(SimpleCommand command, BitSet nodeIds) {
+        // Generated sub-commands have no id.
+        if(command.getNodeId() < 0) return;
+
+        nodeIds.set(command.getNodeId());
+        if(command instanceof RootCommand) {
+            for(SimpleCommand child : ((RootCommand) command).getSubCommands()) {
+                collectNodeIds(child, nodeIds);
+            }
+        }
+    }
+
+    /**
+     * Hands out a node id, a free one if there is any. Only called on the top command while holding its children lock.
+     */
+    private int nextNodeId() {
+        int nodeId = freeNodeIds.nextSetBit(0);
+        if(nodeId < 0) return nodeCount++;
+
+        freeNodeIds.clear(nodeId);
+        return nodeId;
+    }
+
+    private static void moveChildren(Children children, RootCommand parent) {
+        for(SimpleCommand command : children.commands) {
+            command.setParent(parent);
+            command.invalidateCache();
+        }
+    }
+
+    /**
+     * Validates and freezes this command tree. This should be called on the command without a parent once the tree
+     * is complete and registered. After that:
+     *  - Alias collisions and '+' permissions that cannot be attached are reported right away instead of at first use.
+     *  - The full permission and the depth of every node are precomputed.
+     *  - Commands can no longer be added, removed or changed. Only {@link #replaceSubCommands(RootCommand)} and
+     *    the sub-command providers, whose sub-commands are never frozen, can still change the sub-commands.
+     * @throws RuntimeException If the tree contains problems. The message lists all of them.
+     */
+    public void freeze() {
+        if(parent != null) throw new RuntimeException(String.format("Only the top command can be frozen, %s has a parent!", getFullName()));
+        if(isFrozen()) return;
+
+        List<String> problems = new ArrayList<>();
+        validate(problems);
+        if(!problems.isEmpty()) throw new RuntimeException(formatProblems(problems));
+
+        synchronized (childrenLock) {
+            freeze(0, this::nextNodeId);
+        }
+    }
+
+    /**
+     * Enables per sender permission bit sets for this frozen tree.
+     * Every sender gets one bit set that answers all permission checks in the tree. It is built on first use.
+     * Permission changes are NOT detected: call {@link PermissionBitSets#invalidate} when the permissions of a sender change,
+     * and {@link PermissionBitSets#register} to invalidate on quits and world changes.
+     * @param maxSenders The maximum amount of senders to keep bit sets for
+     * @return The bit sets
+     */
+    public PermissionBitSets enablePermissionBitSets(int maxSenders) {
+        if(!isFrozen()) throw new RuntimeException(String.format("Permission bit sets require %s to be frozen first!", getFullName()));
+        if(parent != null) throw new RuntimeException(String.format("Permission bit sets can only be enabled on the top command, %s has a parent!", getFullName()));
+
+        this.permissionBitSets = new PermissionBitSets(this, maxSenders);
+        return this.permissionBitSets;
+    }
+
+    /**
+     * Gets the amount of node ids that are in use by this frozen tree.
+     * @return The amount of node ids
+     */
+    public int getNodeCount() {
+        return getTop().nodeCount;
+    }
+
+    /**
+     * Gets the version of the sub-commands of the whole tree. It changes after every change of the sub-commands,
+     * so values derived from the tree can be cached until it changes. Read it before reading the tree.
+     * @return The version
+     */
+    long getStructureVersion() {
+        return getTop().structureVersion.get();
+    }
+
+    private RootCommand getTop() {
+        SimpleCommand top = this;
+        while(top.getParent() != null) top = top.getParent();
+        return (RootCommand) top;
+    }
+
+    @Override
+    protected void validate(List<String> problems) {
+        super.validate(problems);
+        validateChildren(this.children, problems);
+    }
+
+    private void validateChildren(Children children, List<String> problems) {
+        Map<String, SimpleCommand> used = new HashMap<>();
+        for(SimpleCommand command : children.commands) {
+            List<String> keys = new ArrayList<>(command.getAliases());
+            keys.add(0, command.getName());
+
+            for(String key : keys) {
+                SimpleCommand other = used.putIfAbsent(key, command);
+                if(other != null && other != command) {
+                    problems.add(String.format("The name or alias '%s' of %s is already used by %s", key, command.getFullName(), other.getFullName()));
+                }
+            }
+
+            command.validate(problems);
         }
-        this.subCommands.add(command);
+    }
 
-        // Add the command to the map
-        this.commandMap.put(command.name, command);
+    @Override
+    protected void freeze(int depth, IntSupplier nodeIds) {
+        super.freeze(depth, nodeIds);
+        Children children = this.children;
+        for(SimpleCommand command : children.commands) {
+            command.freeze(depth + 1, nodeIds);
+        }
 
-        // Add aliases to the same hashmap
-        command.getAliases().forEach(alias -> this.commandMap.put(alias, command));
+        // The children can no longer change, store them in the compact form.
+        publish(children.compact());
+    }
 
-        command.setParent(this);
+    private String formatProblems(List<String> problems) {
+        return String.format("The command %s contains %d problem(s):%n - %s", getFullName(), problems.size(), String.join(String.format("%n - "), problems));
     }
 
     /**
@@ -153,7 +641,7 @@ public abstract class RootCommand extends SimpleCommand {
      */
     public List<SimpleCommand> getSubCommands(CommandSender sender) {
         List<SimpleCommand> commands = new ArrayList<>();
-        for(SimpleCommand cmd : subCommands) {
+        for(SimpleCommand cmd : children().commands) {
             if(cmd.playerOnly && !(sender instanceof Player)) continue;
 
             // Check permissions. If the command has no permission it will be checked if the arguments do.
@@ -173,13 +661,28 @@ public abstract class RootCommand extends SimpleCommand {
      */
     @Override
     public boolean isAllowed(CommandSender sender) {
+        BitSet bits = getPermissionBits(sender);
+        if(bits != null) return bits.get(PermissionBitSets.allowedBit(getNodeId()));
+
         // TODO: Strict node. If the node has a permission and this is enabled players NEED to have the permission of the current command. No exceptions.
         //if(getFullPermission() != null && !sender.hasPermission(getFullPermission())) return false;
 
+        List<SimpleCommand> subCommands = children().commands;
         if(subCommands.size() == 0) {
             return checkPermission(sender);
         }
-        return subCommands.stream().anyMatch(cmd -> cmd.isAllowed(sender));
+        // Indexed loop, the list is random access and this runs for every node in help and completion passes.
+        for(int i = 0; i < subCommands.size(); i++) {
+            if(subCommands.get(i).isAllowed(sender)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void invalidateCache() {
+        super.invalidateCache();
+        children.commands.forEach(SimpleCommand::invalidateCache);
+        invalidateSnapshot();
     }
 
     /**
@@ -192,10 +695,112 @@ public abstract class RootCommand extends SimpleCommand {
     }
 
     /**
-     * Gets and returns a collection of all subcommands.
+     * Gets and returns a collection of all subcommands, including the generated ones.
+     * The returned collection is an immutable snapshot and will not reflect later changes.
      * @return The subcommands
      */
     public Collection<SimpleCommand> getSubCommands() {
-        return this.subCommands;
+        return children().commands;
+    }
+
+    /**
+     * Gets the sub-command with the name or alias, like the dispatch looks it up.
+     * @param name The name or alias
+     * @return The subcommand or null if there is none
+     */
+    public SimpleCommand getSubCommand(String name) {
+        return children().commandMap.get(name);
+    }
+
+    /**
+     * Immutable holder for the sub-commands and the name / alias lookup map.
+     */
+    private static final class Children {
+
+        static final Children EMPTY = new Children(Collections.emptyList(), Collections.emptyMap());
+
+        final List<SimpleCommand> commands;
+        final Map<String, SimpleCommand> commandMap;
+
+        Children(List<SimpleCommand> commands, Map<String, SimpleCommand> commandMap) {
+            this.commands = Collections.unmodifiableList(commands);
+            this.commandMap = commandMap instanceof CompactMap ? commandMap : Collections.unmodifiableMap(commandMap);
+        }
+
+        /**
+         * Adds the name and all aliases of the command to the map.
+         */
+        static void map(Map<String, SimpleCommand> commandMap, SimpleCommand command) {
+            commandMap.put(command.name, command);
+            command.getAliases().forEach(alias -> commandMap.put(alias, command));
+        }
+
+        /**
+         * Creates a copy that uses less memory. The commands are stored in an exactly sized array and the
+         * map is replaced by an open addressed table, nodes without children share the empty instance.
+         * @return The compact children
+         */
+        Children compact() {
+            if(commands.isEmpty()) return EMPTY;
+            return new Children(Arrays.asList(commands.toArray(new SimpleCommand[0])), new CompactMap(commandMap));
+        }
+    }
+
+    /**
+     * Immutable map from names and aliases to commands, stored in two arrays using linear probing.
+     * Only {@link #get(Object)} and {@link #containsKey(Object)} are fast, which is all the dispatch needs.
+     */
+    private static final class CompactMap extends AbstractMap<String, SimpleCommand> {
+
+        private final String[] keys;
+        private final SimpleCommand[] values;
+        private final int size;
+
+        CompactMap(Map<String, SimpleCommand> map) {
+            // Keep the table at most half full so probe sequences stay short.
+            int capacity = Integer.highestOneBit(Math.max(1, map.size()) * 2 - 1) << 1;
+            this.keys = new String[capacity];
+            this.values = new SimpleCommand[capacity];
+            this.size = map.size();
+
+            for(Map.Entry<String, SimpleCommand> entry : map.entrySet()) {
+                int index = indexOf(entry.getKey().hashCode());
+                while(keys[index] != null) index = (index + 1) & (capacity - 1);
+                keys[index] = intern(entry.getKey());
+                values[index] = entry.getValue();
+            }
+        }
+
+        private int indexOf(int hash) {
+            return (hash ^ (hash >>> 16)) & (keys.length - 1);
+        }
+
+        @Override
+        public SimpleCommand get(Object key) {
+            if(!(key instanceof String)) return null;
+            for(int index = indexOf(key.hashCode()); keys[index] != null; index = (index + 1) & (keys.length - 1)) {
+                if(keys[index].equals(key)) return values[index];
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, SimpleCommand>> entrySet() {
+            Set<Entry<String, SimpleCommand>> entries = new LinkedHashSet<>();
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i] != null) entries.add(new SimpleImmutableEntry<>(keys[i], values[i]));
+            }
+            return Collections.unmodifiableSet(entries);
+        }
     }
 }
@@ -0,0 +1,125 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.permissions.PermissionScope;
+import nl.martenm.simplecommands.permissions.PermissionSnapshot;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * A command whose logic runs off the main thread.
+ * Bukkit permissibles are not thread-safe, so before leaving the main thread the permissions of the sender
+ * are captured for every node of the nearest {@link RootCommand} subtree. The handler receives this snapshot
+ * and permission checks of the framework on the async thread are answered by it.
+ *
+ * Other nodes the handler needs can be added with {@link #getSnapshotPermissions()}.
+ */
+public abstract class SimpleAsyncCommand extends SimpleCommand {
+
+    // Captured nodes of a frozen tree, valid until its sub-commands change.
+    private volatile CachedNodes frozenNodes = null;
+
+    public SimpleAsyncCommand(String name, boolean playerOnly) {
+        super(name, playerOnly);
+    }
+
+    public SimpleAsyncCommand(String name, String permission, boolean playerOnly) {
+        super(name, permission, playerOnly);
+    }
+
+    public SimpleAsyncCommand(String name, String description, String permission, boolean playerOnly) {
+        super(name, description, permission, playerOnly);
+    }
+
+    @Override
+    public final boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+        Executor asyncExecutor = getAsyncExecutor();
+        if(asyncExecutor == null) throw new RuntimeException(String.format("The command %s has no async executor. Register the command first!", getFullName()));
+
+        PermissionSnapshot snapshot = PermissionSnapshot.capture(sender, getSnapshotNodes());
+        String[] arguments = args.clone();
+
+        asyncExecutor.execute(() -> {
+            try (PermissionScope ignored = PermissionScope.open(sender, snapshot)) {
+                onAsyncCommand(sender, command, s, arguments, snapshot);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Captures the permission snapshot, the handler is not started.
+     */
+    @Override
+    protected void warmUp(CommandSender sender, Command command, String s, String[] args) {
+        PermissionSnapshot.capture(sender, getSnapshotNodes());
+    }
+
+    /**
+     * Called off the main thread when the command is executed.
+     * Use the permissions instead of {@link CommandSender#hasPermission(String)}.
+     * @param sender The sender
+     * @param command The Bukkit command
+     * @param s The label
+     * @param args The arguments
+     * @param permissions The permissions of the sender, captured on the main thread
+     */
+    protected abstract void onAsyncCommand(CommandSender sender, Command command, String s, String[] args, PermissionSnapshot permissions);
+
+    /**
+     * Extra permission nodes that should be captured for the handler.
+     * @return The permission nodes
+     */
+    protected Collection<String> getSnapshotPermissions() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Gets all nodes that are captured: the full permissions in the nearest root subtree and the extra nodes.
+     * @return The permission nodes
+     */
+    public List<String> getSnapshotNodes() {
+        SimpleCommand top = this;
+        while(!(top instanceof RootCommand) && top.getParent() != null) {
+            top = top.getParent();
+        }
+
+        // Providers and replacements still change the sub-commands of a frozen tree.
+        long version = top instanceof RootCommand ? ((RootCommand) top).getStructureVersion() : 0;
+        CachedNodes cached = frozenNodes;
+        if(cached != null && cached.top == top && cached.version == version) return cached.nodes;
+
+        Set<String> collected = new LinkedHashSet<>();
+        collect(top, collected);
+        collected.addAll(getSnapshotPermissions());
+        List<String> nodes = Collections.unmodifiableList(new ArrayList<>(collected));
+
+        if(isFrozen()) frozenNodes = new CachedNodes(top, version, nodes);
+        return nodes;
+    }
+
+    private static void collect(SimpleCommand command, Set<String> nodes) {
+        String permission = command.getFullPermission();
+        if(permission != null) nodes.add(permission);
+
+        if(command instanceof RootCommand) {
+            for(SimpleCommand child : ((RootCommand) command).getSubCommands()) {
+                collect(child, nodes);
+            }
+        }
+    }
+
+    private static final class CachedNodes {
+        final SimpleCommand top;
+        final long version;
+        final List<String> nodes;
+
+        CachedNodes(SimpleCommand top, long version, List<String> nodes) {
+            this.top = top;
+            this.version = version;
+            this.nodes = nodes;
+        }
+    }
+}
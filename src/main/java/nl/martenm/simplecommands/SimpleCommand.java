@@ -1,14 +1,25 @@
 package nl.martenm.simplecommands;
 
+import nl.martenm.simplecommands.completion.CompletionCache;
+import nl.martenm.simplecommands.misc.ErrorThrottle;
 import nl.martenm.simplecommands.misc.NameFormat;
+import nl.martenm.simplecommands.misc.RejectCounters;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import nl.martenm.simplecommands.permissions.PermissionScope;
+import org.bukkit.Bukkit;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
 
 /**
  * The basis for a commands. This abstract class contains all basic information required to structure
@@ -16,6 +27,7 @@ import java.util.Set;
  */
 public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
 
+    // Interned, large trees repeat the same names and permissions many times.
     protected final String name;
     protected final String description;
     protected final String permission;
@@ -27,35 +39,65 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
     // Cache the value of the full permission node.
     protected String fullPermission = null;
 
+    // Metadata precomputed by freezing the tree. Only valid when frozen is true.
+    // The full name if all formats give the same text, otherwise an array with the name of each format.
+    private Object fullNames;
+    private int depth;
+    private int nodeId = -1;
+
+    // Written last when freezing, so a thread that sees true also sees the precomputed metadata.
+    private volatile boolean frozen = false;
+
     // Parent of this node
     protected SimpleCommand parent;
 
     // Help formatter - Not sure if this one should be here but it's anyway.
     protected ISimpleHelpFormatter helpFormatter = null;
 
+    // Tab completion cache, disabled unless set on this node or one of its parents.
+    protected CompletionCache completionCache = null;
+
+    // Evaluate help and tab completion passes against one permission snapshot. Inherited from the parent when null.
+    protected Boolean batchPermissions = null;
+
+    // Per sender permission bits, only used for frozen trees. Inherited from the parent when null.
+    protected PermissionBitSets permissionBitSets = null;
+
+    // Runs tasks on the main server thread. Set when registering, inherited from the parent when null.
+    protected Executor syncExecutor = null;
+
+    // Runs tasks off the main server thread. Set when registering, inherited from the parent when null.
+    protected Executor asyncExecutor = null;
+
+    // Throttles errors sent to the same sender, disabled unless set on this node or one of its parents.
+    protected ErrorThrottle errorThrottle = null;
+
+    // Counts rejected dispatches. Inherited from the parent, created on the top node when first used.
+    protected volatile RejectCounters rejectCounters = null;
+
     /**
      * Create a SimpleCommand with no permission and no description.
      * @param name The command name
      * @param playerOnly If the command is player only or not.
      */
     public SimpleCommand(String name, boolean playerOnly) {
-        this.name = name;
+        this.name = intern(name);
         this.playerOnly = playerOnly;
         this.permission = null;
         this.description = null;
     }
 
     public SimpleCommand(String name, String permission, boolean playerOnly) {
-        this.name = name;
+        this.name = intern(name);
         this.playerOnly = playerOnly;
-        this.permission = permission;
+        this.permission = intern(permission);
         this.description = null;
     }
 
     public SimpleCommand(String name, String description, String permission, boolean playerOnly) {
-        this.name = name;
-        this.description = description;
-        this.permission = permission;
+        this.name = intern(name);
+        this.description = intern(description);
+        this.permission = intern(permission);
         this.playerOnly = playerOnly;
     }
 
@@ -65,6 +107,18 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
         return new ArrayList<>();
     }
 
+    /**
+     * Runs this command for a {@link CommandWarmup} without executing the handler.
+     * Commands that do work before their handler, like parsing arguments, override this to run that part.
+     * @param sender The warm-up sender
+     * @param command The command, always null
+     * @param s The label
+     * @param args The arguments
+     */
+    protected void warmUp(CommandSender sender, Command command, String s, String[] args) {
+        // Nothing runs before the handler.
+    }
+
     /**
      * Executes a test to see if the input matches the command name or any of the aliases.
      * Check ignores upper/lower case
@@ -73,7 +127,10 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      */
     public boolean testNameMatch(String input) {
         if(this.name.equalsIgnoreCase(input)) return true;
-        return this.aliases.stream().anyMatch(alias -> alias.equalsIgnoreCase(input));
+        for(String alias : this.aliases) {
+            if(alias.equalsIgnoreCase(input)) return true;
+        }
+        return false;
     }
 
     /**
@@ -97,8 +154,11 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @return True if allowed
      */
     public boolean checkPermission(CommandSender sender) {
+        BitSet bits = getPermissionBits(sender);
+        if(bits != null) return bits.get(PermissionBitSets.permissionBit(nodeId));
+
         if(this.getFullPermission() == null) return true;
-        return sender.hasPermission(this.getFullPermission());
+        return PermissionScope.hasPermission(sender, this.getFullPermission());
     }
 
     /**
@@ -128,6 +188,9 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @return True if this command can be executed.
      */
     public boolean isAllowed(CommandSender sender) {
+        BitSet bits = getPermissionBits(sender);
+        if(bits != null) return bits.get(PermissionBitSets.allowedBit(nodeId));
+
         return checkPermission(sender);
     }
 
@@ -138,6 +201,7 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @return A command node like "commands.debug.test.xxx"
      */
     public String getFullPermission() {
+        if(frozen) return fullPermission;
         if(fullPermission != null) return fullPermission;
 
         // If it does not start with the + operator we return this root permission.
@@ -163,6 +227,102 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
     }
 
 
+    /**
+     * Clears the values cached by this node and all nodes below it.
+     * Called when a node is moved to a different parent.
+     */
+    protected void invalidateCache() {
+        checkNotFrozen();
+        this.fullPermission = null;
+    }
+
+    /**
+     * Checks this node for problems that would otherwise only show up when the command is first used.
+     * @param problems List the found problems are added to
+     */
+    protected void validate(List<String> problems) {
+        try {
+            getFullPermission();
+        } catch (RuntimeException ex) {
+            problems.add(ex.getMessage());
+        }
+    }
+
+    /**
+     * Precomputes the metadata of this node and makes it immutable.
+     * Called by {@link RootCommand#freeze()} for every node in the tree, parents first.
+     * The full names of every {@link NameFormat} are precomputed, formats with the same text share one string.
+     * The full permission and aliases are interned and the aliases are stored in an exactly sized array, so large trees share
+     * them instead of keeping a copy per node.
+     * @param depth The depth of this node, 0 for the root
+     * @param nodeIds Hands out the ids of the nodes
+     */
+    protected void freeze(int depth, IntSupplier nodeIds) {
+        this.fullPermission = intern(getFullPermission());
+
+        // Most nodes have no aliases, so the full names of the formats are often equal and can share one string.
+        String[] fullNames = new String[NameFormat.values().length];
+        for(NameFormat format : NameFormat.values()) {
+            String fullName = getFullName(format);
+            for(int i = 0; i < format.ordinal(); i++) {
+                if(fullNames[i].equals(fullName)) fullName = fullNames[i];
+            }
+            fullNames[format.ordinal()] = fullName;
+        }
+        boolean shared = true;
+        for(String fullName : fullNames) {
+            if(fullName != fullNames[0]) shared = false;
+        }
+        this.fullNames = shared ? fullNames[0] : fullNames;
+        this.depth = depth;
+        this.nodeId = nodeIds.getAsInt();
+
+        if(this.aliases.isEmpty()) {
+            this.aliases = Collections.emptyList();
+        } else {
+            String[] aliases = new String[this.aliases.size()];
+            for(int i = 0; i < aliases.length; i++) {
+                aliases[i] = intern(this.aliases.get(i));
+            }
+            this.aliases = Collections.unmodifiableList(Arrays.asList(aliases));
+        }
+
+        this.frozen = true;
+    }
+
+    /**
+     * Interns a string that is kept by the tree.
+     * @param value The string or null
+     * @return The interned string
+     */
+    protected static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    /**
+     * Gets the dense id of this node. Ids are assigned when the tree is frozen, starting at 0 for the top command.
+     * @return The id or -1 if the tree is not frozen
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns true if the tree this command belongs to has been frozen.
+     * Frozen commands can no longer be changed.
+     * @return True if frozen
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Throws an exception if this command is frozen.
+     */
+    protected void checkNotFrozen() {
+        if(frozen) throw new RuntimeException(String.format("The command %s is frozen and can no longer be changed!", getFullName()));
+    }
+
     /**
      * Register the plugin to the server using the plugin specified.
      * @param plugin The plugin the command should be registered too.
@@ -171,6 +331,7 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
         PluginCommand command = plugin.getCommand(this.name);
         if(command == null) throw new RuntimeException(String.format("Plugin tried to register the SimpleCommand /%s but it was not specified in the plugin.yml", name));
         if(parent != null) throw new RuntimeException(String.format("Plugin tried to register the SimpleCommand /%s but has a parent node!", getFullName()));
+        if(frozen) throw new RuntimeException(String.format("Plugin tried to register the SimpleCommand /%s but it is already frozen! Freeze the command after registering it.", getFullName()));
 
         // Set the alias for this command.
         if(this.aliases != null) {
@@ -179,6 +340,13 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
 
         command.setExecutor(this);
         command.setTabCompleter(this);
+
+        if(this.syncExecutor == null) {
+            this.syncExecutor = task -> Bukkit.getScheduler().runTask(plugin, task);
+        }
+        if(this.asyncExecutor == null) {
+            this.asyncExecutor = task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        }
     }
 
     /**
@@ -186,6 +354,7 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @param parent The parent
      */
     protected void setParent(RootCommand parent) {
+        checkNotFrozen();
         this.parent = parent;
     }
 
@@ -226,6 +395,11 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @return The full command.
      */
     public String getFullName(NameFormat format) {
+        if(frozen) {
+            Object fullNames = this.fullNames;
+            return fullNames instanceof String ? (String) fullNames : ((String[]) fullNames)[format.ordinal()];
+        }
+
         StringBuilder builder = new StringBuilder();
         SimpleCommand parent = this.parent;
         while(parent != null) {
@@ -252,6 +426,20 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
         return builder.toString();
     }
 
+    /**
+     * Gets the depth of this command in the tree. The command without a parent has depth 0.
+     * @return The depth
+     */
+    public int getDepth() {
+        if(frozen) return depth;
+
+        int depth = 0;
+        for(SimpleCommand parent = this.parent; parent != null; parent = parent.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+
     /**
      * Get the help formatter for this command.
      * At the moment this is mostly used for nested commands that have a {@link RootCommand} as parent.
@@ -271,9 +459,166 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @param formatter The new formatter
      */
     protected void setHelpFormatter(SimpleHelpFormatter formatter) {
+        checkNotFrozen();
         this.helpFormatter = formatter;
     }
 
+    /**
+     * Gets the tab completion cache for this command.
+     * The cache is shared with all children unless they have their own.
+     * @return The cache or null if completions are not cached.
+     */
+    public CompletionCache getCompletionCache() {
+        if(this.completionCache != null) return completionCache;
+        if(this.parent != null) return parent.getCompletionCache();
+        return null;
+    }
+
+    /**
+     * Sets the tab completion cache for this command and its children.
+     * @param completionCache The cache, null to disable caching
+     */
+    public void setCompletionCache(CompletionCache completionCache) {
+        this.completionCache = completionCache;
+    }
+
+    /**
+     * Returns true if passes over many commands (the help and tab completions) take one snapshot of the
+     * senders effective permissions instead of checking every command with the sender.
+     * @return True if enabled for this command
+     */
+    public boolean isBatchPermissions() {
+        if(this.batchPermissions != null) return batchPermissions;
+        if(this.parent != null) return parent.isBatchPermissions();
+        return false;
+    }
+
+    /**
+     * Enables or disables batch permission evaluation for this command and its children.
+     * Only enable this if the permissions plugin exposes all permissions through getEffectivePermissions().
+     * @param batchPermissions True to enable
+     */
+    public void setBatchPermissions(boolean batchPermissions) {
+        this.batchPermissions = batchPermissions;
+    }
+
+    /**
+     * Gets the permission bit sets used by this command.
+     * @return The bit sets or null if not enabled
+     */
+    public PermissionBitSets getPermissionBitSets() {
+        if(this.permissionBitSets != null) return permissionBitSets;
+        if(this.parent != null) return parent.getPermissionBitSets();
+        return null;
+    }
+
+    /**
+     * Gets the permission bits of the sender if they can be used for this node.
+     * @param sender The sender
+     * @return The bits or null if permissions should be checked directly
+     */
+    protected BitSet getPermissionBits(CommandSender sender) {
+        if(!frozen) return null;
+
+        PermissionBitSets bitSets = getPermissionBitSets();
+        if(bitSets == null) return null;
+        return bitSets.lookup(sender);
+    }
+
+    /**
+     * Sends the error of a rejected dispatch to the sender. The rejection is counted and the error is
+     * left out if the {@link ErrorThrottle} suppresses it.
+     * @param sender The sender
+     * @param message The error
+     * @param args The arguments of the message
+     */
+    protected void reject(CommandSender sender, SimpleCommandMessages message, Object... args) {
+        RejectCounters counters = getRejectCounters();
+        counters.increment(message);
+
+        ErrorThrottle throttle = getErrorThrottle();
+        long suppressed = throttle == null ? 0 : throttle.check(sender, message);
+        if(suppressed < 0) {
+            counters.incrementSuppressed();
+            return;
+        }
+
+        // The first error after the window mentions how many were suppressed.
+        if(suppressed == 0) sender.sendMessage(message.format(args));
+        else sender.sendMessage(message.format(args) + " " + SimpleCommandMessages.SUPPRESSED_ERRORS.format(suppressed));
+    }
+
+    /**
+     * Gets the error throttle for this command.
+     * @return The throttle or null if errors are not throttled
+     */
+    public ErrorThrottle getErrorThrottle() {
+        if(this.errorThrottle != null) return errorThrottle;
+        if(this.parent != null) return parent.getErrorThrottle();
+        return null;
+    }
+
+    /**
+     * Sets the error throttle for this command and its children.
+     * @param errorThrottle The throttle, null to send every error
+     */
+    public void setErrorThrottle(ErrorThrottle errorThrottle) {
+        this.errorThrottle = errorThrottle;
+    }
+
+    /**
+     * Gets the counters of rejected dispatches. These are shared with all children unless they have their own.
+     * @return The counters
+     */
+    public RejectCounters getRejectCounters() {
+        if(this.rejectCounters != null) return rejectCounters;
+        if(this.parent != null) return parent.getRejectCounters();
+
+        synchronized (this) {
+            if(this.rejectCounters == null) this.rejectCounters = new RejectCounters();
+            return rejectCounters;
+        }
+    }
+
+    /**
+     * Gets the executor that runs tasks on the main server thread.
+     * Used to get back on the main thread after async work, like resolving async arguments.
+     * @return The executor or null if the command has not been registered
+     */
+    public Executor getSyncExecutor() {
+        if(this.syncExecutor != null) return syncExecutor;
+        if(this.parent != null) return parent.getSyncExecutor();
+        return null;
+    }
+
+    /**
+     * Sets the executor that runs tasks on the main server thread for this command and its children.
+     * By default this uses the Bukkit scheduler of the plugin the command is registered with.
+     * @param syncExecutor The executor
+     */
+    public void setSyncExecutor(Executor syncExecutor) {
+        this.syncExecutor = syncExecutor;
+    }
+
+    /**
+     * Gets the executor that runs tasks off the main server thread.
+     * @return The executor or null if the command has not been registered
+     */
+    public Executor getAsyncExecutor() {
+        if(this.asyncExecutor != null) return asyncExecutor;
+        if(this.parent != null) return parent.getAsyncExecutor();
+        return null;
+    }
+
+    /**
+     * Sets the executor that runs tasks off the main server thread for this command and its children.
+     * By default this uses the Bukkit scheduler of the plugin the command is registered with.
+     * @param asyncExecutor The executor
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
     /**
      * Checks if the command has a description set.
      * @return True if a description is available
@@ -323,6 +668,7 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @param alias The new alias
      */
     public void addAlias(String alias) {
+        checkNotFrozen();
         if(this.aliases.contains(alias)) return;
         this.aliases.add(alias);
     }
@@ -332,6 +678,7 @@ public abstract class SimpleCommand implements CommandExecutor, TabCompleter {
      * @param hidden
      */
     public void setHidden(boolean hidden) {
+        checkNotFrozen();
         this.hidden = hidden;
     }
 
@@ -11,18 +11,21 @@ public enum SimpleCommandMessages {
     UNKNOWN_ARGUMENT("&cUnknown command argument:&7 %s"),
     PLAYER_ONLY("&cThis is a player only command."),
     NO_VISIBLE_COMMANDS("&7Commands are present but hidden by the developer."),
-    NO_PERMISSION("&cYou do not have permission to execute this command!");
+    NO_PERMISSION("&cYou do not have permission to execute this command!"),
+    SUPPRESSED_ERRORS("&8(%s similar messages were suppressed)"),
+    NEXT_PAGE("&7Page %s. Type &e/%s&7 for the next page."),
+    NO_NEXT_PAGE("&cThere is no next page.");
 
     private final String key;
-    private String message;
+    private volatile Template template;
 
     SimpleCommandMessages(String message) {
         this.key = name().toLowerCase(Locale.ROOT).replaceAll("_", " ");
-        this.message = message;
+        this.template = new Template(message);
     }
 
     public void setMessage(String message) {
-        this.message = message;
+        this.template = new Template(message);
     }
 
     public String getKey() {
@@ -30,6 +33,47 @@ public enum SimpleCommandMessages {
     }
 
     public String m() {
-        return ChatColor.translateAlternateColorCodes('&', message);
+        return template.translated;
+    }
+
+    /**
+     * Formats the message with the arguments. Gives the same result as String.format(m(), args) but
+     * messages that only use %s are formatted from a precompiled template.
+     * @param args The arguments
+     * @return The formatted message
+     */
+    public String format(Object... args) {
+        Template template = this.template;
+        String[] parts = template.parts;
+        if(parts == null || args.length < parts.length - 1) return String.format(template.translated, args);
+        if(parts.length == 1) return parts[0];
+
+        StringBuilder builder = new StringBuilder(template.translated.length() + 16);
+        builder.append(parts[0]);
+        for(int i = 1; i < parts.length; i++) {
+            builder.append(args[i - 1]).append(parts[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The translated message, split on %s. Other format specifiers are left to String.format.
+     */
+    private static final class Template {
+        private final String translated;
+        private final String[] parts;
+
+        private Template(String message) {
+            this.translated = ChatColor.translateAlternateColorCodes('&', message);
+
+            String[] parts = translated.split("%s", -1);
+            for(String part : parts) {
+                if(part.indexOf('%') != -1) {
+                    parts = null;
+                    break;
+                }
+            }
+            this.parts = parts;
+        }
     }
 }
@@ -1,26 +1,43 @@
 package nl.martenm.simplecommands;
 
+import nl.martenm.simplecommands.misc.BufferedCommandSender;
 import nl.martenm.simplecommands.misc.NameFormat;
+import nl.martenm.simplecommands.paging.PagedMessage;
+import nl.martenm.simplecommands.paging.SimpleNextPageCommand;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class SimpleHelpFormatter implements ISimpleHelpFormatter {
 
     private String header;
 
+    // Paging, only used when a next page command is set.
+    private int pageSize = 0;
+    private SimpleNextPageCommand nextPageCommand = null;
+
     public SimpleHelpFormatter() {
         this.header = "&6&lCommand Help";
     }
 
     /**
-     * Sends the help to the player.
+     * Sends the help to the player as one message instead of a chat packet per line.
      * @param sender The sender that should receive the help page.
      * @param subCommands The commands that are available for this sender.
      */
     @Override
     public void sendHelp(CommandSender sender, List<SimpleCommand> subCommands) {
+        BufferedCommandSender buffered = new BufferedCommandSender(sender);
+        try {
+            sendLines(buffered, subCommands);
+        } finally {
+            buffered.flush();
+        }
+    }
+
+    private void sendLines(CommandSender sender, List<SimpleCommand> subCommands) {
         send(sender, String.format("&7===============[ %s &7]===============", header));
         send(sender, " ");
 
@@ -28,18 +45,41 @@ public class SimpleHelpFormatter implements ISimpleHelpFormatter {
             send(sender, SimpleCommandMessages.NO_VISIBLE_COMMANDS.m());
         }
 
-        for(SimpleCommand cmd : subCommands) {
-            if(cmd.hasDescription()) {
-                send(sender, String.format("&2/&a%s &7- &e%s", cmd.getFullName(NameFormat.ROOT_ALIAS), cmd.getDescription()));
-            } else {
-                send(sender, String.format("&2/&a%s", cmd.getFullName(NameFormat.ROOT_ALIAS)));
-            }
+        // Only render the lines of the first page, the others are rendered when they are requested.
+        if(nextPageCommand != null && subCommands.size() > pageSize) {
+            List<SimpleCommand> commands = new ArrayList<>(subCommands);
+            PagedMessage message = new PagedMessage(commands.stream().map(this::formatLine).iterator(), pageSize);
+            nextPageCommand.send(sender, message);
+            return;
+        }
 
+        for(SimpleCommand cmd : subCommands) {
+            sender.sendMessage(formatLine(cmd));
         }
 
         send(sender, " ");
     }
 
+    private String formatLine(SimpleCommand cmd) {
+        if(cmd.hasDescription()) {
+            return ChatColor.translateAlternateColorCodes('&', String.format("&2/&a%s &7- &e%s", cmd.getFullName(NameFormat.ROOT_ALIAS), cmd.getDescription()));
+        } else {
+            return ChatColor.translateAlternateColorCodes('&', String.format("&2/&a%s", cmd.getFullName(NameFormat.ROOT_ALIAS)));
+        }
+    }
+
+    /**
+     * Splits the help in pages when there are more commands than fit on a page.
+     * The next command should be added to the root so players can request the next page.
+     * @param pageSize The amount of commands per page
+     * @param nextPageCommand The command that sends the next page
+     */
+    public void setPaging(int pageSize, SimpleNextPageCommand nextPageCommand) {
+        if(pageSize <= 0) throw new IllegalArgumentException("The page size should be positive!");
+        this.pageSize = pageSize;
+        this.nextPageCommand = nextPageCommand;
+    }
+
     /**
      * Sets the header name.
      * @param header The new header name.
@@ -0,0 +1,17 @@
+package nl.martenm.simplecommands;
+
+import java.util.Collection;
+
+/**
+ * Generates sub-commands at runtime, see {@link RootCommand#addSubCommandProvider(SubCommandProvider)}.
+ */
+@FunctionalInterface
+public interface SubCommandProvider {
+
+    /**
+     * Gets the sub-commands. Called again after {@link RootCommand#invalidateSubCommands()}.
+     * Returning the same instances again is allowed and avoids constructing them again.
+     * @return The sub-commands
+     */
+    Collection<? extends SimpleCommand> getSubCommands();
+}
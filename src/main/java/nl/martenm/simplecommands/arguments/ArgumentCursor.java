@@ -0,0 +1,76 @@
+package nl.martenm.simplecommands.arguments;
+
+/**
+ * Position in the arguments of a command. Every argument takes the tokens it needs from the cursor,
+ * so one argument can consume several tokens (like the x y z of coordinates).
+ */
+public class ArgumentCursor {
+
+    private final String[] args;
+    private int index;
+
+    /**
+     * Creates a cursor at the first token.
+     * @param args The tokens
+     */
+    public ArgumentCursor(String[] args) {
+        this.args = args;
+        this.index = 0;
+    }
+
+    /**
+     * Checks if there is another token.
+     * @return True if another token is available
+     */
+    public boolean hasNext() {
+        return index < args.length;
+    }
+
+    /**
+     * Gets the next token without consuming it.
+     * @return The token or null if there are no more tokens
+     */
+    public String peek() {
+        return hasNext() ? args[index] : null;
+    }
+
+    /**
+     * Consumes the next token.
+     * @return The token
+     * @throws ParseFailedException If there are no more tokens
+     */
+    public String next() throws ParseFailedException {
+        if(!hasNext()) throw new ParseFailedException("Missing value");
+        return args[index++];
+    }
+
+    /**
+     * Gets the amount of tokens that have not been consumed.
+     * @return The amount of tokens
+     */
+    public int remaining() {
+        return args.length - index;
+    }
+
+    /**
+     * Gets the index of the next token.
+     * @return The index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Joins the tokens from the index up to the cursor, used to show the input of an argument.
+     * @param from The index of the first token
+     * @return The tokens separated by spaces
+     */
+    public String consumedSince(int from) {
+        StringBuilder builder = new StringBuilder();
+        for(int i = from; i < index; i++) {
+            if(i > from) builder.append(' ');
+            builder.append(args[i]);
+        }
+        return builder.toString();
+    }
+}
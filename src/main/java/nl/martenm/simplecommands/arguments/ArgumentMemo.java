@@ -0,0 +1,154 @@
+package nl.martenm.simplecommands.arguments;
+
+import nl.martenm.simplecommands.misc.Ticker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived memo of parse results of one argument, keyed by the input string.
+ * Several commands and completions in the same tick often parse the same input (a player or world name),
+ * with a TTL of one tick (50ms) the lookup is only done once.
+ *
+ * Failures are memoized as well. The memo is bounded, expired entries are dropped when it is full.
+ * @param <T> The class of object the argument returns
+ */
+public class ArgumentMemo<T> {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Ticker ticker;
+
+    private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a new memo.
+     * @param ttlMillis Time in milliseconds a result is reused
+     * @param maxSize The maximum amount of inputs that are remembered
+     */
+    public ArgumentMemo(long ttlMillis, int maxSize) {
+        this(ttlMillis, maxSize, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new memo.
+     * @param ttlMillis Time in milliseconds a result is reused
+     * @param maxSize The maximum amount of inputs that are remembered
+     * @param ticker The time source
+     */
+    public ArgumentMemo(long ttlMillis, int maxSize, Ticker ticker) {
+        if(maxSize <= 0) throw new IllegalArgumentException("The maximum size should be positive!");
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxSize = maxSize;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Gets the memoized result for the input or parses it.
+     * @param argument The argument that parses the input
+     * @param input The input
+     * @return The parsed object
+     * @throws ParseFailedException The (memoized) failure
+     */
+    T parse(SimpleCommandArgument<T> argument, String input) throws ParseFailedException {
+        long now = ticker.read();
+
+        Entry<T> entry = entries.get(input);
+        if(entry != null && now - entry.created < ttlNanos) {
+            hits.increment();
+            return entry.get();
+        }
+        misses.increment();
+
+        try {
+            T value = argument.parseArgument(input);
+            put(input, new Entry<>(value, null, now), now);
+            return value;
+        } catch (NotResolvedException ex) {
+            // The value may be available on the next parse.
+            throw ex;
+        } catch (ParseFailedException ex) {
+            put(input, new Entry<>(null, ex, now), now);
+            throw ex;
+        }
+    }
+
+    private void put(String input, Entry<T> entry, long now) {
+        if(entries.size() >= maxSize && !entries.containsKey(input)) {
+            entries.values().removeIf(old -> now - old.created >= ttlNanos);
+            // Still full within one TTL, start over instead of tracking usage.
+            if(entries.size() >= maxSize) entries.clear();
+        }
+        entries.put(input, entry);
+    }
+
+    /**
+     * Removes all memoized results. The statistics are kept.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the amount of memoized inputs, including expired ones that have not been removed yet.
+     * @return The amount of inputs
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the amount of parses that were answered from the memo.
+     * @return The amount of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the amount of parses that were not memoized.
+     * @return The amount of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the fraction of parses that were answered from the memo.
+     * @return The hit rate between 0 and 1, 0 if nothing was parsed yet
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final ParseFailedException failure;
+        private final long created;
+
+        private Entry(T value, ParseFailedException failure, long created) {
+            this.value = value;
+            this.failure = failure;
+            this.created = created;
+        }
+
+        private T get() throws ParseFailedException {
+            if(failure != null) throw failure;
+            return value;
+        }
+    }
+}
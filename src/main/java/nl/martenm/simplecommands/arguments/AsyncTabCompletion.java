@@ -0,0 +1,30 @@
+package nl.martenm.simplecommands.arguments;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Can be implemented by a {@link SimpleCommandArgument} whose completions are slow, for example
+ * because they come from a database or a large index.
+ *
+ * Bukkit expects tab completions right away. The framework waits up to the deadline for the future,
+ * if it is not done by then the cached completions of the same or a shorter input are used and the result
+ * is cached in the background for the next keystroke.
+ */
+public interface AsyncTabCompletion {
+
+    /**
+     * Called when a tab-completion is being called for. This method should not block.
+     * @param input The input already there
+     * @return A future for the tab completions
+     */
+    CompletableFuture<List<String>> onTabCompletionAsync(String input);
+
+    /**
+     * Gets the time the thread that is completing waits for the future.
+     * @return The deadline in milliseconds
+     */
+    default long getCompletionDeadlineMillis() {
+        return 20;
+    }
+}
@@ -0,0 +1,12 @@
+package nl.martenm.simplecommands.arguments;
+
+/**
+ * Thrown when an async argument is parsed synchronously and its value is not available right away.
+ * Unlike other parse failures this is not memoized, a later parse may find the value.
+ */
+class NotResolvedException extends ParseFailedException {
+
+    NotResolvedException(String message) {
+        super(message);
+    }
+}
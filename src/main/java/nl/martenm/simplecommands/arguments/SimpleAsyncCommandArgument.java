@@ -0,0 +1,134 @@
+package nl.martenm.simplecommands.arguments;
+
+import java.util.concurrent.*;
+
+/**
+ * Argument that is resolved asynchronously, for example when it requires a database lookup.
+ * A {@link SimpleParsedCommand} resolves all async arguments concurrently and calls the command handler
+ * on the main thread once every argument is ready. If one argument fails the others are cancelled.
+ *
+ * Futures should complete exceptionally with a {@link ParseFailedException} if the input cannot be parsed.
+ * @param <T> The class of object this parser will return.
+ */
+public abstract class SimpleAsyncCommandArgument<T> extends SimpleCommandArgument<T> {
+
+    // Shared timer used to time out slow arguments.
+    private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SimpleCommands argument timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long timeoutMillis = 5000;
+
+    public SimpleAsyncCommandArgument(String name) {
+        super(name);
+    }
+
+    public SimpleAsyncCommandArgument(String name, String errorMessage) {
+        super(name, errorMessage);
+    }
+
+    /**
+     * Called when a string needs to be converted into it's object. This method should not block.
+     * @param argument The argument to be converted
+     * @return A future for the object
+     */
+    protected abstract CompletableFuture<T> parseArgumentAsync(String argument);
+
+    /**
+     * Resolves the argument, failing with a {@link ParseFailedException} if it takes longer than the timeout.
+     * The future of {@link #parseArgumentAsync(String)} is cancelled when the returned future times out or is cancelled.
+     * @param argument The argument to be converted
+     * @return A future for the object
+     */
+    public CompletableFuture<T> resolve(String argument) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = TIMEOUTS.schedule(
+                () -> result.completeExceptionally(new ParseFailedException("Timed out")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<T> future;
+        try {
+            future = parseArgumentAsync(argument);
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+
+        future.whenComplete((value, ex) -> {
+            if(ex != null) result.completeExceptionally(unwrap(ex));
+            else result.complete(value);
+        });
+
+        // A result that timed out or was cancelled stops the lookup.
+        CompletableFuture<T> lookup = future;
+        result.whenComplete((value, ex) -> {
+            timeout.cancel(false);
+            lookup.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Non-blocking fallback for callers that need the value right away, like a memo or the warm-up.
+     * This is usually called on the main thread, so it never waits for the lookup: if the value is not available
+     * right away the lookup is cancelled and parsing fails. Use {@link #resolve(String)} to wait for it.
+     * @param argument The argument to be converted
+     * @return A object
+     * @throws ParseFailedException Thrown when parsing is not possible or the value is not available right away
+     */
+    @Override
+    protected T parseArgument(String argument) throws ParseFailedException {
+        CompletableFuture<T> result = resolve(argument);
+        if(!result.isDone()) {
+            // Cancelling the result also stops the lookup and the timeout.
+            result.cancel(false);
+            throw new NotResolvedException("Not available right away");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ParseFailedException(ex);
+        } catch (ExecutionException | CancellationException ex) {
+            throw toParseFailed(ex instanceof ExecutionException ? ex.getCause() : ex);
+        }
+    }
+
+    /**
+     * Gets the time after which resolving this argument fails.
+     * @return The timeout in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Sets the time after which resolving this argument fails.
+     * @param timeoutMillis The timeout in milliseconds
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Converts the failure of a future into the exception that is reported to the sender.
+     * @param ex The failure
+     * @return The parse exception
+     */
+    static ParseFailedException toParseFailed(Throwable ex) {
+        Throwable cause = unwrap(ex);
+        if(cause instanceof ParseFailedException) return (ParseFailedException) cause;
+        if(cause instanceof Exception) return new ParseFailedException((Exception) cause);
+        return new ParseFailedException(cause.toString());
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+}
@@ -1,6 +1,8 @@
 package nl.martenm.simplecommands.arguments;
 
 import nl.martenm.simplecommands.SimpleCommandMessages;
+import nl.martenm.simplecommands.completion.AsyncCompletions;
+import nl.martenm.simplecommands.misc.Ticker;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 
@@ -17,6 +19,12 @@ public abstract class SimpleCommandArgument<T> {
     private final String name;
     private final String errorMessage;
 
+    // Opt-in memo of parse results, null when disabled.
+    private volatile ArgumentMemo<T> memo = null;
+
+    // Cached results of async completions, created when first used.
+    private volatile AsyncCompletions asyncCompletions = null;
+
     /**
      * Simple constructor with the default error message.
      * @param name The name of this argument. Eg: target, id
@@ -45,6 +53,73 @@ public abstract class SimpleCommandArgument<T> {
      */
     protected abstract T parseArgument(String argument) throws ParseFailedException;
 
+    /**
+     * Parses the argument, using the memo if it is enabled.
+     * @param argument The argument to be converted
+     * @return A object
+     * @throws ParseFailedException Thrown when parsing is not possible
+     */
+    public T parse(String argument) throws ParseFailedException {
+        ArgumentMemo<T> memo = this.memo;
+        if(memo == null) return parseArgument(argument);
+        return memo.parse(this, argument);
+    }
+
+    /**
+     * Parses the argument from the tokens at the cursor. Most arguments consume a single token, arguments that
+     * consume more should override this together with {@link #getTokenCount()}.
+     * @param sender The sender of the command
+     * @param cursor The cursor, positioned at the first token of this argument
+     * @return A object
+     * @throws ParseFailedException Thrown when parsing is not possible
+     */
+    public T parse(CommandSender sender, ArgumentCursor cursor) throws ParseFailedException {
+        return parse(cursor.next());
+    }
+
+    /**
+     * Gets the amount of tokens this argument consumes.
+     * @return The amount of tokens
+     */
+    public int getTokenCount() {
+        return 1;
+    }
+
+    /**
+     * Remembers parse results for a short time. Use a TTL of 50ms to only share results within one tick.
+     * Only enable this for arguments whose result does not depend on who is parsing it.
+     * @param ttlMillis Time in milliseconds a result is reused
+     * @param maxSize The maximum amount of inputs that are remembered
+     */
+    public void enableMemo(long ttlMillis, int maxSize) {
+        enableMemo(ttlMillis, maxSize, Ticker.SYSTEM);
+    }
+
+    /**
+     * Remembers parse results for a short time, measured with the given time source.
+     * @param ttlMillis Time in milliseconds a result is reused
+     * @param maxSize The maximum amount of inputs that are remembered
+     * @param ticker The time source
+     */
+    public void enableMemo(long ttlMillis, int maxSize, Ticker ticker) {
+        this.memo = new ArgumentMemo<>(ttlMillis, maxSize, ticker);
+    }
+
+    /**
+     * Disables the memo of this argument.
+     */
+    public void disableMemo() {
+        this.memo = null;
+    }
+
+    /**
+     * Gets the memo of this argument, which reports the hit rate.
+     * @return The memo or null if it is not enabled
+     */
+    public ArgumentMemo<T> getMemo() {
+        return memo;
+    }
+
     /**
      * Called when a tab-completion is being called for.
      * @param input The input already there
@@ -54,6 +129,57 @@ public abstract class SimpleCommandArgument<T> {
         return Collections.singletonList(ChatColor.AQUA + this.getName() + ChatColor.RESET);
     }
 
+    /**
+     * Gets an input this argument parses successfully. Used by the {@link nl.martenm.simplecommands.CommandWarmup}.
+     * @param component The index of the token within this argument
+     * @return The input or null if no valid input is known
+     */
+    public String exampleInput(int component) {
+        return null;
+    }
+
+    /**
+     * Gets the tab completions for the input. Arguments implementing {@link AsyncTabCompletion} are waited
+     * for until their deadline, after which cached completions are used.
+     * @param input The input already there
+     * @return A list of tab completions
+     */
+    public List<String> complete(String input) {
+        if(!(this instanceof AsyncTabCompletion)) return onTabCompletion(input);
+
+        AsyncTabCompletion async = (AsyncTabCompletion) this;
+        return getAsyncCompletions().complete(input, async::onTabCompletionAsync, async.getCompletionDeadlineMillis());
+    }
+
+    /**
+     * Gets the tab completions for one of the tokens of this argument.
+     * @param sender The sender
+     * @param component The index of the token within this argument
+     * @param input The input already there
+     * @return A list of tab completions
+     */
+    public List<String> complete(CommandSender sender, int component, String input) {
+        return complete(input);
+    }
+
+    /**
+     * Gets the cache of async completions of this argument.
+     * @return The cache
+     */
+    public AsyncCompletions getAsyncCompletions() {
+        AsyncCompletions completions = this.asyncCompletions;
+        if(completions == null) {
+            synchronized (this) {
+                completions = this.asyncCompletions;
+                if(completions == null) {
+                    completions = new AsyncCompletions(256);
+                    this.asyncCompletions = completions;
+                }
+            }
+        }
+        return completions;
+    }
+
     /**
      * The error to be send to the user when the parsing is unsuccessful.
      * @param sender The command executor
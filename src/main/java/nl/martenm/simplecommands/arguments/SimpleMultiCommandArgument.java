@@ -0,0 +1,99 @@
+package nl.martenm.simplecommands.arguments;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Argument that consumes a fixed amount of tokens, like the x y z of coordinates.
+ * Each token is a component with its own name, tab completion follows the component the cursor is at.
+ * @param <T> The class of object this parser will return.
+ */
+public abstract class SimpleMultiCommandArgument<T> extends SimpleCommandArgument<T> {
+
+    private final String[] components;
+
+    /**
+     * Creates an argument with the default error message.
+     * @param name The name of this argument. Eg: location
+     * @param components The names of the tokens. Eg: x, y, z
+     */
+    public SimpleMultiCommandArgument(String name, String[] components) {
+        super(name);
+        this.components = components.clone();
+    }
+
+    /**
+     * Creates an argument with a custom error message.
+     * @param name The name of this argument. Eg: location
+     * @param errorMessage Error message
+     * @param components The names of the tokens. Eg: x, y, z
+     */
+    public SimpleMultiCommandArgument(String name, String errorMessage, String[] components) {
+        super(name, errorMessage);
+        this.components = components.clone();
+    }
+
+    /**
+     * Called when the tokens need to be converted into the object.
+     * @param sender The sender of the command, null when parsed without one
+     * @param tokens The tokens, one for every component
+     * @return A object
+     * @throws ParseFailedException Thrown when parsing is not possible
+     */
+    protected abstract T parseTokens(CommandSender sender, String[] tokens) throws ParseFailedException;
+
+    @Override
+    public T parse(CommandSender sender, ArgumentCursor cursor) throws ParseFailedException {
+        String[] tokens = new String[components.length];
+        for(int i = 0; i < tokens.length; i++) {
+            tokens[i] = cursor.next();
+        }
+        return parseTokens(sender, tokens);
+    }
+
+    /**
+     * Parses the tokens separated by spaces, without a sender.
+     * @param argument The argument to be converted
+     * @return A object
+     * @throws ParseFailedException Thrown when parsing is not possible
+     */
+    @Override
+    protected T parseArgument(String argument) throws ParseFailedException {
+        String[] tokens = argument.split(" ");
+        if(tokens.length != components.length) throw new ParseFailedException(String.format("Expected %d values", components.length));
+        return parseTokens(null, tokens);
+    }
+
+    @Override
+    public int getTokenCount() {
+        return components.length;
+    }
+
+    /**
+     * Gets the name of a component.
+     * @param component The index of the component
+     * @return The name
+     */
+    public String getComponentName(int component) {
+        return components[component];
+    }
+
+    @Override
+    public List<String> complete(CommandSender sender, int component, String input) {
+        return onTabCompletion(sender, component, input);
+    }
+
+    /**
+     * Called when a tab-completion is being called for one of the components.
+     * @param sender The sender
+     * @param component The index of the component
+     * @param input The input already there
+     * @return A list of tab completions
+     */
+    protected List<String> onTabCompletion(CommandSender sender, int component, String input) {
+        return Collections.singletonList(ChatColor.AQUA + components[component] + ChatColor.RESET);
+    }
+}
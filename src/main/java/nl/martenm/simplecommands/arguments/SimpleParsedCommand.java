@@ -2,12 +2,16 @@ package nl.martenm.simplecommands.arguments;
 
 import nl.martenm.simplecommands.SimpleCommand;
 import nl.martenm.simplecommands.SimpleCommandMessages;
+import nl.martenm.simplecommands.completion.CompletionCache;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class SimpleParsedCommand extends SimpleCommand {
 
@@ -32,25 +36,56 @@ public abstract class SimpleParsedCommand extends SimpleCommand {
         this.arguments.add(argument);
     }
 
+    /**
+     * Gets the arguments of this command in the order they are parsed.
+     * @return The arguments
+     */
+    public List<SimpleCommandArgument> getArguments() {
+        return Collections.unmodifiableList(arguments);
+    }
+
     @Override
     public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
         // Pre checks;
-        if(arguments.size() > args.length) {
-            String missing = arguments.stream().skip(args.length).map(SimpleCommandArgument::getName).collect(Collectors.joining(", "));
-            sender.sendMessage(String.format(SimpleCommandMessages.MISSING_ARGUMENTS.m(), missing));
+        if(getTokenCount() > args.length) {
+            List<String> missing = new ArrayList<>();
+            int tokens = 0;
+            for(SimpleCommandArgument argument : arguments) {
+                tokens += argument.getTokenCount();
+                if(tokens > args.length) missing.add(argument.getName());
+            }
+            reject(sender, SimpleCommandMessages.MISSING_ARGUMENTS, String.join(", ", missing));
             return true;
         }
 
-        // Parse the arguments
+        // Parse the arguments. Every argument takes its tokens from the cursor.
+        // Async arguments are started here and resolved concurrently.
+        ArgumentCursor cursor = new ArgumentCursor(args);
         List<Object> parsedArguments = new ArrayList<>();
+        CompletableFuture<?>[] pending = null;
+        String[] inputs = null;
 
         for(int i = 0; i < arguments.size(); i++) {
             SimpleCommandArgument parser = arguments.get(i);
+            int start = cursor.getIndex();
+
             Object parsed = null;
             try {
-                parsed = parser.parseArgument(args[i]);
+                if(parser instanceof SimpleAsyncCommandArgument) {
+                    if(pending == null) {
+                        pending = new CompletableFuture<?>[arguments.size()];
+                        inputs = new String[arguments.size()];
+                    }
+                    inputs[i] = cursor.next();
+                    pending[i] = ((SimpleAsyncCommandArgument<?>) parser).resolve(inputs[i]);
+                    parsedArguments.add(null);
+                    continue;
+                }
+
+                parsed = parser.parse(sender, cursor);
             } catch (ParseFailedException e) {
-                parser.sendError(sender, args[i], e);
+                cancel(pending);
+                parser.sendError(sender, cursor.consumedSince(start), e);
                 return true;
             }
 
@@ -60,7 +95,101 @@ public abstract class SimpleParsedCommand extends SimpleCommand {
         }
 
         // Call onArgumentCommand.
-        return onArgumentCommand(sender, command, s, args, parsedArguments);
+        if(pending == null) return onArgumentCommand(sender, command, s, args, parsedArguments);
+
+        resolveAsync(sender, command, s, args, parsedArguments, pending, inputs);
+        return true;
+    }
+
+    /**
+     * Parses the arguments like {@link #onCommand} without calling the handler.
+     * Async arguments are left out, resolving them could do real lookups.
+     */
+    @Override
+    protected void warmUp(CommandSender sender, Command command, String s, String[] args) {
+        ArgumentCursor cursor = new ArgumentCursor(args);
+        for(SimpleCommandArgument<?> parser : arguments) {
+            int start = cursor.getIndex();
+            try {
+                if(parser instanceof SimpleAsyncCommandArgument) {
+                    cursor.next();
+                    continue;
+                }
+                parser.parse(sender, cursor);
+            } catch (ParseFailedException e) {
+                parser.sendError(sender, cursor.consumedSince(start), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of tokens all arguments consume together.
+     * @return The amount of tokens
+     */
+    public int getTokenCount() {
+        int tokens = 0;
+        for(SimpleCommandArgument argument : arguments) {
+            tokens += argument.getTokenCount();
+        }
+        return tokens;
+    }
+
+    /**
+     * Waits for all async arguments and calls the handler on the main thread.
+     * The first argument that fails cancels the others and its error is sent instead. A failure that is not a
+     * {@link ParseFailedException} is a bug in the argument and is rethrown on the main thread.
+     */
+    private void resolveAsync(CommandSender sender, Command command, String s, String[] args, List<Object> parsedArguments, CompletableFuture<?>[] pending, String[] inputs) {
+        Executor syncExecutor = getSyncExecutor();
+        if(syncExecutor == null) {
+            cancel(pending);
+            throw new RuntimeException(String.format("The command %s has async arguments but no sync executor. Register the command first!", getFullName()));
+        }
+
+        AtomicInteger remaining = new AtomicInteger((int) Arrays.stream(pending).filter(Objects::nonNull).count());
+        AtomicBoolean done = new AtomicBoolean();
+
+        for(int i = 0; i < pending.length; i++) {
+            if(pending[i] == null) continue;
+
+            int index = i;
+            pending[i].whenComplete((value, failure) -> {
+                if(failure == null && remaining.decrementAndGet() > 0) return;
+                if(!done.compareAndSet(false, true)) return;
+
+                if(failure == null) {
+                    syncExecutor.execute(() -> {
+                        for(int j = 0; j < pending.length; j++) {
+                            if(pending[j] == null) continue;
+
+                            Object parsed = pending[j].join();
+                            if (parsed == null) throw new RuntimeException("Parsed value returned null");
+                            parsedArguments.set(j, parsed);
+                        }
+                        onArgumentCommand(sender, command, s, args, parsedArguments);
+                    });
+                    return;
+                }
+
+                // The handler will not run, the other lookups are no longer needed.
+                cancel(pending);
+                syncExecutor.execute(() -> {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                    if(!(cause instanceof ParseFailedException)) {
+                        throw new RuntimeException(String.format("Resolving %s of the command %s failed!", arguments.get(index).getName(), getFullName()), cause);
+                    }
+                    arguments.get(index).sendError(sender, inputs[index], (ParseFailedException) cause);
+                });
+            });
+        }
+    }
+
+    private static void cancel(CompletableFuture<?>[] pending) {
+        if(pending == null) return;
+        for(CompletableFuture<?> future : pending) {
+            if(future != null) future.cancel(true);
+        }
     }
 
     /**
@@ -76,12 +205,28 @@ public abstract class SimpleParsedCommand extends SimpleCommand {
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String s, String[] args) {
-        // Get the correct parser
-        if(args.length >= this.arguments.size()) return new ArrayList<>();
+        if(args.length == 0) return new ArrayList<>();
+
+        // Follow the tokens of the arguments to the one that is being completed.
+        int index = args.length - 1;
+        String current = args[index];
+        int tokens = 0;
+
+        for(SimpleCommandArgument<?> parser : arguments) {
+            int count = parser.getTokenCount();
+            if(index >= tokens + count) {
+                tokens += count;
+                continue;
+            }
+
+            int component = index - tokens;
+
+            // Async completions have their own cache, partial results should not be narrowed.
+            CompletionCache cache = getCompletionCache();
+            if(cache == null || parser instanceof AsyncTabCompletion) return parser.complete(sender, component, current);
+            return cache.complete(sender, getFullName(), index, current, prefix -> parser.complete(sender, component, prefix));
+        }
 
-        String current = args[args.length - 1];
-        SimpleCommandArgument parser = this.arguments.get(args.length - 1);
-        if(parser == null) return new ArrayList<>();
-        return parser.onTabCompletion(current);
+        return new ArrayList<>();
     }
 }
@@ -0,0 +1,283 @@
+package nl.martenm.simplecommands.arguments.players;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In memory index of player names to unique ids, used to resolve offline players without asking Bukkit
+ * (which may do a blocking lookup) for every argument or tab completion.
+ *
+ * The index is filled from the usercache.json of the server and the players Bukkit knows of, and is kept
+ * up to date by listening for joins, see {@link #register(Plugin)}.
+ * Names are stored in one sorted array with the unique ids in two long arrays, so a lookup is a binary search
+ * and a prefix completion is a range of the array. Joins of new or renamed players are kept in a small sorted
+ * map that is merged into the arrays once it grows too large. Until then a record of the arrays whose player has a
+ * newer pending name is skipped, so an old name never resolves to a player that was renamed.
+ */
+public class OfflinePlayerIndex implements Listener {
+
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER;
+    private static final int MERGE_THRESHOLD = 256;
+
+    private volatile Data data = new Data(new String[0], new long[0], new long[0]);
+    private final ConcurrentSkipListMap<String, Record> pending = new ConcurrentSkipListMap<>(ORDER);
+
+    // The pending name of each player in pending. Changed together with pending while holding the lock of the index.
+    private final Map<UUID, String> pendingNames = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the index as listener so players are added when they join.
+     * @param plugin The plugin
+     */
+    public void register(Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Loads the usercache.json of the server and the players Bukkit knows of.
+     * This reads from disk and should not be called on the main thread.
+     * @throws IOException If the user cache could not be read
+     */
+    public void load() throws IOException {
+        File container = Bukkit.getWorldContainer();
+        File userCache = new File(container == null ? new File(".") : container, "usercache.json");
+        if(!userCache.isFile()) userCache = new File("usercache.json");
+        if(userCache.isFile()) load(userCache);
+
+        OfflinePlayer[] players = Bukkit.getOfflinePlayers();
+        if(players == null) return;
+
+        List<Record> records = new ArrayList<>();
+        for(OfflinePlayer player : players) {
+            String name = player.getName();
+            if(name != null && lookup(name) == null) records.add(new Record(name, player.getUniqueId()));
+        }
+        addAll(records);
+    }
+
+    /**
+     * Loads the entries of a user cache file. Entries that are already known keep their current name.
+     * @param userCache The usercache.json file
+     * @throws IOException If the file could not be read
+     */
+    public void load(File userCache) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(userCache.toPath(), StandardCharsets.UTF_8)) {
+            JsonElement root = new JsonParser().parse(reader);
+            if(!root.isJsonArray()) throw new IOException(String.format("%s does not contain a list of players!", userCache.getName()));
+
+            for(JsonElement element : root.getAsJsonArray()) {
+                if(!element.isJsonObject()) continue;
+                JsonObject entry = element.getAsJsonObject();
+                if(!entry.has("name") || !entry.has("uuid")) continue;
+
+                try {
+                    records.add(new Record(entry.get("name").getAsString(), UUID.fromString(entry.get("uuid").getAsString())));
+                } catch (IllegalArgumentException ex) {
+                    // Skip broken entries.
+                }
+            }
+        } catch (RuntimeException ex) {
+            throw new IOException(String.format("Could not read %s", userCache.getName()), ex);
+        }
+
+        // Known players may have been renamed since the cache was written.
+        records.removeIf(record -> lookup(record.name) != null);
+        addAll(records);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        add(player.getName(), player.getUniqueId());
+    }
+
+    /**
+     * Adds a player or updates the name of a player.
+     * @param name The name
+     * @param uuid The unique id
+     */
+    public void add(String name, UUID uuid) {
+        if(uuid.equals(lookup(name)) && name.equals(getName(name))) return;
+
+        put(new Record(name, uuid));
+        if(pending.size() > MERGE_THRESHOLD) merge();
+    }
+
+    /**
+     * Adds a record to the pending players. An older pending name of the same player is removed.
+     */
+    private synchronized void put(Record record) {
+        String previous = pendingNames.put(record.uuid, record.name);
+        if(previous != null) pending.computeIfPresent(previous, (key, old) -> old.uuid.equals(record.uuid) ? null : old);
+
+        // The name may have belonged to a different player.
+        Record replaced = pending.put(record.name, record);
+        if(replaced != null && !replaced.uuid.equals(record.uuid)) pendingNames.remove(replaced.uuid, replaced.name);
+    }
+
+    /**
+     * Checks if the player of a record of the arrays has a newer name that is not merged yet.
+     */
+    private boolean isRenamed(Data data, int index) {
+        if(pendingNames.isEmpty()) return false;
+
+        String name = pendingNames.get(new UUID(data.most[index], data.least[index]));
+        return name != null && !name.equalsIgnoreCase(data.names[index]);
+    }
+
+    /**
+     * Looks up the unique id of a player name. The name is not case sensitive.
+     * @param name The name
+     * @return The unique id or null if the name is not known
+     */
+    public UUID lookup(String name) {
+        Record record = pending.get(name);
+        if(record != null) return record.uuid;
+
+        Data data = this.data;
+        int index = Arrays.binarySearch(data.names, name, ORDER);
+        if(index < 0 || isRenamed(data, index)) return null;
+        return new UUID(data.most[index], data.least[index]);
+    }
+
+    /**
+     * Gets the name with the correct case.
+     * @param name The name in any case
+     * @return The name or null if the name is not known
+     */
+    public String getName(String name) {
+        Record record = pending.get(name);
+        if(record != null) return record.name;
+
+        Data data = this.data;
+        int index = Arrays.binarySearch(data.names, name, ORDER);
+        return index < 0 || isRenamed(data, index) ? null : data.names[index];
+    }
+
+    /**
+     * Completes a name. The prefix is not case sensitive.
+     * @param prefix The start of the name
+     * @param limit The maximum amount of names
+     * @return The matching names in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        Data data = this.data;
+        int start = Arrays.binarySearch(data.names, prefix, ORDER);
+        if(start < 0) start = -start - 1;
+
+        TreeSet<String> names = new TreeSet<>(ORDER);
+        for(int i = start; i < data.names.length && names.size() < limit; i++) {
+            if(!data.names[i].regionMatches(true, 0, prefix, 0, prefix.length())) break;
+            if(!isRenamed(data, i)) names.add(data.names[i]);
+        }
+
+        for(Record record : pending.tailMap(prefix).values()) {
+            if(!record.name.regionMatches(true, 0, prefix, 0, prefix.length())) break;
+            names.remove(record.name);
+            names.add(record.name);
+        }
+
+        List<String> completions = new ArrayList<>(limit);
+        for(String name : names) {
+            if(completions.size() >= limit) break;
+            completions.add(name);
+        }
+        return completions;
+    }
+
+    /**
+     * @return The amount of names in the index
+     */
+    public int size() {
+        merge();
+        return data.names.length;
+    }
+
+    private void addAll(List<Record> records) {
+        for(Record record : records) {
+            put(record);
+        }
+        merge();
+    }
+
+    /**
+     * Merges the pending players into the arrays. A renamed player is only kept under the new name.
+     */
+    private synchronized void merge() {
+        if(pending.isEmpty()) return;
+
+        Map<String, Record> added = new TreeMap<>(ORDER);
+        Set<UUID> renamed = new HashSet<>();
+        for(Record record : pending.values()) {
+            added.put(record.name, record);
+            renamed.add(record.uuid);
+        }
+
+        Data data = this.data;
+        TreeMap<String, Record> merged = new TreeMap<>(ORDER);
+        for(int i = 0; i < data.names.length; i++) {
+            UUID uuid = new UUID(data.most[i], data.least[i]);
+            if(!renamed.contains(uuid)) merged.put(data.names[i], new Record(data.names[i], uuid));
+        }
+        merged.putAll(added);
+
+        int size = merged.size();
+        String[] names = new String[size];
+        long[] most = new long[size];
+        long[] least = new long[size];
+        int i = 0;
+        for(Record record : merged.values()) {
+            names[i] = record.name;
+            most[i] = record.uuid.getMostSignificantBits();
+            least[i] = record.uuid.getLeastSignificantBits();
+            i++;
+        }
+
+        this.data = new Data(names, most, least);
+        for(Record record : added.values()) {
+            pending.remove(record.name, record);
+            pendingNames.remove(record.uuid, record.name);
+        }
+    }
+
+    private static final class Data {
+        final String[] names;
+        final long[] most;
+        final long[] least;
+
+        Data(String[] names, long[] most, long[] least) {
+            this.names = names;
+            this.most = most;
+            this.least = least;
+        }
+    }
+
+    private static final class Record {
+        final String name;
+        final UUID uuid;
+
+        Record(String name, UUID uuid) {
+            this.name = name;
+            this.uuid = uuid;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package nl.martenm.simplecommands.arguments.prefab;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Immutable x y z coordinates, parsed by {@link SimpleArgumentCoordinates}.
+ */
+public final class Coordinates {
+
+    public final double x;
+    public final double y;
+    public final double z;
+
+    public Coordinates(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Creates a location at these coordinates.
+     * @param world The world
+     * @return The location
+     */
+    public Location toLocation(World world) {
+        return new Location(world, x, y, z);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof Coordinates)) return false;
+        Coordinates other = (Coordinates) o;
+        return Double.compare(x, other.x) == 0 && Double.compare(y, other.y) == 0 && Double.compare(z, other.z) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(x);
+        result = 31 * result + Double.hashCode(y);
+        return 31 * result + Double.hashCode(z);
+    }
+
+    @Override
+    public String toString() {
+        return x + " " + y + " " + z;
+    }
+}
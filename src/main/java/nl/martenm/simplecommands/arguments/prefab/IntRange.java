@@ -0,0 +1,42 @@
+package nl.martenm.simplecommands.arguments.prefab;
+
+/**
+ * Immutable inclusive range of integers, parsed by {@link SimpleArgumentRange}.
+ */
+public final class IntRange {
+
+    public final int min;
+    public final int max;
+
+    public IntRange(int min, int max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Checks if the value is in this range.
+     * @param value The value
+     * @return True if min &lt;= value &lt;= max
+     */
+    public boolean contains(int value) {
+        return value >= min && value <= max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof IntRange)) return false;
+        IntRange other = (IntRange) o;
+        return min == other.min && max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * min + max;
+    }
+
+    @Override
+    public String toString() {
+        return min + " " + max;
+    }
+}
@@ -0,0 +1,76 @@
+package nl.martenm.simplecommands.arguments.prefab;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleMultiCommandArgument;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses x y z coordinates. Coordinates starting with ~ are relative to the location of the sender,
+ * for example ~ ~10 ~-5.
+ */
+public class SimpleArgumentCoordinates extends SimpleMultiCommandArgument<Coordinates> {
+
+    private static final String[] COMPONENTS = {"x", "y", "z"};
+
+    public SimpleArgumentCoordinates(String name) {
+        super(name, COMPONENTS);
+    }
+
+    public SimpleArgumentCoordinates(String name, String errorMessage) {
+        super(name, errorMessage, COMPONENTS);
+    }
+
+    @Override
+    protected Coordinates parseTokens(CommandSender sender, String[] tokens) throws ParseFailedException {
+        Location base = getLocation(sender);
+        return new Coordinates(
+                parseComponent(tokens[0], base == null ? null : base.getX()),
+                parseComponent(tokens[1], base == null ? null : base.getY()),
+                parseComponent(tokens[2], base == null ? null : base.getZ()));
+    }
+
+    private double parseComponent(String token, Double base) throws ParseFailedException {
+        try {
+            if(!token.startsWith("~")) return Double.parseDouble(token);
+
+            if(base == null) throw new ParseFailedException("Relative coordinates need a location");
+            if(token.length() == 1) return base;
+            return base + Double.parseDouble(token.substring(1));
+        } catch (NumberFormatException ex) {
+            throw new ParseFailedException(ex);
+        }
+    }
+
+    @Override
+    protected List<String> onTabCompletion(CommandSender sender, int component, String input) {
+        List<String> completions = new ArrayList<>();
+        completions.add("~");
+
+        Location location = getLocation(sender);
+        if(location != null) {
+            switch (component) {
+                case 0: completions.add(String.valueOf(location.getBlockX())); break;
+                case 1: completions.add(String.valueOf(location.getBlockY())); break;
+                default: completions.add(String.valueOf(location.getBlockZ())); break;
+            }
+        }
+
+        completions.removeIf(completion -> !completion.startsWith(input));
+        return completions;
+    }
+
+    @Override
+    public String exampleInput(int component) {
+        return "0";
+    }
+
+    private static Location getLocation(CommandSender sender) {
+        if(sender instanceof Entity) return ((Entity) sender).getLocation();
+        return null;
+    }
+}
@@ -25,4 +25,9 @@ public class SimpleArgumentDouble extends SimpleCommandArgument<Double> {
 
         return d;
     }
+
+    @Override
+    public String exampleInput(int component) {
+        return "1.5";
+    }
 }
@@ -0,0 +1,123 @@
+package nl.martenm.simplecommands.arguments.prefab;
+
+import nl.martenm.simplecommands.arguments.ArgumentCursor;
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import nl.martenm.simplecommands.arguments.selector.EntitySelector;
+import nl.martenm.simplecommands.arguments.selector.WorldSnapshots;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Parses an entity selector (@a, @p, @r, @s, @e[...]) or a player name into a list of entities.
+ * All selectors resolved in the same tick share one snapshot of each world, see {@link WorldSnapshots}.
+ * Register the shared snapshots once with {@link WorldSnapshots#register} so they follow the server ticks.
+ * Player names are looked up in the online players, no snapshot is taken for them.
+ *
+ * Like vanilla, selectors require the {@link #SELECTOR_PERMISSION} permission, see {@link #canUseSelectors(CommandSender)}.
+ */
+public class SimpleArgumentEntities extends SimpleCommandArgument<List<Entity>> {
+
+    public static final String SELECTOR_PERMISSION = "minecraft.command.selector";
+
+    private static final List<String> SELECTORS = Arrays.asList("@a", "@p", "@r", "@s", "@e");
+
+    private final boolean playersOnly;
+    private final WorldSnapshots snapshots;
+    private final Supplier<Collection<? extends Player>> players;
+
+    public SimpleArgumentEntities(String name, boolean playersOnly) {
+        this(name, playersOnly, WorldSnapshots.shared(), Bukkit::getOnlinePlayers);
+    }
+
+    public SimpleArgumentEntities(String name, boolean playersOnly, WorldSnapshots snapshots) {
+        this(name, playersOnly, snapshots, Bukkit::getOnlinePlayers);
+    }
+
+    /**
+     * @param name The name of the argument
+     * @param playersOnly True if only players may be selected
+     * @param snapshots The world snapshots used by selectors
+     * @param players Supplies the online players, used for player names
+     */
+    public SimpleArgumentEntities(String name, boolean playersOnly, WorldSnapshots snapshots, Supplier<Collection<? extends Player>> players) {
+        super(name, "&cError for: &7%name%&c. &7%input%&c: %reason%");
+        this.playersOnly = playersOnly;
+        this.snapshots = snapshots;
+        this.players = players;
+    }
+
+    /**
+     * Checks if the sender may use selectors. Override this to use a different permission.
+     * @param sender The sender
+     * @return True if allowed
+     */
+    protected boolean canUseSelectors(CommandSender sender) {
+        return sender.hasPermission(SELECTOR_PERMISSION);
+    }
+
+    @Override
+    public List<Entity> parse(CommandSender sender, ArgumentCursor cursor) throws ParseFailedException {
+        String input = cursor.next();
+        if(!EntitySelector.isSelector(input)) return parse(input);
+        if(!canUseSelectors(sender)) throw new ParseFailedException("You are not allowed to use selectors");
+
+        EntitySelector selector = EntitySelector.compile(input);
+        if(playersOnly && selector.canSelectNonPlayers()) throw new ParseFailedException("Only players can be selected");
+
+        List<Entity> selected = selector.select(sender, snapshots);
+        if(playersOnly) selected.removeIf(entity -> !(entity instanceof Player));
+        if(selected.isEmpty()) throw new ParseFailedException("No entities were found");
+        return selected;
+    }
+
+    /**
+     * Parses a player name. Selectors need a sender and are only supported through the cursor.
+     */
+    @Override
+    protected List<Entity> parseArgument(String argument) throws ParseFailedException {
+        if(EntitySelector.isSelector(argument)) throw new ParseFailedException("Selectors need a sender");
+
+        for(Player player : players.get()) {
+            if(player.getName().equalsIgnoreCase(argument)) {
+                List<Entity> selected = new ArrayList<>();
+                selected.add(player);
+                return selected;
+            }
+        }
+        throw new ParseFailedException("Player could not be found!");
+    }
+
+    /**
+     * Only suggests selectors to senders that may use them.
+     */
+    @Override
+    public List<String> complete(CommandSender sender, int component, String input) {
+        List<String> completions = new ArrayList<>(complete(input));
+        if(!canUseSelectors(sender)) completions.removeIf(EntitySelector::isSelector);
+        return completions;
+    }
+
+    @Override
+    public List<String> onTabCompletion(String input) {
+        List<String> completions = SELECTORS.stream()
+                .filter(selector -> !playersOnly || !selector.equals("@e"))
+                .filter(selector -> selector.startsWith(input))
+                .collect(Collectors.toList());
+
+        for(Player player : players.get()) {
+            String name = player.getName();
+            if(name.startsWith(input)) completions.add(name);
+        }
+        return completions;
+    }
+}
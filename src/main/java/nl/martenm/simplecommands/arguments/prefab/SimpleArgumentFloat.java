@@ -25,4 +25,9 @@ public class SimpleArgumentFloat extends SimpleCommandArgument<Float> {
 
         return f;
     }
+
+    @Override
+    public String exampleInput(int component) {
+        return "1.5";
+    }
 }
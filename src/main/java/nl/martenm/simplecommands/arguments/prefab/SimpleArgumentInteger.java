@@ -25,4 +25,9 @@ public class SimpleArgumentInteger extends SimpleCommandArgument<Integer> {
 
         return integer;
     }
+
+    @Override
+    public String exampleInput(int component) {
+        return "1";
+    }
 }
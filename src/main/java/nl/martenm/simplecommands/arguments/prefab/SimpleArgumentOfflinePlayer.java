@@ -0,0 +1,53 @@
+package nl.martenm.simplecommands.arguments.prefab;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import nl.martenm.simplecommands.arguments.players.OfflinePlayerIndex;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Parses the name of a player that has played on the server, online or not.
+ * Names are resolved using an {@link OfflinePlayerIndex} so no blocking lookups are done.
+ */
+public class SimpleArgumentOfflinePlayer extends SimpleCommandArgument<OfflinePlayer> {
+
+    private static final int COMPLETION_LIMIT = 100;
+
+    private final OfflinePlayerIndex index;
+    private final Function<UUID, OfflinePlayer> resolver;
+
+    public SimpleArgumentOfflinePlayer(String name, OfflinePlayerIndex index) {
+        this(name, index, Bukkit::getOfflinePlayer);
+    }
+
+    /**
+     * @param name The name of the argument
+     * @param index The index used to look up names
+     * @param resolver Gets the offline player of a unique id
+     */
+    public SimpleArgumentOfflinePlayer(String name, OfflinePlayerIndex index, Function<UUID, OfflinePlayer> resolver) {
+        super(name, "&cError for: &7%name%&c. The player &7%input%&c has never played on this server.");
+        this.index = index;
+        this.resolver = resolver;
+    }
+
+    @Override
+    protected OfflinePlayer parseArgument(String argument) throws ParseFailedException {
+        UUID uuid = index.lookup(argument);
+        if(uuid == null) {
+            throw new ParseFailedException("Player could not be found!");
+        }
+
+        return resolver.apply(uuid);
+    }
+
+    @Override
+    public List<String> onTabCompletion(String input) {
+        return index.complete(input, COMPLETION_LIMIT);
+    }
+}
@@ -0,0 +1,41 @@
+package nl.martenm.simplecommands.arguments.prefab;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleMultiCommandArgument;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Parses a min max range of integers.
+ */
+public class SimpleArgumentRange extends SimpleMultiCommandArgument<IntRange> {
+
+    private static final String[] COMPONENTS = {"min", "max"};
+
+    public SimpleArgumentRange(String name) {
+        super(name, COMPONENTS);
+    }
+
+    public SimpleArgumentRange(String name, String errorMessage) {
+        super(name, errorMessage, COMPONENTS);
+    }
+
+    @Override
+    protected IntRange parseTokens(CommandSender sender, String[] tokens) throws ParseFailedException {
+        int min;
+        int max;
+        try {
+            min = Integer.parseInt(tokens[0]);
+            max = Integer.parseInt(tokens[1]);
+        } catch (NumberFormatException ex) {
+            throw new ParseFailedException(ex);
+        }
+
+        if(min > max) throw new ParseFailedException("The minimum is larger than the maximum");
+        return new IntRange(min, max);
+    }
+
+    @Override
+    public String exampleInput(int component) {
+        return component == 0 ? "1" : "5";
+    }
+}
@@ -17,4 +17,9 @@ public class SimpleArgumentString extends SimpleCommandArgument<String> {
     protected String parseArgument(String argument) throws ParseFailedException {
         return argument;
     }
+
+    @Override
+    public String exampleInput(int component) {
+        return "example";
+    }
 }
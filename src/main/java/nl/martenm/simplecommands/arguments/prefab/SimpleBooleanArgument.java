@@ -31,4 +31,9 @@ public class SimpleBooleanArgument extends SimpleCommandArgument<Boolean> {
         List<String> potential = Arrays.asList("true", "false");
         return potential.stream().filter(s -> s.startsWith(input)).collect(Collectors.toList());
     }
+
+    @Override
+    public String exampleInput(int component) {
+        return "true";
+    }
 }
@@ -0,0 +1,263 @@
+package nl.martenm.simplecommands.arguments.selector;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A compiled entity selector like @a, @p, @r, @s or @e[type=zombie,distance=..10,limit=5].
+ * Supported options: type, distance, limit, name and sort (nearest, furthest, random, arbitrary).
+ *
+ * Selectors are compiled once and cached by their text.
+ */
+public final class EntitySelector {
+
+    private static final int MAX_CACHED = 1024;
+
+    // Larger distances are capped, the world border is at most 30 million blocks from the center.
+    private static final double MAX_DISTANCE = 60000000;
+    private static final Map<String, EntitySelector> COMPILED = new ConcurrentHashMap<>();
+
+    private enum Sort { ARBITRARY, NEAREST, FURTHEST, RANDOM }
+
+    private final char target;
+    private final EntityType type;
+    private final boolean typeNegated;
+    private final double minDistance;
+    private final double maxDistance;
+    private final int limit;
+    private final String name;
+    private final Sort sort;
+
+    private EntitySelector(char target, EntityType type, boolean typeNegated, double minDistance, double maxDistance, int limit, String name, Sort sort) {
+        this.target = target;
+        this.type = type;
+        this.typeNegated = typeNegated;
+        this.minDistance = minDistance;
+        this.maxDistance = maxDistance;
+        this.limit = limit;
+        this.name = name;
+        this.sort = sort;
+    }
+
+    /**
+     * Checks if the text looks like a selector.
+     * @param text The text
+     * @return True if it starts with @
+     */
+    public static boolean isSelector(String text) {
+        return text.length() >= 2 && text.charAt(0) == '@';
+    }
+
+    /**
+     * Gets the compiled selector, compiling it if it is not cached yet.
+     * @param text The selector
+     * @return The compiled selector
+     * @throws ParseFailedException If the selector is invalid
+     */
+    public static EntitySelector compile(String text) throws ParseFailedException {
+        EntitySelector selector = COMPILED.get(text);
+        if(selector != null) return selector;
+
+        selector = parse(text);
+        if(COMPILED.size() >= MAX_CACHED) COMPILED.clear();
+        COMPILED.put(text, selector);
+        return selector;
+    }
+
+    private static EntitySelector parse(String text) throws ParseFailedException {
+        if(!isSelector(text)) throw new ParseFailedException("Not a selector");
+
+        char target = text.charAt(1);
+        if("aprse".indexOf(target) == -1) throw new ParseFailedException("Unknown selector @" + target);
+
+        EntityType type = null;
+        boolean typeNegated = false;
+        double minDistance = 0;
+        double maxDistance = Double.POSITIVE_INFINITY;
+        int limit = target == 'p' || target == 'r' || target == 's' ? 1 : Integer.MAX_VALUE;
+        String name = null;
+        Sort sort = target == 'p' ? Sort.NEAREST : target == 'r' ? Sort.RANDOM : Sort.ARBITRARY;
+
+        if(text.length() > 2) {
+            if(text.charAt(2) != '[' || !text.endsWith("]")) throw new ParseFailedException("Expected [options]");
+
+            String options = text.substring(3, text.length() - 1).trim();
+            for(String option : options.isEmpty() ? new String[0] : options.split(",")) {
+                int equals = option.indexOf('=');
+                if(equals == -1) throw new ParseFailedException("Expected key=value but got " + option);
+
+                String key = option.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+                String value = option.substring(equals + 1).trim();
+                switch (key) {
+                    case "type":
+                        typeNegated = value.startsWith("!");
+                        type = parseType(typeNegated ? value.substring(1) : value);
+                        break;
+                    case "distance":
+                        double[] range = parseRange(value);
+                        minDistance = range[0];
+                        maxDistance = range[1];
+                        break;
+                    case "limit":
+                        try {
+                            limit = Integer.parseInt(value);
+                        } catch (NumberFormatException ex) {
+                            throw new ParseFailedException(ex);
+                        }
+                        if(limit <= 0) throw new ParseFailedException("The limit should be positive");
+                        break;
+                    case "name":
+                        name = value;
+                        break;
+                    case "sort":
+                        try {
+                            sort = Sort.valueOf(value.toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException ex) {
+                            throw new ParseFailedException("Unknown sort " + value);
+                        }
+                        break;
+                    default:
+                        throw new ParseFailedException("Unknown option " + key);
+                }
+            }
+        }
+
+        // Only @e selects other entities than players.
+        if(target != 'e' && target != 's') {
+            if(type != null && !(type == EntityType.PLAYER && !typeNegated)) throw new ParseFailedException("@" + target + " only selects players");
+            type = EntityType.PLAYER;
+            typeNegated = false;
+        }
+
+        return new EntitySelector(target, type, typeNegated, minDistance, maxDistance, limit, name, sort);
+    }
+
+    private static EntityType parseType(String value) throws ParseFailedException {
+        String name = value.toLowerCase(Locale.ROOT);
+        if(name.startsWith("minecraft:")) name = name.substring("minecraft:".length());
+
+        for(EntityType type : EntityType.values()) {
+            if(type.name().equalsIgnoreCase(name)) return type;
+        }
+        throw new ParseFailedException("Unknown entity type " + value);
+    }
+
+    private static double[] parseRange(String value) throws ParseFailedException {
+        double min;
+        double max;
+        try {
+            int dots = value.indexOf("..");
+            if(dots == -1) {
+                min = max = parseDistance(value);
+            } else {
+                String minText = value.substring(0, dots);
+                String maxText = value.substring(dots + 2);
+                min = minText.isEmpty() ? 0 : parseDistance(minText);
+                max = maxText.isEmpty() ? Double.POSITIVE_INFINITY : parseDistance(maxText);
+            }
+        } catch (NumberFormatException ex) {
+            throw new ParseFailedException(ex);
+        }
+
+        if(min > max) throw new ParseFailedException("The minimum distance is larger than the maximum");
+        return new double[] {min, max};
+    }
+
+    private static double parseDistance(String value) throws ParseFailedException {
+        double distance = Double.parseDouble(value);
+        if(Double.isNaN(distance) || Double.isInfinite(distance)) throw new ParseFailedException("Invalid distance " + value);
+        if(distance < 0) throw new ParseFailedException("The distance cannot be negative");
+        return Math.min(distance, MAX_DISTANCE);
+    }
+
+    /**
+     * Selects the entities, using the snapshots of the worlds.
+     * @param sender The sender, the origin of the selector if it is an entity
+     * @param snapshots The world snapshots
+     * @return The selected entities
+     * @throws ParseFailedException If the selector needs a location but the sender has none
+     */
+    public List<Entity> select(CommandSender sender, WorldSnapshots snapshots) throws ParseFailedException {
+        Location origin = sender instanceof Entity ? ((Entity) sender).getLocation() : null;
+
+        if(target == 's') {
+            if(!(sender instanceof Entity) || !matches(new Candidate((Entity) sender, 0))) return new ArrayList<>();
+            return new ArrayList<>(Collections.singletonList((Entity) sender));
+        }
+
+        boolean needsOrigin = sort == Sort.NEAREST || sort == Sort.FURTHEST || minDistance > 0 || maxDistance != Double.POSITIVE_INFINITY;
+        if(needsOrigin && origin == null) throw new ParseFailedException("This selector needs a location");
+
+        List<Candidate> candidates = new ArrayList<>();
+        if(maxDistance != Double.POSITIVE_INFINITY) {
+            // Only the cells around the origin are searched.
+            WorldSnapshot snapshot = snapshots.get(origin.getWorld());
+            double minSquared = minDistance * minDistance;
+            snapshot.forEachInRange(origin.getX(), origin.getY(), origin.getZ(), maxDistance, entry -> {
+                double distance = entry.distanceSquared(origin.getX(), origin.getY(), origin.getZ());
+                if(distance < minSquared) return;
+
+                Candidate candidate = new Candidate(entry.entity, distance);
+                if(matches(candidate)) candidates.add(candidate);
+            });
+        } else {
+            List<WorldSnapshot> worlds = needsOrigin ? Collections.singletonList(snapshots.get(origin.getWorld())) : snapshots.getAll();
+            double minSquared = minDistance * minDistance;
+            for(WorldSnapshot snapshot : worlds) {
+                for(WorldSnapshot.Entry entry : type == EntityType.PLAYER && !typeNegated ? snapshot.getPlayers() : snapshot.getEntries()) {
+                    double distance = origin == null || snapshot.getWorld() != origin.getWorld() ? Double.POSITIVE_INFINITY : entry.distanceSquared(origin.getX(), origin.getY(), origin.getZ());
+                    if(needsOrigin && distance < minSquared) continue;
+
+                    Candidate candidate = new Candidate(entry.entity, distance);
+                    if(matches(candidate)) candidates.add(candidate);
+                }
+            }
+        }
+
+        switch (sort) {
+            case NEAREST: candidates.sort(Comparator.comparingDouble(candidate -> candidate.distance)); break;
+            case FURTHEST: candidates.sort(Comparator.comparingDouble(candidate -> -candidate.distance)); break;
+            case RANDOM: Collections.shuffle(candidates, ThreadLocalRandom.current()); break;
+            default: break;
+        }
+
+        List<Entity> selected = new ArrayList<>(Math.min(limit, candidates.size()));
+        for(int i = 0; i < candidates.size() && i < limit; i++) {
+            selected.add(candidates.get(i).entity);
+        }
+        return selected;
+    }
+
+    private boolean matches(Candidate candidate) {
+        Entity entity = candidate.entity;
+        if(!entity.isValid()) return false;
+        if(type != null && (entity.getType() == type) == typeNegated) return false;
+        if(name != null && !name.equals(entity.getName())) return false;
+        return true;
+    }
+
+    /**
+     * Checks if this selector can select other entities than players, not counting @s.
+     * @return True for @e selectors that are not limited to players
+     */
+    public boolean canSelectNonPlayers() {
+        return target == 'e' && (type != EntityType.PLAYER || typeNegated);
+    }
+
+    private static final class Candidate {
+        private final Entity entity;
+        private final double distance;
+
+        private Candidate(Entity entity, double distance) {
+            this.entity = entity;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package nl.martenm.simplecommands.arguments.selector;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Immutable snapshot of the entities in a world and their positions, indexed by a grid of chunk sized cells.
+ * Selectors query the cells around their origin instead of scanning every entity of the world.
+ */
+public final class WorldSnapshot {
+
+    private static final int CELL_SIZE = 16;
+
+    private final World world;
+    private final List<Entry> entries;
+    private final List<Entry> players;
+    private final Map<Long, List<Entry>> grid;
+
+    private WorldSnapshot(World world, List<Entry> entries, List<Entry> players, Map<Long, List<Entry>> grid) {
+        this.world = world;
+        this.entries = entries;
+        this.players = players;
+        this.grid = grid;
+    }
+
+    /**
+     * Takes a snapshot of the world. This should be called on the main thread.
+     * @param world The world
+     * @return The snapshot
+     */
+    public static WorldSnapshot of(World world) {
+        List<Entry> entries = new ArrayList<>();
+        List<Entry> players = new ArrayList<>();
+        Map<Long, List<Entry>> grid = new HashMap<>();
+
+        for(Entity entity : world.getEntities()) {
+            Location location = entity.getLocation();
+            Entry entry = new Entry(entity, location.getX(), location.getY(), location.getZ());
+
+            entries.add(entry);
+            if(entity instanceof Player) players.add(entry);
+            grid.computeIfAbsent(cell(cellOf(entry.x), cellOf(entry.z)), key -> new ArrayList<>()).add(entry);
+        }
+
+        return new WorldSnapshot(world, Collections.unmodifiableList(entries), Collections.unmodifiableList(players), grid);
+    }
+
+    /**
+     * Calls the consumer for every entity within the radius of the position.
+     * @param x The x of the position
+     * @param y The y of the position
+     * @param z The z of the position
+     * @param radius The radius
+     * @param consumer Receives the entities in range
+     */
+    public void forEachInRange(double x, double y, double z, double radius, Consumer<Entry> consumer) {
+        if(!(radius >= 0)) return;
+        double radiusSquared = radius * radius;
+
+        // The grid only helps when the radius covers fewer cells than there are entities.
+        // The span is computed in longs, the cells of a huge radius would overflow an int.
+        long minX = cellOf(x - radius), maxX = cellOf(x + radius);
+        long minZ = cellOf(z - radius), maxZ = cellOf(z + radius);
+        long spanX = maxX - minX + 1, spanZ = maxZ - minZ + 1;
+        if(spanX > entries.size() || spanZ > entries.size() || spanX * spanZ > entries.size()) {
+            for(Entry entry : entries) {
+                if(entry.distanceSquared(x, y, z) <= radiusSquared) consumer.accept(entry);
+            }
+            return;
+        }
+
+        for(long cx = minX; cx <= maxX; cx++) {
+            for(long cz = minZ; cz <= maxZ; cz++) {
+                List<Entry> cell = grid.get(cell((int) cx, (int) cz));
+                if(cell == null) continue;
+
+                for(Entry entry : cell) {
+                    if(entry.distanceSquared(x, y, z) <= radiusSquared) consumer.accept(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets all entities of the world.
+     * @return The entities
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the players of the world.
+     * @return The players
+     */
+    public List<Entry> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Gets the world of this snapshot.
+     * @return The world
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    private static int cellOf(double coordinate) {
+        // Casting saturates at the int bounds, NaN becomes 0.
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long cell(int cx, int cz) {
+        return ((long) cx << 32) ^ (cz & 0xFFFFFFFFL);
+    }
+
+    /**
+     * An entity and its position when the snapshot was taken.
+     */
+    public static final class Entry {
+        public final Entity entity;
+        public final double x;
+        public final double y;
+        public final double z;
+
+        private Entry(Entity entity, double x, double y, double z) {
+            this.entity = entity;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public double distanceSquared(double x, double y, double z) {
+            double dx = this.x - x, dy = this.y - y, dz = this.z - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
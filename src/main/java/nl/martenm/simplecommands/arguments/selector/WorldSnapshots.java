@@ -0,0 +1,161 @@
+package nl.martenm.simplecommands.arguments.selector;
+
+import nl.martenm.simplecommands.misc.Ticker;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Shares one {@link WorldSnapshot} per world between all selectors resolved in the same server tick.
+ * The ticks are counted by a task scheduled by {@link #register(Plugin)}. Until then a snapshot is used for a fixed
+ * lifetime instead, one tick (50ms) for the shared snapshots.
+ *
+ * Snapshots of unloaded worlds are dropped when the world unloads, once registered, and by {@link #getAll()}.
+ */
+public class WorldSnapshots implements Listener {
+
+    private static final WorldSnapshots SHARED = new WorldSnapshots(50, Bukkit::getWorlds);
+
+    private final long lifetimeNanos;
+    private final Supplier<List<World>> worlds;
+    private final Ticker ticker;
+    private final Map<UUID, Cached> snapshots = new ConcurrentHashMap<>();
+
+    // Gets the current server tick. Null while the ticks are not counted.
+    private volatile LongSupplier ticks;
+    private boolean registered = false;
+
+    /**
+     * Creates a new snapshot cache that uses snapshots for a fixed time until it is registered.
+     * @param lifetimeMillis Time in milliseconds a snapshot is used
+     * @param worlds Supplies the worlds of the server
+     */
+    public WorldSnapshots(long lifetimeMillis, Supplier<List<World>> worlds) {
+        this(lifetimeMillis, worlds, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new snapshot cache that uses snapshots for a fixed time until it is registered.
+     * @param lifetimeMillis Time in milliseconds a snapshot is used
+     * @param worlds Supplies the worlds of the server
+     * @param ticker The time source for the lifetime
+     */
+    public WorldSnapshots(long lifetimeMillis, Supplier<List<World>> worlds, Ticker ticker) {
+        this.lifetimeNanos = TimeUnit.MILLISECONDS.toNanos(lifetimeMillis);
+        this.worlds = worlds;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Creates a new snapshot cache that uses a snapshot during one tick.
+     * @param ticks Gets the current server tick
+     * @param worlds Supplies the worlds of the server
+     */
+    public WorldSnapshots(LongSupplier ticks, Supplier<List<World>> worlds) {
+        this(0, worlds, Ticker.SYSTEM);
+        this.ticks = ticks;
+    }
+
+    /**
+     * Gets the snapshots shared by all selector arguments.
+     * @return The shared snapshots
+     */
+    public static WorldSnapshots shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers this as listener so snapshots of unloaded worlds are dropped, and starts counting the server ticks
+     * if no tick source was given.
+     * @param plugin The plugin
+     */
+    public synchronized void register(Plugin plugin) {
+        if(registered) return;
+        registered = true;
+
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        if(ticks == null) {
+            AtomicLong counter = new AtomicLong();
+            Bukkit.getScheduler().runTaskTimer(plugin, counter::incrementAndGet, 1L, 1L);
+            this.ticks = counter::get;
+        }
+    }
+
+    /**
+     * Gets the snapshot of the world, taking a new one if the last one is from an earlier tick.
+     * @param world The world
+     * @return The snapshot
+     */
+    public WorldSnapshot get(World world) {
+        LongSupplier ticks = this.ticks;
+        long tick = ticks == null ? 0 : ticks.getAsLong();
+        long now = ticker.read();
+
+        Cached cached = snapshots.get(world.getUID());
+        if(cached != null && cached.snapshot.getWorld() == world) {
+            if(ticks != null ? cached.tick == tick : now - cached.created < lifetimeNanos) return cached.snapshot;
+        }
+
+        WorldSnapshot snapshot = WorldSnapshot.of(world);
+        snapshots.put(world.getUID(), new Cached(snapshot, tick, now));
+        return snapshot;
+    }
+
+    /**
+     * Gets the snapshots of all worlds. Snapshots of worlds that are gone are dropped.
+     * @return The snapshots
+     */
+    public List<WorldSnapshot> getAll() {
+        List<WorldSnapshot> all = new ArrayList<>();
+        Set<UUID> loaded = new HashSet<>();
+        for(World world : worlds.get()) {
+            all.add(get(world));
+            loaded.add(world.getUID());
+        }
+        snapshots.keySet().retainAll(loaded);
+        return all;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        snapshots.remove(event.getWorld().getUID());
+    }
+
+    /**
+     * Removes all snapshots.
+     */
+    public void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * Gets the amount of worlds a snapshot is kept for.
+     * @return The amount of worlds
+     */
+    public int size() {
+        return snapshots.size();
+    }
+
+    private static final class Cached {
+        final WorldSnapshot snapshot;
+        final long tick;
+        final long created;
+
+        Cached(WorldSnapshot snapshot, long tick, long created) {
+            this.snapshot = snapshot;
+            this.tick = tick;
+            this.created = created;
+        }
+    }
+}
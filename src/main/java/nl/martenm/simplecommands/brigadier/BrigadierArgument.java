@@ -0,0 +1,17 @@
+package nl.martenm.simplecommands.brigadier;
+
+import com.mojang.brigadier.arguments.ArgumentType;
+
+/**
+ * Can be implemented by a {@link nl.martenm.simplecommands.arguments.SimpleCommandArgument} to provide
+ * the Brigadier argument type that the client should use for it.
+ * Arguments with a native type are parsed and completed by the client without asking the server.
+ */
+public interface BrigadierArgument {
+
+    /**
+     * Gets the Brigadier type of this argument.
+     * @return The argument type
+     */
+    ArgumentType<?> getBrigadierType();
+}
@@ -0,0 +1,209 @@
+package nl.martenm.simplecommands.brigadier;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.*;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import nl.martenm.simplecommands.RootCommand;
+import nl.martenm.simplecommands.SimpleCommand;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import nl.martenm.simplecommands.arguments.SimpleMultiCommandArgument;
+import nl.martenm.simplecommands.arguments.SimpleParsedCommand;
+import nl.martenm.simplecommands.arguments.prefab.*;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a SimpleCommands tree into Brigadier command nodes.
+ * Since 1.13 the client uses these nodes to parse and complete commands locally, so most tab completions
+ * no longer need a round trip to the server.
+ *
+ * Nodes are exported for one sender. Commands that sender cannot use (permissions, player only or hidden)
+ * are left out of the tree. Executing a node is a no-op, the command is still executed by Bukkit.
+ *
+ * Sending the nodes to the client is platform specific (e.g. Paper's AsyncPlayerSendCommandsEvent) and
+ * not part of this class.
+ */
+public final class BrigadierExporter {
+
+    // Marks nodes as executable for the client. The actual execution is handled by Bukkit.
+    private static final Command<Object> EXECUTABLE = context -> Command.SINGLE_SUCCESS;
+
+    private BrigadierExporter() {
+
+    }
+
+    /**
+     * Exports the command and all its sub-commands for the given sender.
+     * @param command The command to export
+     * @param sender The sender the nodes are created for
+     * @param <S> The source type of the Brigadier dispatcher
+     * @return The node for the command or null if the sender cannot use this command.
+     */
+    public static <S> LiteralCommandNode<S> export(SimpleCommand command, CommandSender sender) {
+        if(!isVisible(command, sender)) return null;
+        return BrigadierExporter.<S>build(command.getName(), command, sender).build();
+    }
+
+    /**
+     * Exports the command including a redirecting node for every alias of the command.
+     * @param command The command to export
+     * @param sender The sender the nodes are created for
+     * @param <S> The source type of the Brigadier dispatcher
+     * @return The nodes, the first one is for the command name. Empty if the sender cannot use this command.
+     */
+    public static <S> List<LiteralCommandNode<S>> exportWithAliases(SimpleCommand command, CommandSender sender) {
+        List<LiteralCommandNode<S>> nodes = new ArrayList<>();
+        LiteralCommandNode<S> node = export(command, sender);
+        if(node == null) return nodes;
+
+        nodes.add(node);
+        for(String alias : command.getAliases()) {
+            nodes.add(LiteralArgumentBuilder.<S>literal(alias).redirect(node).executes(executable()).build());
+        }
+        return nodes;
+    }
+
+    private static <S> LiteralArgumentBuilder<S> build(String literal, SimpleCommand command, CommandSender sender) {
+        LiteralArgumentBuilder<S> builder = LiteralArgumentBuilder.<S>literal(literal).executes(executable());
+
+        // A root with sub-commands, add all sub-commands the sender can use.
+        if(command instanceof RootCommand && !((RootCommand) command).getSubCommands().isEmpty()) {
+            for(SimpleCommand child : ((RootCommand) command).getSubCommands()) {
+                if(!isVisible(child, sender)) continue;
+
+                LiteralCommandNode<S> node = BrigadierExporter.<S>build(child.getName(), child, sender).build();
+                builder.then(node);
+                for(String alias : child.getAliases()) {
+                    builder.then(LiteralArgumentBuilder.<S>literal(alias).redirect(node).executes(executable()));
+                }
+            }
+            return builder;
+        }
+
+        if(command instanceof SimpleParsedCommand) {
+            List<SimpleCommandArgument> arguments = ((SimpleParsedCommand) command).getArguments();
+            if(!arguments.isEmpty()) {
+                builder.then(BrigadierExporter.<S>buildArguments(arguments, 0, 0, sender));
+                return builder;
+            }
+        }
+
+        // Unknown command logic. Let the server complete whatever follows.
+        return builder.then(RequiredArgumentBuilder.<S, String>argument("args", StringArgumentType.greedyString())
+                .suggests(commandSuggestions(command, sender))
+                .executes(executable()));
+    }
+
+    /**
+     * Chains the arguments starting at the index. Arguments that consume several tokens get a node for
+     * every component. Only the last node is executable.
+     */
+    private static <S> ArgumentBuilder<S, ?> buildArguments(List<SimpleCommandArgument> arguments, int index, int component, CommandSender sender) {
+        SimpleCommandArgument argument = arguments.get(index);
+        boolean last = index == arguments.size() - 1 && component == argument.getTokenCount() - 1;
+        RequiredArgumentBuilder<S, ?> builder;
+
+        if(argument instanceof SimpleMultiCommandArgument) {
+            String name = argument.getName() + "-" + ((SimpleMultiCommandArgument) argument).getComponentName(component);
+            builder = RequiredArgumentBuilder.argument(name, getTextType(last));
+            builder.suggests(argumentSuggestions(argument, component, sender));
+        } else {
+            builder = RequiredArgumentBuilder.argument(argument.getName(), getType(argument, last));
+            if(!isNative(argument)) {
+                builder.suggests(argumentSuggestions(argument, component, sender));
+            }
+        }
+
+        if(component < argument.getTokenCount() - 1) builder.then(BrigadierExporter.<S>buildArguments(arguments, index, component + 1, sender));
+        else if(last) builder.executes(executable());
+        else builder.then(BrigadierExporter.<S>buildArguments(arguments, index + 1, 0, sender));
+
+        return builder;
+    }
+
+    /**
+     * Gets the Brigadier type for an argument that is not the last token of the command.
+     * @param argument The argument
+     * @return The type
+     */
+    public static ArgumentType<?> getType(SimpleCommandArgument argument) {
+        return getType(argument, false);
+    }
+
+    /**
+     * Gets the Brigadier type for an argument.
+     * Arguments without a Brigadier counterpart are parsed by the server, see {@link #getTextType(boolean)}.
+     * @param argument The argument
+     * @param last True if the argument is the last token of the command
+     * @return The type
+     */
+    public static ArgumentType<?> getType(SimpleCommandArgument argument, boolean last) {
+        if(argument instanceof BrigadierArgument) return ((BrigadierArgument) argument).getBrigadierType();
+        if(argument instanceof SimpleArgumentInteger) return IntegerArgumentType.integer();
+        if(argument instanceof SimpleArgumentDouble) return DoubleArgumentType.doubleArg();
+        if(argument instanceof SimpleArgumentFloat) return FloatArgumentType.floatArg();
+        if(argument instanceof SimpleBooleanArgument) return BoolArgumentType.bool();
+        return getTextType(last);
+    }
+
+    /**
+     * Gets the type for text the server parses. A word would make the client reject input like selectors or
+     * namespaced ids, so the last token accepts the rest of the line and earlier tokens can be quoted.
+     * @param last True if the token is the last token of the command
+     * @return The type
+     */
+    public static StringArgumentType getTextType(boolean last) {
+        return last ? StringArgumentType.greedyString() : StringArgumentType.string();
+    }
+
+    /**
+     * Checks if the client can handle the argument without asking the server for suggestions.
+     */
+    private static boolean isNative(SimpleCommandArgument argument) {
+        return argument instanceof BrigadierArgument
+                || argument instanceof SimpleArgumentInteger
+                || argument instanceof SimpleArgumentDouble
+                || argument instanceof SimpleArgumentFloat
+                || argument instanceof SimpleBooleanArgument
+                || argument instanceof SimpleArgumentString;
+    }
+
+    private static boolean isVisible(SimpleCommand command, CommandSender sender) {
+        return command.isAllowedSender(sender) && command.isAllowed(sender) && !command.isHidden(sender);
+    }
+
+    private static <S> SuggestionProvider<S> argumentSuggestions(SimpleCommandArgument<?> argument, int component, CommandSender sender) {
+        return (context, builder) -> {
+            for(String suggestion : argument.complete(sender, component, builder.getRemaining())) {
+                builder.suggest(ChatColor.stripColor(suggestion));
+            }
+            return builder.buildFuture();
+        };
+    }
+
+    private static <S> SuggestionProvider<S> commandSuggestions(SimpleCommand command, CommandSender sender) {
+        return (context, builder) -> {
+            String remaining = builder.getRemaining();
+            List<String> completions = command.onTabComplete(sender, null, command.getName(), remaining.split(" ", -1));
+            if(completions == null) return builder.buildFuture();
+
+            // Only the last word is completed.
+            SuggestionsBuilder offset = builder.createOffset(builder.getStart() + remaining.lastIndexOf(' ') + 1);
+            completions.forEach(completion -> offset.suggest(ChatColor.stripColor(completion)));
+            return offset.buildFuture();
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> Command<S> executable() {
+        return (Command<S>) EXECUTABLE;
+    }
+}
@@ -0,0 +1,183 @@
+package nl.martenm.simplecommands.completion;
+
+import nl.martenm.simplecommands.misc.Ticker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Waits a bounded time for async tab completions and remembers the results.
+ * When the deadline passes the completions of the longest cached prefix of the input are returned instead,
+ * while the result is stored in the background so the next keystroke can use it.
+ *
+ * A request for an input that is still being computed is not started again, unless it is pending for longer than
+ * {@link #PENDING_DEADLINES} deadlines (at least {@link #MIN_PENDING_MILLIS}). A completion that never finishes is
+ * given up then, so the input is queried again instead of waiting on it forever.
+ */
+public class AsyncCompletions {
+
+    public static final int PENDING_DEADLINES = 10;
+    public static final long MIN_PENDING_MILLIS = 5000;
+
+    private final int maxEntries;
+    private final Ticker ticker;
+
+    private final ConcurrentHashMap<String, List<String>> results = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache for async completions.
+     * @param maxEntries The maximum amount of inputs that completions are kept for
+     */
+    public AsyncCompletions(int maxEntries) {
+        this(maxEntries, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new cache for async completions.
+     * @param maxEntries The maximum amount of inputs that completions are kept for, also the maximum amount of pending inputs
+     * @param ticker The time source used to give up pending completions
+     */
+    public AsyncCompletions(int maxEntries, Ticker ticker) {
+        if(maxEntries <= 0) throw new IllegalArgumentException("The maximum amount of entries should be positive!");
+        this.maxEntries = maxEntries;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Gets the completions for the input, waiting at most the deadline.
+     * @param input The input already there
+     * @param provider Starts the completion of an input
+     * @param deadlineMillis The time in milliseconds to wait for the completion
+     * @return The completions, cached or partial ones if the deadline passed. The list can be modified by the caller.
+     */
+    public List<String> complete(String input, Function<String, CompletableFuture<List<String>>> provider, long deadlineMillis) {
+        long now = ticker.read();
+        Pending entry = pending.get(input);
+        if(entry != null && entry.isExpired(now)) {
+            giveUp(input, entry);
+            entry = null;
+        }
+
+        if(entry == null) {
+            // Like the results the pending completions are bounded, a stuck backend should not fill the map.
+            if(pending.size() >= maxEntries) {
+                pending.forEach(this::giveUp);
+            }
+
+            long maxAge = TimeUnit.MILLISECONDS.toNanos(Math.max(MIN_PENDING_MILLIS, deadlineMillis * PENDING_DEADLINES));
+            Pending created = new Pending(now, maxAge);
+            entry = pending.putIfAbsent(input, created);
+            if(entry == null) {
+                entry = created;
+                start(input, provider, created);
+            }
+        }
+
+        CompletableFuture<List<String>> future = entry.result;
+        try {
+            List<String> completions = future.get(deadlineMillis, TimeUnit.MILLISECONDS);
+            if(completions != null) return new ArrayList<>(completions);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | CancellationException ex) {
+            // Fall back to what is cached.
+        }
+
+        return getCached(input);
+    }
+
+    private void start(String input, Function<String, CompletableFuture<List<String>>> provider, Pending entry) {
+        CompletableFuture<List<String>> future;
+        try {
+            future = provider.apply(input);
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+        if(future == null) future = CompletableFuture.completedFuture(Collections.emptyList());
+
+        // Stores the result for later keystrokes, also when nobody is waiting for it anymore.
+        future.whenComplete((completions, ex) -> {
+            if(completions != null) store(input, completions);
+            pending.remove(input, entry);
+
+            if(ex != null) entry.result.completeExceptionally(ex);
+            else entry.result.complete(completions);
+        });
+    }
+
+    /**
+     * Stops waiting for a pending completion. Its result is still stored if it arrives later.
+     */
+    private void giveUp(String input, Pending entry) {
+        if(pending.remove(input, entry)) {
+            entry.result.completeExceptionally(new TimeoutException("The completion of '" + input + "' is pending for too long"));
+        }
+    }
+
+    private void store(String input, List<String> completions) {
+        if(results.size() >= maxEntries && !results.containsKey(input)) results.clear();
+        results.put(input, Collections.unmodifiableList(new ArrayList<>(completions)));
+    }
+
+    /**
+     * Gets the cached completions of the input or of its longest cached prefix, filtered by the input.
+     * @param input The input already there
+     * @return The completions, empty if nothing usable is cached
+     */
+    public List<String> getCached(String input) {
+        for(int length = input.length(); length >= 0; length--) {
+            List<String> cached = results.get(input.substring(0, length));
+            if(cached == null) continue;
+
+            List<String> completions = new ArrayList<>();
+            for(String completion : cached) {
+                if(completion.startsWith(input)) completions.add(completion);
+            }
+            return completions;
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Removes all cached completions.
+     */
+    public void clear() {
+        results.clear();
+    }
+
+    /**
+     * Gets the amount of inputs that completions are cached for.
+     * @return The amount of inputs
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Gets the amount of inputs that completions are being computed for.
+     * @return The amount of inputs
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    private static final class Pending {
+        final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        final long started;
+        final long maxAge;
+
+        Pending(long started, long maxAge) {
+            this.started = started;
+            this.maxAge = maxAge;
+        }
+
+        boolean isExpired(long now) {
+            return now - started > maxAge;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package nl.martenm.simplecommands.completion;
+
+import nl.martenm.simplecommands.misc.SenderKey;
+import nl.martenm.simplecommands.misc.Ticker;
+import org.bukkit.command.CommandSender;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of the last tab completion of each sender.
+ * When a player types /warp sp, then spa and then spaw the completions for "spa" and "spaw" are
+ * filtered from the previous result instead of being computed again.
+ *
+ * Narrowing is only used if every previous completion started with the previous prefix, completers that
+ * return something else (like the argument name) are computed again when the input changes.
+ *
+ * A {@link nl.martenm.simplecommands.RootCommand} clears the cache when its sub-commands change.
+ */
+public class CompletionCache {
+
+    private final long expireNanos;
+    private final int maxSenders;
+    private final Ticker ticker;
+
+    // Last completion session of each sender, least recently used first.
+    private final LinkedHashMap<Object, Session> sessions;
+
+    /**
+     * Creates a new completion cache.
+     * @param expireMillis Time in milliseconds after which a cached completion is no longer used
+     * @param maxSenders The maximum amount of senders a completion is kept for
+     */
+    public CompletionCache(long expireMillis, int maxSenders) {
+        this(expireMillis, maxSenders, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new completion cache.
+     * @param expireMillis Time in milliseconds after which a cached completion is no longer used
+     * @param maxSenders The maximum amount of senders a completion is kept for
+     * @param ticker The time source
+     */
+    public CompletionCache(long expireMillis, int maxSenders, Ticker ticker) {
+        if(maxSenders <= 0) throw new IllegalArgumentException("The maximum amount of senders should be positive!");
+        this.expireNanos = TimeUnit.MILLISECONDS.toNanos(expireMillis);
+        this.maxSenders = maxSenders;
+        this.ticker = ticker;
+        this.sessions = new LinkedHashMap<Object, Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Session> eldest) {
+                return size() > CompletionCache.this.maxSenders;
+            }
+        };
+    }
+
+    /**
+     * Gets the completions for the input, using the previous completion of the sender when possible.
+     * @param sender The sender
+     * @param path The full name of the command that is completed
+     * @param index The index of the argument that is completed
+     * @param prefix The input that is already typed
+     * @param completer Computes the completions when they cannot be taken from the cache
+     * @return The completions, the list can be modified by the caller
+     */
+    public List<String> complete(CommandSender sender, String path, int index, String prefix, Function<String, List<String>> completer) {
+        Object key = SenderKey.of(sender);
+        long now = ticker.read();
+
+        synchronized (sessions) {
+            Session session = sessions.get(key);
+            if(session != null && session.matches(path, index) && now - session.created < expireNanos) {
+                if(session.prefix.equals(prefix)) {
+                    return new ArrayList<>(session.completions);
+                }
+
+                if(session.narrowable && prefix.startsWith(session.prefix)) {
+                    List<String> narrowed = new ArrayList<>();
+                    for(String completion : session.completions) {
+                        if(completion.startsWith(prefix)) narrowed.add(completion);
+                    }
+                    sessions.put(key, new Session(path, index, prefix, narrowed, true, session.created));
+                    return new ArrayList<>(narrowed);
+                }
+            }
+        }
+
+        // Compute outside of the lock, completers can be slow.
+        List<String> completions = completer.apply(prefix);
+        if(completions == null) return null;
+
+        List<String> stored = new ArrayList<>(completions);
+        boolean narrowable = stored.stream().allMatch(completion -> completion.startsWith(prefix));
+
+        synchronized (sessions) {
+            sessions.put(key, new Session(path, index, prefix, stored, narrowable, now));
+        }
+        return completions;
+    }
+
+    /**
+     * Removes the cached completion of a sender.
+     * @param sender The sender
+     */
+    public void invalidate(CommandSender sender) {
+        synchronized (sessions) {
+            sessions.remove(SenderKey.of(sender));
+        }
+    }
+
+    /**
+     * Removes all cached completions.
+     */
+    public void clear() {
+        synchronized (sessions) {
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Gets the amount of senders that currently have a cached completion.
+     * @return The amount of sessions
+     */
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private static final class Session {
+        final String path;
+        final int index;
+        final String prefix;
+        final List<String> completions;
+        final boolean narrowable;
+        final long created;
+
+        Session(String path, int index, String prefix, List<String> completions, boolean narrowable, long created) {
+            this.path = path;
+            this.index = index;
+            this.prefix = prefix;
+            this.completions = completions;
+            this.narrowable = narrowable;
+            this.created = created;
+        }
+
+        boolean matches(String path, int index) {
+            return this.index == index && this.path.equals(path);
+        }
+    }
+}
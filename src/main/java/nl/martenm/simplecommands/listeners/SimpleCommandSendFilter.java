@@ -0,0 +1,132 @@
+package nl.martenm.simplecommands.listeners;
+
+import nl.martenm.simplecommands.SimpleCommand;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import org.bukkit.Bukkit;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Removes commands from the command list that is sent to a player if the player cannot use any part of them.
+ * This uses the permission logic of SimpleCommands ({@link SimpleCommand#isAllowed}), so a root command is only sent
+ * if at least one sub-command is allowed. Smaller lists mean smaller packets and no tab requests for unusable commands.
+ *
+ * For frozen trees with permission bit sets enabled the decision is a single bit test.
+ * When the permissions of a player change call {@link #refresh(Player)} to send an updated list.
+ *
+ * A label without the plugin prefix is only removed while this plugin owns it, another plugin may have registered the same label.
+ */
+public class SimpleCommandSendFilter implements Listener {
+
+    private final Plugin plugin;
+    private final Function<String, Plugin> owners;
+    private final List<FilteredCommand> commands = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new filter.
+     * @param plugin The plugin the commands are registered by
+     */
+    public SimpleCommandSendFilter(Plugin plugin) {
+        this(plugin, label -> {
+            PluginCommand command = Bukkit.getPluginCommand(label);
+            return command == null ? null : command.getPlugin();
+        });
+    }
+
+    /**
+     * Creates a new filter.
+     * @param plugin The plugin the commands are registered by
+     * @param owners Gets the plugin that owns a label, null if no plugin does
+     */
+    public SimpleCommandSendFilter(Plugin plugin, Function<String, Plugin> owners) {
+        this.plugin = plugin;
+        this.owners = owners;
+    }
+
+    /**
+     * Registers this filter as listener.
+     */
+    public void register() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    /**
+     * Adds a command to the filter. This should be done after the command has been registered so that
+     * the aliases from the plugin.yml are known.
+     * @param command The command without a parent
+     */
+    public void addCommand(SimpleCommand command) {
+        if(command.hasParent()) throw new RuntimeException(String.format("Only commands without a parent can be filtered, %s has a parent!", command.getFullName()));
+
+        String prefix = plugin.getName().toLowerCase(Locale.ENGLISH) + ":";
+        Set<String> labels = new HashSet<>();
+        labels.add(command.getName());
+        labels.addAll(command.getAliases());
+
+        // Bukkit also sends the labels prefixed with the plugin name.
+        Set<String> prefixed = new HashSet<>();
+        for(String label : labels) {
+            prefixed.add(prefix + label);
+        }
+
+        commands.add(new FilteredCommand(command, labels, prefixed));
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onCommandSend(PlayerCommandSendEvent event) {
+        Player player = event.getPlayer();
+        for(FilteredCommand filtered : commands) {
+            if(filtered.command.isAllowedSender(player) && filtered.command.isAllowed(player)) continue;
+            event.getCommands().removeAll(filtered.prefixed);
+
+            // The owner of a bare label is looked up on every send, plugins can register commands later.
+            for(String label : filtered.labels) {
+                if(owners.apply(label) == plugin) event.getCommands().remove(label);
+            }
+        }
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    /**
+     * Drops the cached permissions of the player and sends a new command list.
+     * Should be called when the permissions of the player changed.
+     * @param player The player
+     */
+    public void refresh(Player player) {
+        invalidate(player);
+        player.updateCommands();
+    }
+
+    private void invalidate(Player player) {
+        for(FilteredCommand filtered : commands) {
+            PermissionBitSets bitSets = filtered.command.getPermissionBitSets();
+            if(bitSets != null) bitSets.invalidate(player);
+        }
+    }
+
+    private static final class FilteredCommand {
+        final SimpleCommand command;
+        final Set<String> labels;
+        final Set<String> prefixed;
+
+        FilteredCommand(SimpleCommand command, Set<String> labels, Set<String> prefixed) {
+            this.command = command;
+            this.labels = labels;
+            this.prefixed = prefixed;
+        }
+    }
+}
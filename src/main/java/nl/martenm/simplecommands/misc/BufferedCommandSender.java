@@ -0,0 +1,212 @@
+package nl.martenm.simplecommands.misc;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sender that collects the messages sent to it and sends them to the wrapped sender at once.
+ * Bukkit sends a chat packet for every line, flushing a player's messages as one component with line breaks
+ * only sends one. Other senders receive the lines through {@link CommandSender#sendMessage(String...)}.
+ *
+ * Everything else (permissions, name, etc.) is passed on to the wrapped sender.
+ * This is not a {@link Player} even if the wrapped sender is, use {@link #getSender()} for checks on the real sender.
+ */
+public class BufferedCommandSender implements CommandSender {
+
+    private final CommandSender sender;
+    private final List<String> buffer = new ArrayList<>();
+
+    public BufferedCommandSender(CommandSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Sends all buffered messages to the wrapped sender.
+     */
+    public void flush() {
+        if(buffer.isEmpty()) return;
+
+        String[] lines = buffer.toArray(new String[0]);
+        buffer.clear();
+
+        if(lines.length == 1) {
+            sender.sendMessage(lines[0]);
+            return;
+        }
+
+        Spigot spigot = sender instanceof Player ? sender.spigot() : null;
+        if(spigot == null) {
+            sender.sendMessage(lines);
+            return;
+        }
+
+        // One message, so one packet. Every line is converted on its own so its colours do not carry over to the next.
+        // The empty first component is the parent of the others, otherwise they would inherit the style of the first line.
+        List<BaseComponent> components = new ArrayList<>();
+        components.add(new TextComponent(""));
+        for(int i = 0; i < lines.length; i++) {
+            if(i > 0) components.add(new TextComponent("\n"));
+            Collections.addAll(components, TextComponent.fromLegacyText(lines[i]));
+        }
+        spigot.sendMessage(components.toArray(new BaseComponent[0]));
+    }
+
+    /**
+     * Gets the wrapped sender.
+     * @return The sender
+     */
+    public CommandSender getSender() {
+        return sender;
+    }
+
+    /**
+     * Gets the messages that have not been flushed yet.
+     * @return The amount of messages
+     */
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        buffer.add(message);
+    }
+
+    @Override
+    public void sendMessage(String... messages) {
+        for(String message : messages) buffer.add(message);
+    }
+
+    @Override
+    public void sendMessage(UUID uuid, String message) {
+        flush();
+        sender.sendMessage(uuid, message);
+    }
+
+    @Override
+    public void sendMessage(UUID uuid, String... messages) {
+        flush();
+        sender.sendMessage(uuid, messages);
+    }
+
+    @Override
+    public Server getServer() {
+        return sender.getServer();
+    }
+
+    @Override
+    public String getName() {
+        return sender.getName();
+    }
+
+    @Override
+    public Spigot spigot() {
+        Spigot spigot = sender.spigot();
+        if(spigot == null) return null;
+
+        // Components are sent directly, flush first to keep the order.
+        return new Spigot() {
+            @Override
+            public void sendMessage(BaseComponent component) {
+                flush();
+                spigot.sendMessage(component);
+            }
+
+            @Override
+            public void sendMessage(BaseComponent... components) {
+                flush();
+                spigot.sendMessage(components);
+            }
+
+            @Override
+            public void sendMessage(UUID sender, BaseComponent component) {
+                flush();
+                spigot.sendMessage(sender, component);
+            }
+
+            @Override
+            public void sendMessage(UUID sender, BaseComponent... components) {
+                flush();
+                spigot.sendMessage(sender, components);
+            }
+        };
+    }
+
+    @Override
+    public boolean isPermissionSet(String name) {
+        return sender.isPermissionSet(name);
+    }
+
+    @Override
+    public boolean isPermissionSet(Permission perm) {
+        return sender.isPermissionSet(perm);
+    }
+
+    @Override
+    public boolean hasPermission(String name) {
+        return sender.hasPermission(name);
+    }
+
+    @Override
+    public boolean hasPermission(Permission perm) {
+        return sender.hasPermission(perm);
+    }
+
+    @Override
+    public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) {
+        return sender.addAttachment(plugin, name, value);
+    }
+
+    @Override
+    public PermissionAttachment addAttachment(Plugin plugin) {
+        return sender.addAttachment(plugin);
+    }
+
+    @Override
+    public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value, int ticks) {
+        return sender.addAttachment(plugin, name, value, ticks);
+    }
+
+    @Override
+    public PermissionAttachment addAttachment(Plugin plugin, int ticks) {
+        return sender.addAttachment(plugin, ticks);
+    }
+
+    @Override
+    public void removeAttachment(PermissionAttachment attachment) {
+        sender.removeAttachment(attachment);
+    }
+
+    @Override
+    public void recalculatePermissions() {
+        sender.recalculatePermissions();
+    }
+
+    @Override
+    public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+        return sender.getEffectivePermissions();
+    }
+
+    @Override
+    public boolean isOp() {
+        return sender.isOp();
+    }
+
+    @Override
+    public void setOp(boolean value) {
+        sender.setOp(value);
+    }
+}
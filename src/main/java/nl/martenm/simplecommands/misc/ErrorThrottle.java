@@ -0,0 +1,106 @@
+package nl.martenm.simplecommands.misc;
+
+import nl.martenm.simplecommands.SimpleCommandMessages;
+import org.bukkit.command.CommandSender;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often a sender receives the same kind of error.
+ * Bots that spam unknown sub-commands would otherwise get a chat message for every attempt.
+ *
+ * Within the window only the first error of each kind is sent, the others are suppressed. The first error of
+ * that kind after the window mentions how many were suppressed. Errors are grouped by their message, not by
+ * the formatted text, so spamming different gibberish is throttled as well.
+ */
+public class ErrorThrottle {
+
+    private final long windowNanos;
+    private final int maxSenders;
+    private final Ticker ticker;
+
+    // Throttle state of each sender, least recently used first.
+    private final LinkedHashMap<Object, long[]> senders;
+
+    /**
+     * Creates a new error throttle.
+     * @param windowMillis Time in milliseconds in which the same kind of error is only sent once
+     * @param maxSenders The maximum amount of senders the state is kept for
+     */
+    public ErrorThrottle(long windowMillis, int maxSenders) {
+        this(windowMillis, maxSenders, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new error throttle.
+     * @param windowMillis Time in milliseconds in which the same kind of error is only sent once
+     * @param maxSenders The maximum amount of senders the state is kept for
+     * @param ticker The time source
+     */
+    public ErrorThrottle(long windowMillis, int maxSenders, Ticker ticker) {
+        if(maxSenders <= 0) throw new IllegalArgumentException("The maximum amount of senders should be positive!");
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxSenders = maxSenders;
+        this.ticker = ticker;
+        this.senders = new LinkedHashMap<Object, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, long[]> eldest) {
+                return size() > ErrorThrottle.this.maxSenders;
+            }
+        };
+    }
+
+    /**
+     * Decides if the error should be sent to the sender. This is checked before the error is formatted,
+     * so suppressed errors cost no formatting.
+     * @param sender The sender
+     * @param message The kind of error
+     * @return -1 if the error is suppressed, otherwise the amount of errors of this kind suppressed since the last one
+     */
+    public long check(CommandSender sender, SimpleCommandMessages message) {
+        Object key = SenderKey.of(sender);
+        long now = ticker.read();
+        int types = SimpleCommandMessages.values().length;
+        int index = message.ordinal();
+
+        synchronized (senders) {
+            // Per message: the time it was last sent and how often it was suppressed since, -1 if never sent.
+            long[] state = senders.get(key);
+            if(state == null) {
+                state = new long[types * 2];
+                for(int i = 1; i < state.length; i += 2) state[i] = -1;
+                senders.put(key, state);
+            } else if(state[index * 2 + 1] >= 0 && now - state[index * 2] < windowNanos) {
+                state[index * 2 + 1]++;
+                return -1;
+            }
+
+            long suppressed = Math.max(0, state[index * 2 + 1]);
+            state[index * 2] = now;
+            state[index * 2 + 1] = 0;
+            return suppressed;
+        }
+    }
+
+    /**
+     * Forgets the state of a sender.
+     * @param sender The sender
+     */
+    public void invalidate(CommandSender sender) {
+        synchronized (senders) {
+            senders.remove(SenderKey.of(sender));
+        }
+    }
+
+    /**
+     * Gets the amount of senders state is kept for.
+     * @return The amount of senders
+     */
+    public int size() {
+        synchronized (senders) {
+            return senders.size();
+        }
+    }
+}
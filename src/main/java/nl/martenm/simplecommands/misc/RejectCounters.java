@@ -0,0 +1,71 @@
+package nl.martenm.simplecommands.misc;
+
+import nl.martenm.simplecommands.SimpleCommandMessages;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the dispatches that were rejected, by the error that was (or would have been) sent.
+ */
+public class RejectCounters {
+
+    private final LongAdder[] rejected;
+    private final LongAdder suppressed = new LongAdder();
+
+    public RejectCounters() {
+        this.rejected = new LongAdder[SimpleCommandMessages.values().length];
+        for(int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counts a rejected dispatch.
+     * @param message The error of the rejection
+     */
+    public void increment(SimpleCommandMessages message) {
+        rejected[message.ordinal()].increment();
+    }
+
+    /**
+     * Counts an error that was not sent because of the {@link ErrorThrottle}.
+     */
+    public void incrementSuppressed() {
+        suppressed.increment();
+    }
+
+    /**
+     * Gets the amount of dispatches rejected with the error.
+     * @param message The error
+     * @return The amount of rejections
+     */
+    public long get(SimpleCommandMessages message) {
+        return rejected[message.ordinal()].sum();
+    }
+
+    /**
+     * Gets the amount of rejected dispatches.
+     * @return The amount of rejections
+     */
+    public long getTotal() {
+        long total = 0;
+        for(LongAdder adder : rejected) total += adder.sum();
+        return total;
+    }
+
+    /**
+     * Gets the amount of errors that were suppressed by the throttle.
+     * @return The amount of suppressed errors
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        for(LongAdder adder : rejected) adder.reset();
+        suppressed.reset();
+    }
+}
@@ -0,0 +1,31 @@
+package nl.martenm.simplecommands.misc;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+/**
+ * Creates keys to store per sender data with.
+ */
+public final class SenderKey {
+
+    private SenderKey() {
+
+    }
+
+    /**
+     * Gets the key for a sender. Players are identified by their unique id so data survives
+     * a new player object on re-login. Other senders are identified by the sender object itself.
+     * Buffered senders use the key of the sender they wrap.
+     * @param sender The sender
+     * @return The key
+     */
+    public static Object of(CommandSender sender) {
+        if(sender instanceof BufferedCommandSender) sender = ((BufferedCommandSender) sender).getSender();
+
+        if(sender instanceof Player) {
+            Object uuid = ((Player) sender).getUniqueId();
+            if(uuid != null) return uuid;
+        }
+        return sender;
+    }
+}
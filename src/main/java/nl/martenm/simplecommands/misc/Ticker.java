@@ -0,0 +1,19 @@
+package nl.martenm.simplecommands.misc;
+
+/**
+ * Source of nanosecond time for expiring state. Tests pass their own ticker so they do not have to sleep.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    /**
+     * Uses {@link System#nanoTime()}.
+     */
+    Ticker SYSTEM = System::nanoTime;
+
+    /**
+     * Reads the time. Only the difference between two reads has a meaning.
+     * @return The time in nanoseconds
+     */
+    long read();
+}
@@ -0,0 +1,138 @@
+package nl.martenm.simplecommands.paging;
+
+import nl.martenm.simplecommands.SimpleCommandMessages;
+import nl.martenm.simplecommands.misc.BufferedCommandSender;
+import nl.martenm.simplecommands.misc.SenderKey;
+import nl.martenm.simplecommands.misc.Ticker;
+import org.bukkit.command.CommandSender;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the paged message each sender is reading, so the next page can be requested with a command.
+ * Sessions expire after a while and only a limited amount of senders is kept.
+ */
+public class PageSessions {
+
+    private final long expireNanos;
+    private final int maxSenders;
+    private final Ticker ticker;
+
+    // Open session of each sender, least recently used first.
+    private final LinkedHashMap<Object, Session> sessions;
+
+    /**
+     * Creates a new session store.
+     * @param expireMillis Time in milliseconds after which the next page can no longer be requested
+     * @param maxSenders The maximum amount of senders a session is kept for
+     */
+    public PageSessions(long expireMillis, int maxSenders) {
+        this(expireMillis, maxSenders, Ticker.SYSTEM);
+    }
+
+    /**
+     * Creates a new session store.
+     * @param expireMillis Time in milliseconds after which the next page can no longer be requested
+     * @param maxSenders The maximum amount of senders a session is kept for
+     * @param ticker The time source
+     */
+    public PageSessions(long expireMillis, int maxSenders, Ticker ticker) {
+        if(maxSenders <= 0) throw new IllegalArgumentException("The maximum amount of senders should be positive!");
+        this.expireNanos = TimeUnit.MILLISECONDS.toNanos(expireMillis);
+        this.maxSenders = maxSenders;
+        this.ticker = ticker;
+        this.sessions = new LinkedHashMap<Object, Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Session> eldest) {
+                return size() > PageSessions.this.maxSenders;
+            }
+        };
+    }
+
+    /**
+     * Sends the first page of the message. If there are more pages the sender can request them with the command.
+     * @param sender The sender
+     * @param message The message
+     * @param nextCommand The command (without slash) that sends the next page
+     */
+    public void send(CommandSender sender, PagedMessage message, String nextCommand) {
+        Object key = SenderKey.of(sender);
+        synchronized (sessions) {
+            sessions.remove(key);
+        }
+
+        sendPage(sender, message, nextCommand);
+    }
+
+    /**
+     * Sends the next page of the message the sender is reading.
+     * @param sender The sender
+     * @return True if a page was sent, false if the sender has no (unexpired) session
+     */
+    public boolean next(CommandSender sender) {
+        Object key = SenderKey.of(sender);
+        Session session;
+        synchronized (sessions) {
+            session = sessions.remove(key);
+        }
+
+        if(session == null || ticker.read() - session.created >= expireNanos) {
+            sender.sendMessage(SimpleCommandMessages.NO_NEXT_PAGE.m());
+            return false;
+        }
+
+        sendPage(sender, session.message, session.nextCommand);
+        return true;
+    }
+
+    private void sendPage(CommandSender sender, PagedMessage message, String nextCommand) {
+        List<String> page = message.nextPage();
+        boolean more = message.hasNextPage();
+
+        BufferedCommandSender buffered = sender instanceof BufferedCommandSender ? (BufferedCommandSender) sender : new BufferedCommandSender(sender);
+        page.forEach(buffered::sendMessage);
+        if(more) buffered.sendMessage(SimpleCommandMessages.NEXT_PAGE.format(message.getPage(), nextCommand));
+        if(buffered != sender) buffered.flush();
+
+        if(more) {
+            synchronized (sessions) {
+                sessions.put(SenderKey.of(sender), new Session(message, nextCommand, ticker.read()));
+            }
+        }
+    }
+
+    /**
+     * Forgets the session of a sender.
+     * @param sender The sender
+     */
+    public void invalidate(CommandSender sender) {
+        synchronized (sessions) {
+            sessions.remove(SenderKey.of(sender));
+        }
+    }
+
+    /**
+     * Gets the amount of open sessions, including expired ones that have not been removed yet.
+     * @return The amount of sessions
+     */
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private static final class Session {
+        private final PagedMessage message;
+        private final String nextCommand;
+        private final long created;
+
+        private Session(PagedMessage message, String nextCommand, long created) {
+            this.message = message;
+            this.nextCommand = nextCommand;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package nl.martenm.simplecommands.paging;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * A message of many lines that is sent one page at a time.
+ * Lines are taken from an iterator when their page is sent, so lines of pages nobody looks at are never built.
+ */
+public class PagedMessage {
+
+    private final Iterator<String> lines;
+    private final int pageSize;
+    private int page = 0;
+
+    /**
+     * Creates a paged message.
+     * @param lines The lines, only consumed as far as the pages that are sent
+     * @param pageSize The amount of lines per page
+     */
+    public PagedMessage(Iterator<String> lines, int pageSize) {
+        if(pageSize <= 0) throw new IllegalArgumentException("The page size should be positive!");
+        this.lines = lines;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Creates a paged message from a supplier.
+     * @param lines Supplies the next line, or null when there are no more lines
+     * @param pageSize The amount of lines per page
+     * @return The paged message
+     */
+    public static PagedMessage of(Supplier<String> lines, int pageSize) {
+        return new PagedMessage(new Iterator<String>() {
+            private String next = null;
+            private boolean done = false;
+
+            @Override
+            public boolean hasNext() {
+                if(next == null && !done) {
+                    next = lines.get();
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if(!hasNext()) throw new NoSuchElementException();
+                String line = next;
+                next = null;
+                return line;
+            }
+        }, pageSize);
+    }
+
+    /**
+     * Builds the next page.
+     * @return The lines of the page, empty if there are no more lines
+     */
+    public synchronized List<String> nextPage() {
+        List<String> page = new ArrayList<>(pageSize);
+        while(page.size() < pageSize && lines.hasNext()) {
+            page.add(lines.next());
+        }
+        if(!page.isEmpty()) this.page++;
+        return page;
+    }
+
+    /**
+     * Checks if there is another page.
+     * @return True if more lines are available
+     */
+    public synchronized boolean hasNextPage() {
+        return lines.hasNext();
+    }
+
+    /**
+     * Gets the number of the last page that was built, starting at 1.
+     * @return The page number, 0 if no page was built yet
+     */
+    public synchronized int getPage() {
+        return page;
+    }
+
+    /**
+     * Gets the amount of lines per page.
+     * @return The page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+}
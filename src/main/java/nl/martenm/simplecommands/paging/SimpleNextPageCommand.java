@@ -0,0 +1,42 @@
+package nl.martenm.simplecommands.paging;
+
+import nl.martenm.simplecommands.SimpleCommand;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Sends the next page of the paged message the sender is reading.
+ * Add it to a root command, then send paged messages through {@link #send(CommandSender, PagedMessage)}.
+ */
+public class SimpleNextPageCommand extends SimpleCommand {
+
+    private final PageSessions sessions;
+
+    public SimpleNextPageCommand(String name, PageSessions sessions) {
+        super(name, "Shows the next page", null, false);
+        this.sessions = sessions;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+        sessions.next(sender);
+        return true;
+    }
+
+    /**
+     * Sends the first page of the message, the others can be requested with this command.
+     * @param sender The sender
+     * @param message The message
+     */
+    public void send(CommandSender sender, PagedMessage message) {
+        sessions.send(sender, message, getFullName());
+    }
+
+    /**
+     * Gets the sessions this command uses.
+     * @return The sessions
+     */
+    public PageSessions getSessions() {
+        return sessions;
+    }
+}
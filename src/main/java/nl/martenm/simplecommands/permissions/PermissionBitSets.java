@@ -0,0 +1,230 @@
+package nl.martenm.simplecommands.permissions;
+
+import nl.martenm.simplecommands.RootCommand;
+import nl.martenm.simplecommands.SimpleCommand;
+import nl.martenm.simplecommands.misc.SenderKey;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the permissions of senders for a frozen command tree as bit sets.
+ * Every node has a dense id, each sender gets one {@link BitSet} with two bits per node:
+ *  - The result of {@link SimpleCommand#checkPermission(CommandSender)}
+ *  - The result of {@link SimpleCommand#isAllowed(CommandSender)}
+ *
+ * After the bit set is built all permission checks in the tree are bit tests.
+ *
+ * IMPORTANT: Bukkit has no event for permission changes. A bit set keeps answering with the permissions the sender had
+ * when it was built, until {@link #invalidate(CommandSender)} or {@link #invalidateAll()} is called.
+ * Call it whenever permissions change: after editing an attachment, changing op, or from the update event of the permission plugin.
+ * {@link #register(Plugin)} only covers quits and world changes (per world permissions).
+ */
+public class PermissionBitSets implements Listener {
+
+    // Set while building or bypassing, checks must go to the sender.
+    private static final ThreadLocal<Boolean> BUILDING = new ThreadLocal<>();
+
+    private final RootCommand root;
+    private final int maxSenders;
+
+    // Bit sets of each sender, least recently used first.
+    private final LinkedHashMap<Object, BitSet> senders;
+
+    // Increased by every invalidation, a bit set built while it changed may be stale and is not cached. Guarded by senders.
+    private long generation = 0;
+
+    /**
+     * Creates the bit sets for a frozen tree. Use {@link RootCommand#enablePermissionBitSets(int)}.
+     * @param root The top command of the frozen tree
+     * @param maxSenders The maximum amount of senders to keep bit sets for
+     */
+    public PermissionBitSets(RootCommand root, int maxSenders) {
+        if(maxSenders <= 0) throw new IllegalArgumentException("The maximum amount of senders should be positive!");
+        this.root = root;
+        this.maxSenders = maxSenders;
+        this.senders = new LinkedHashMap<Object, BitSet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, BitSet> eldest) {
+                return size() > PermissionBitSets.this.maxSenders;
+            }
+        };
+    }
+
+    /**
+     * Gets the bit of a node that holds the result of checkPermission.
+     * @param nodeId The node id
+     * @return The bit index
+     */
+    public static int permissionBit(int nodeId) {
+        return nodeId << 1;
+    }
+
+    /**
+     * Gets the bit of a node that holds the result of isAllowed.
+     * @param nodeId The node id
+     * @return The bit index
+     */
+    public static int allowedBit(int nodeId) {
+        return (nodeId << 1) | 1;
+    }
+
+    /**
+     * Gets the bit set of the sender, building it if required.
+     * @param sender The sender
+     * @return The bit set or null if the bit set is currently being built on this thread
+     */
+    public BitSet lookup(CommandSender sender) {
+        if(BUILDING.get() != null) return null;
+
+        Object key = SenderKey.of(sender);
+        long generation;
+        synchronized (senders) {
+            BitSet bits = senders.get(key);
+            if(bits != null) return bits;
+            generation = this.generation;
+        }
+
+        // Built outside the lock, permission checks can be slow.
+        BitSet bits = build(sender);
+        synchronized (senders) {
+            if(this.generation == generation) senders.put(key, bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Runs the task with permission checks going to the sender directly. No bit set is used, built or cached,
+     * so a sender that is not a real player, like the one of the {@link nl.martenm.simplecommands.CommandWarmup}, does not take the place of one.
+     * @param task The task
+     */
+    public static void bypass(Runnable task) {
+        Boolean previous = BUILDING.get();
+        BUILDING.set(Boolean.TRUE);
+        try {
+            task.run();
+        } finally {
+            if(previous == null) BUILDING.remove();
+        }
+    }
+
+    /**
+     * Builds the bit set for the sender. All nodes are checked directly with the sender.
+     * @param sender The sender
+     * @return A new bit set
+     */
+    public BitSet build(CommandSender sender) {
+        BitSet bits = new BitSet(root.getNodeCount() * 2);
+
+        BUILDING.set(Boolean.TRUE);
+        try {
+            if(root.isBatchPermissions()) {
+                PermissionScope.evaluate(sender, () -> {
+                    fill(root, sender, bits);
+                    return null;
+                });
+            } else {
+                fill(root, sender, bits);
+            }
+        } finally {
+            BUILDING.remove();
+        }
+        return bits;
+    }
+
+    private void fill(SimpleCommand command, CommandSender sender, BitSet bits) {
+        int id = command.getNodeId();
+
+        // Generated sub-commands are not part of the frozen tree.
+        if(id < 0) return;
+
+        if(command.checkPermission(sender)) bits.set(permissionBit(id));
+        if(command.isAllowed(sender)) bits.set(allowedBit(id));
+
+        if(command instanceof RootCommand) {
+            for(SimpleCommand child : ((RootCommand) command).getSubCommands()) {
+                fill(child, sender, bits);
+            }
+        }
+    }
+
+    /**
+     * Registers the bit sets as listener so they are invalidated when a player quits or changes world.
+     * Other permission changes still have to be invalidated manually.
+     * @param plugin The plugin
+     */
+    public void register(Plugin plugin) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        invalidate(event.getPlayer());
+    }
+
+    /**
+     * Removes the bit set of the sender. It is built again on the next check.
+     * Call this when the permissions of the sender changed or the sender left.
+     * A bit set that is being built while this is called is not cached.
+     * @param sender The sender
+     */
+    public void invalidate(CommandSender sender) {
+        synchronized (senders) {
+            generation++;
+            senders.remove(SenderKey.of(sender));
+        }
+    }
+
+    /**
+     * Removes the bit sets of all senders.
+     */
+    public void invalidateAll() {
+        invalidateAll(() -> {});
+    }
+
+    /**
+     * Removes the bit sets of all senders and runs the change of the tree in the same step.
+     * A lookup either returns a bit set from before both or one built after both, never one that was built before the change.
+     * @param change The change, it should not look up bit sets itself
+     */
+    public void invalidateAll(Runnable change) {
+        synchronized (senders) {
+            generation++;
+            senders.clear();
+            change.run();
+        }
+    }
+
+    /**
+     * Gets the amount of senders that have a bit set.
+     * @return The amount of senders
+     */
+    public int size() {
+        synchronized (senders) {
+            return senders.size();
+        }
+    }
+
+    /**
+     * Gets the amount of bytes used by the bits of one sender.
+     * @return The amount of bytes
+     */
+    public long getBytesPerSender() {
+        // The backing long array of a BitSet with two bits per node.
+        return ((root.getNodeCount() * 2L + 63) / 64) * Long.BYTES;
+    }
+}
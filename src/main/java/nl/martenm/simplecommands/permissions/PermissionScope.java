@@ -0,0 +1,84 @@
+package nl.martenm.simplecommands.permissions;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.function.Supplier;
+
+/**
+ * Makes a {@link PermissionSnapshot} answer all permission checks of one sender on the current thread.
+ * This is used to evaluate large passes (like the help or tab completions) against a single snapshot
+ * instead of calling {@link CommandSender#hasPermission(String)} for every node.
+ */
+public final class PermissionScope implements AutoCloseable {
+
+    private static final ThreadLocal<PermissionScope> ACTIVE = new ThreadLocal<>();
+
+    private final CommandSender sender;
+    private final PermissionSnapshot snapshot;
+    private final PermissionScope previous;
+
+    private PermissionScope(CommandSender sender, PermissionSnapshot snapshot, PermissionScope previous) {
+        this.sender = sender;
+        this.snapshot = snapshot;
+        this.previous = previous;
+    }
+
+    /**
+     * Opens a scope on the current thread. It should always be closed again, preferably using try-with-resources.
+     * @param sender The sender the snapshot belongs to
+     * @param snapshot The snapshot
+     * @return The scope
+     */
+    public static PermissionScope open(CommandSender sender, PermissionSnapshot snapshot) {
+        PermissionScope scope = new PermissionScope(sender, snapshot, ACTIVE.get());
+        ACTIVE.set(scope);
+        return scope;
+    }
+
+    /**
+     * Runs the pass with all permission checks of the sender answered by one snapshot.
+     * If no snapshot can be taken the pass runs against the sender directly.
+     * @param sender The sender
+     * @param pass The code to run
+     * @param <T> The result type
+     * @return The result of the pass
+     */
+    public static <T> T evaluate(CommandSender sender, Supplier<T> pass) {
+        if(isActive(sender)) return pass.get();
+
+        PermissionSnapshot snapshot = PermissionSnapshot.of(sender);
+        if(snapshot == null) return pass.get();
+
+        try (PermissionScope ignored = open(sender, snapshot)) {
+            return pass.get();
+        }
+    }
+
+    /**
+     * Checks a permission of the sender, using the active snapshot if there is one for this sender.
+     * @param sender The sender
+     * @param permission The permission node
+     * @return True if the sender has the permission
+     */
+    public static boolean hasPermission(CommandSender sender, String permission) {
+        PermissionScope scope = ACTIVE.get();
+        if(scope != null && scope.sender == sender) return scope.snapshot.hasPermission(permission);
+        return sender.hasPermission(permission);
+    }
+
+    /**
+     * Checks if a scope is active for the sender on the current thread.
+     * @param sender The sender
+     * @return True if active
+     */
+    public static boolean isActive(CommandSender sender) {
+        PermissionScope scope = ACTIVE.get();
+        return scope != null && scope.sender == sender;
+    }
+
+    @Override
+    public void close() {
+        if(previous == null) ACTIVE.remove();
+        else ACTIVE.set(previous);
+    }
+}
@@ -0,0 +1,129 @@
+package nl.martenm.simplecommands.permissions;
+
+import org.bukkit.Bukkit;
+import org.bukkit.permissions.Permissible;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of the effective permissions of a {@link Permissible}.
+ * A snapshot is taken once and can then answer many permission checks without calling Bukkit.
+ *
+ * The checks give the same result as {@link Permissible#hasPermission(String)} of Bukkit's PermissibleBase:
+ *  - Permissions that are set (including children of wildcard permissions) use their value.
+ *  - Other permissions use the default of the registered permission, or OP if it is not registered.
+ *
+ * A snapshot made with {@link #capture(Permissible, Collection)} only contains the given nodes. It does not use
+ * the registry and denies every other node, so it can be used from any thread.
+ */
+public final class PermissionSnapshot {
+
+    private final Set<String> granted;
+    private final Set<String> denied;
+    private final boolean op;
+    private final Function<String, Permission> registry;
+
+    // Nodes that are explicitly set, only used for captured snapshots.
+    private final Set<String> set;
+
+    private PermissionSnapshot(Set<String> granted, Set<String> denied, boolean op, Function<String, Permission> registry, Set<String> set) {
+        this.granted = granted;
+        this.denied = denied;
+        this.op = op;
+        this.registry = registry;
+        this.set = set;
+    }
+
+    /**
+     * Takes a snapshot of the effective permissions of the permissible.
+     * Defaults are looked up in the permissions registered to the server.
+     * @param permissible The permissible
+     * @return The snapshot or null if the permissible does not expose its effective permissions
+     */
+    public static PermissionSnapshot of(Permissible permissible) {
+        return of(permissible, Bukkit.getServer() == null ? name -> null : Bukkit.getPluginManager()::getPermission);
+    }
+
+    /**
+     * Takes a snapshot of the effective permissions of the permissible.
+     * @param permissible The permissible
+     * @param registry Looks up registered permissions by their (lower case) name, used for defaults
+     * @return The snapshot or null if the permissible does not expose its effective permissions
+     */
+    public static PermissionSnapshot of(Permissible permissible, Function<String, Permission> registry) {
+        Set<PermissionAttachmentInfo> effective = permissible.getEffectivePermissions();
+        if(effective == null) return null;
+
+        Set<String> granted = new HashSet<>();
+        Set<String> denied = new HashSet<>();
+        for(PermissionAttachmentInfo info : effective) {
+            String name = info.getPermission().toLowerCase(Locale.ENGLISH);
+            if(info.getValue()) granted.add(name);
+            else denied.add(name);
+        }
+
+        return new PermissionSnapshot(granted, denied, permissible.isOp(), registry, null);
+    }
+
+    /**
+     * Captures the given nodes of the permissible. This should be called on the main thread, the snapshot
+     * can then be used on any thread without calling Bukkit. Nodes that are not captured are denied.
+     * @param permissible The permissible
+     * @param nodes The permission nodes to capture
+     * @return The snapshot
+     */
+    public static PermissionSnapshot capture(Permissible permissible, Collection<String> nodes) {
+        Set<String> granted = new HashSet<>();
+        Set<String> denied = new HashSet<>();
+        Set<String> set = new HashSet<>();
+        for(String node : nodes) {
+            String name = node.toLowerCase(Locale.ENGLISH);
+            if(permissible.hasPermission(node)) granted.add(name);
+            else denied.add(name);
+            if(permissible.isPermissionSet(node)) set.add(name);
+        }
+
+        return new PermissionSnapshot(granted, denied, permissible.isOp(), null, set);
+    }
+
+    /**
+     * Checks if the snapshot has the permission.
+     * @param permission The permission node
+     * @return True if the permission is granted
+     */
+    public boolean hasPermission(String permission) {
+        String name = permission.toLowerCase(Locale.ENGLISH);
+        if(granted.contains(name)) return true;
+        if(denied.contains(name)) return false;
+        if(registry == null) return false;
+
+        Permission registered = registry.apply(name);
+        if(registered != null) return registered.getDefault().getValue(op);
+        return Permission.DEFAULT_PERMISSION.getValue(op);
+    }
+
+    /**
+     * Checks if the node is answered by this snapshot without falling back to defaults.
+     * Captured snapshots only contain the captured nodes.
+     * @param permission The permission node
+     * @return True if the node is known
+     */
+    public boolean contains(String permission) {
+        String name = permission.toLowerCase(Locale.ENGLISH);
+        return granted.contains(name) || denied.contains(name);
+    }
+
+    /**
+     * Checks if the permission is explicitly set in this snapshot.
+     * @param permission The permission node
+     * @return True if set
+     */
+    public boolean isPermissionSet(String permission) {
+        String name = permission.toLowerCase(Locale.ENGLISH);
+        if(set != null) return set.contains(name);
+        return granted.contains(name) || denied.contains(name);
+    }
+}
@@ -0,0 +1,130 @@
+package nl.martenm.simplecommands.recording;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Reads the dispatches from a log written by {@link CommandRecorder}.
+ * A record that was cut off (for example because the server crashed while writing) ends the log.
+ */
+public class CommandLogReader implements Closeable {
+
+    private static final SenderKind[] SENDER_KINDS = SenderKind.values();
+
+    private final DataInputStream in;
+
+    // State of the current session.
+    private List<String> nodes = Collections.emptyList();
+    private final Map<Integer, List<String>> fingerprints = new HashMap<>();
+    private long timestamp;
+
+    /**
+     * Opens a log.
+     * @param file The log file
+     * @throws IOException If the file could not be opened or is not a command log
+     */
+    public CommandLogReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if(in.readInt() != LogFormat.MAGIC) throw new IOException(String.format("%s is not a command log!", file.getName()));
+            int version = in.readUnsignedByte();
+            if(version != LogFormat.VERSION) throw new IOException(String.format("%s has unsupported version %d!", file.getName(), version));
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads all dispatches of a log.
+     * @param file The log file
+     * @return The dispatches in the order they were recorded
+     * @throws IOException If the log could not be read
+     */
+    public static List<RecordedDispatch> readAll(File file) throws IOException {
+        List<RecordedDispatch> dispatches = new ArrayList<>();
+        try (CommandLogReader reader = new CommandLogReader(file)) {
+            RecordedDispatch dispatch;
+            while((dispatch = reader.next()) != null) {
+                dispatches.add(dispatch);
+            }
+        }
+        return dispatches;
+    }
+
+    /**
+     * Reads the next dispatch.
+     * @return The dispatch or null at the end of the log
+     * @throws IOException If the log is corrupt
+     */
+    public RecordedDispatch next() throws IOException {
+        try {
+            while(true) {
+                int type = in.read();
+                if(type < 0) return null;
+
+                switch (type) {
+                    case LogFormat.SESSION:
+                        readSession();
+                        break;
+                    case LogFormat.FINGERPRINT:
+                        readFingerprint();
+                        break;
+                    case LogFormat.DISPATCH:
+                        return readDispatch();
+                    default:
+                        throw new IOException(String.format("Unknown record type %d", type));
+                }
+            }
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    private void readSession() throws IOException {
+        this.timestamp = in.readLong();
+        int count = (int) LogFormat.readVarLong(in);
+        List<String> nodes = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            nodes.add(in.readUTF());
+        }
+        this.nodes = nodes;
+        this.fingerprints.clear();
+    }
+
+    private void readFingerprint() throws IOException {
+        int id = (int) LogFormat.readVarLong(in);
+        long[] words = new long[(int) LogFormat.readVarLong(in)];
+        for(int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+
+        BitSet granted = BitSet.valueOf(words);
+        List<String> permissions = new ArrayList<>();
+        for(int i = granted.nextSetBit(0); i >= 0 && i < nodes.size(); i = granted.nextSetBit(i + 1)) {
+            permissions.add(nodes.get(i));
+        }
+        fingerprints.put(id, Collections.unmodifiableList(permissions));
+    }
+
+    private RecordedDispatch readDispatch() throws IOException {
+        timestamp += LogFormat.readSignedVarLong(in);
+        int kind = in.readUnsignedByte();
+        int fingerprint = (int) LogFormat.readVarLong(in);
+        String label = in.readUTF();
+        String[] args = new String[(int) LogFormat.readVarLong(in)];
+        for(int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        List<String> permissions = fingerprints.get(fingerprint);
+        if(permissions == null) throw new IOException(String.format("Unknown permission fingerprint %d", fingerprint));
+        SenderKind senderKind = kind < SENDER_KINDS.length ? SENDER_KINDS[kind] : SenderKind.OTHER;
+        return new RecordedDispatch(timestamp, senderKind, permissions, label, args);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
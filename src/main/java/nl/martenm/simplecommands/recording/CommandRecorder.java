@@ -0,0 +1,398 @@
+package nl.martenm.simplecommands.recording;
+
+import nl.martenm.simplecommands.RootCommand;
+import nl.martenm.simplecommands.SimpleCommand;
+import nl.martenm.simplecommands.misc.SenderKey;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import org.bukkit.command.CommandSender;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the dispatches of a command tree to an append-only binary log, see {@link LogFormat}.
+ * The log can be read with {@link CommandLogReader} and replayed to benchmark the tree with real traffic.
+ *
+ * Recording is opt-in using {@link RootCommand#setRecorder(CommandRecorder)}. The dispatching thread only
+ * queues the entry; a background thread writes it. If the queue is full the dispatch is dropped instead of
+ * waiting, see {@link #getDropped()}.
+ *
+ * Instead of the full permissions the sender gets a fingerprint: the permission nodes of the tree it was granted.
+ * Every distinct fingerprint is written once and cached per sender for a short time.
+ * If the tree is frozen and uses {@link PermissionBitSets} the fingerprint is read from the bit set of the sender.
+ * Otherwise only the nodes on the dispatched paths are checked, so a fingerprint holds the granted nodes the sender used.
+ */
+public class CommandRecorder implements AutoCloseable {
+
+    private static final int QUEUE_SIZE = 8192;
+    private static final long FINGERPRINT_MILLIS = 10000;
+    private static final int MAX_SENDERS = 1024;
+    private static final int MAX_FINGERPRINTS = 4096;
+
+    // Longer arguments might not fit in the modified UTF-8 strings of the log.
+    private static final int MAX_ARGUMENT_LENGTH = 16384;
+
+    // Tells the writer to stop.
+    private static final Object STOP = new Object();
+
+    private final RootCommand root;
+    private final List<String> nodes;
+
+    // The first command of each node, used to find its bit in the permission bit sets.
+    private final List<SimpleCommand> owners;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final DataOutputStream out;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread writer;
+
+    // Fingerprint ids by the granted nodes. Guarded by itself.
+    private final Map<BitSet, Integer> fingerprints = new HashMap<>();
+    private final Map<Object, CachedFingerprint> senders = new ConcurrentHashMap<>();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed = false;
+    private volatile IOException error = null;
+
+    // Only used by the writer thread.
+    private long lastTimestamp;
+
+    /**
+     * Starts recording to the file. Records are appended if the file already exists.
+     * @param root The top command of the tree, its permission nodes are used for the fingerprints
+     * @param file The log file
+     * @throws IOException If the file could not be opened
+     */
+    public CommandRecorder(RootCommand root, File file) throws IOException {
+        Map<String, SimpleCommand> collected = new LinkedHashMap<>();
+        collectNodes(root, collected);
+
+        this.root = root;
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(collected.keySet()));
+        this.owners = new ArrayList<>(collected.values());
+        for(int i = 0; i < nodes.size(); i++) {
+            indexes.put(nodes.get(i), i);
+        }
+
+        boolean empty = !file.exists() || file.length() == 0;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if(empty) {
+            out.writeInt(LogFormat.MAGIC);
+            out.writeByte(LogFormat.VERSION);
+        }
+
+        this.lastTimestamp = System.currentTimeMillis();
+        out.writeByte(LogFormat.SESSION);
+        out.writeLong(lastTimestamp);
+        LogFormat.writeVarLong(out, nodes.size());
+        for(String node : nodes) {
+            out.writeUTF(node);
+        }
+        out.flush();
+
+        this.writer = new Thread(this::write, "SimpleCommands recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void collectNodes(SimpleCommand command, Map<String, SimpleCommand> nodes) {
+        String permission = command.getFullPermission();
+        if(permission != null) nodes.putIfAbsent(permission, command);
+
+        if(command instanceof RootCommand) {
+            for(SimpleCommand child : ((RootCommand) command).getSubCommands()) {
+                collectNodes(child, nodes);
+            }
+        }
+    }
+
+    /**
+     * Records a dispatch. Called by the top command of the tree, this does not block.
+     * @param sender The sender
+     * @param label The label that was used
+     * @param args The arguments
+     */
+    public void record(CommandSender sender, String label, String[] args) {
+        if(closed) return;
+
+        int length = label.length();
+        for(String arg : args) {
+            length = Math.max(length, arg.length());
+        }
+        if(length > MAX_ARGUMENT_LENGTH) {
+            dropped.increment();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int fingerprint = fingerprint(sender, args, now);
+        if(fingerprint < 0 || !queue.offer(new Dispatch(now, SenderKind.of(sender), fingerprint, label, args.clone()))) {
+            dropped.increment();
+            return;
+        }
+        recorded.increment();
+    }
+
+    /**
+     * Gets the fingerprint id of the sender, queueing the fingerprint if it is new.
+     * @return The id or -1 if the fingerprint could not be queued
+     */
+    private int fingerprint(CommandSender sender, String[] args, long now) {
+        Object key = SenderKey.of(sender);
+        CachedFingerprint cached = senders.get(key);
+        if(cached != null && now - cached.time >= FINGERPRINT_MILLIS) cached = null;
+        if(cached != null && cached.complete) return cached.id;
+
+        BitSet checked;
+        BitSet granted;
+        BitSet bits = getPermissionBits(sender);
+        if(bits != null) {
+            // The bit set already holds every node, no permission is checked here.
+            checked = null;
+            granted = new BitSet(nodes.size());
+            for(int i = 0; i < nodes.size(); i++) {
+                if(bits.get(PermissionBitSets.permissionBit(owners.get(i).getNodeId()))) granted.set(i);
+            }
+        } else {
+            checked = cached == null ? new BitSet(nodes.size()) : (BitSet) cached.checked.clone();
+            granted = cached == null ? new BitSet(nodes.size()) : (BitSet) cached.granted.clone();
+            boolean changed = checkPath(sender, args, checked, granted);
+            if(cached != null && !changed) return cached.id;
+        }
+
+        int id;
+        synchronized (fingerprints) {
+            Integer known = fingerprints.get(granted);
+            if(known != null) {
+                id = known;
+            } else {
+                if(fingerprints.size() >= MAX_FINGERPRINTS) return -1;
+
+                id = fingerprints.size();
+                if(!queue.offer(new Fingerprint(id, granted.toLongArray()))) return -1;
+                fingerprints.put(granted, id);
+            }
+        }
+
+        // Keep the time of the first check, the nodes checked later expire with it.
+        if(senders.size() >= MAX_SENDERS) senders.clear();
+        senders.put(key, new CachedFingerprint(id, cached == null ? now : cached.time, checked, granted));
+        return id;
+    }
+
+    /**
+     * Gets the permission bits of the sender if every node has an id in them.
+     * @return The bits or null if the nodes should be checked with the sender
+     */
+    private BitSet getPermissionBits(CommandSender sender) {
+        if(!root.isFrozen()) return null;
+
+        PermissionBitSets bitSets = root.getPermissionBitSets();
+        if(bitSets == null) return null;
+
+        for(SimpleCommand owner : owners) {
+            if(owner.getNodeId() < 0) return null;
+        }
+        return bitSets.lookup(sender);
+    }
+
+    /**
+     * Checks the nodes on the path of the arguments that were not checked yet.
+     * @return True if a node was checked
+     */
+    private boolean checkPath(CommandSender sender, String[] args, BitSet checked, BitSet granted) {
+        boolean changed = check(sender, root, checked, granted);
+
+        SimpleCommand command = root;
+        for(String arg : args) {
+            if(!(command instanceof RootCommand)) break;
+
+            command = ((RootCommand) command).getSubCommand(arg);
+            if(command == null) break;
+            changed |= check(sender, command, checked, granted);
+        }
+        return changed;
+    }
+
+    private boolean check(CommandSender sender, SimpleCommand command, BitSet checked, BitSet granted) {
+        String permission = command.getFullPermission();
+        if(permission == null) return false;
+
+        // Generated sub-commands can have nodes that were not in the tree when recording started.
+        Integer index = indexes.get(permission);
+        if(index == null || checked.get(index)) return false;
+
+        checked.set(index);
+        if(sender.hasPermission(permission)) granted.set(index);
+        return true;
+    }
+
+    /**
+     * Drops the cached fingerprint of the sender. Should be called when the permissions of the sender changed.
+     * @param sender The sender
+     */
+    public void invalidate(CommandSender sender) {
+        senders.remove(SenderKey.of(sender));
+    }
+
+    private void write() {
+        try {
+            while(true) {
+                Object entry = queue.take();
+                if(entry == STOP) break;
+
+                if(entry instanceof CountDownLatch) {
+                    out.flush();
+                    ((CountDownLatch) entry).countDown();
+                } else if(entry instanceof Fingerprint) {
+                    ((Fingerprint) entry).write(out);
+                } else {
+                    Dispatch dispatch = (Dispatch) entry;
+                    dispatch.write(out, lastTimestamp);
+                    lastTimestamp = dispatch.timestamp;
+                }
+
+                if(queue.isEmpty()) out.flush();
+            }
+        } catch (IOException ex) {
+            this.error = ex;
+            this.closed = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                if(error == null) error = ex;
+            }
+
+            // Release threads waiting for a flush that will not happen anymore.
+            for(Object entry : queue) {
+                if(entry instanceof CountDownLatch) ((CountDownLatch) entry).countDown();
+            }
+        }
+    }
+
+    /**
+     * Waits until all queued dispatches have been written.
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        if(!writer.isAlive()) return;
+
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.put(latch);
+        while(!latch.await(100, TimeUnit.MILLISECONDS)) {
+            if(!writer.isAlive()) return;
+        }
+    }
+
+    /**
+     * Stops recording. The queued dispatches are written first.
+     * @throws IOException If writing the log failed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            if(writer.isAlive()) queue.put(STOP);
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(error != null) throw error;
+    }
+
+    /**
+     * @return The permission nodes used for the fingerprints
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The amount of dispatches that were queued
+     */
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    /**
+     * @return The amount of dispatches that were dropped because the writer could not keep up
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private static final class CachedFingerprint {
+        final int id;
+        final long time;
+
+        // The nodes that were checked, null if all were read from the permission bit sets.
+        final BitSet checked;
+        final BitSet granted;
+        final boolean complete;
+
+        CachedFingerprint(int id, long time, BitSet checked, BitSet granted) {
+            this.id = id;
+            this.time = time;
+            this.checked = checked;
+            this.granted = granted;
+            this.complete = checked == null;
+        }
+    }
+
+    private static final class Fingerprint {
+        final int id;
+        final long[] granted;
+
+        Fingerprint(int id, long[] granted) {
+            this.id = id;
+            this.granted = granted;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(LogFormat.FINGERPRINT);
+            LogFormat.writeVarLong(out, id);
+            LogFormat.writeVarLong(out, granted.length);
+            for(long word : granted) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    private static final class Dispatch {
+        final long timestamp;
+        final SenderKind senderKind;
+        final int fingerprint;
+        final String label;
+        final String[] args;
+
+        Dispatch(long timestamp, SenderKind senderKind, int fingerprint, String label, String[] args) {
+            this.timestamp = timestamp;
+            this.senderKind = senderKind;
+            this.fingerprint = fingerprint;
+            this.label = label;
+            this.args = args;
+        }
+
+        void write(DataOutputStream out, long previous) throws IOException {
+            out.writeByte(LogFormat.DISPATCH);
+            LogFormat.writeSignedVarLong(out, timestamp - previous);
+            out.writeByte(senderKind.ordinal());
+            LogFormat.writeVarLong(out, fingerprint);
+            out.writeUTF(label);
+            LogFormat.writeVarLong(out, args.length);
+            for(String arg : args) {
+                out.writeUTF(arg);
+            }
+        }
+    }
+}
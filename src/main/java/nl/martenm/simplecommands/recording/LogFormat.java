@@ -0,0 +1,56 @@
+package nl.martenm.simplecommands.recording;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The binary format of a command log. A log starts with the magic number and the version, followed by records:
+ *  - SESSION: start time and the permission nodes that the fingerprints of the session refer to.
+ *  - FINGERPRINT: id and the bits of the granted nodes, written before the first dispatch that uses it.
+ *  - DISPATCH: time since the previous record, sender kind, fingerprint id, label and arguments.
+ * Numbers are written as variable length integers, so most dispatches only take a few bytes besides the arguments.
+ */
+final class LogFormat {
+
+    static final int MAGIC = 0x53434d52;
+    static final int VERSION = 1;
+
+    static final int SESSION = 0;
+    static final int FINGERPRINT = 1;
+    static final int DISPATCH = 2;
+
+    private LogFormat() {
+
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Writes a signed number, small negative numbers (like a clock going back) stay small.
+     */
+    static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
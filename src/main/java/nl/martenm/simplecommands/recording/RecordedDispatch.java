@@ -0,0 +1,51 @@
+package nl.martenm.simplecommands.recording;
+
+import java.util.List;
+
+/**
+ * One dispatch read back from a command log.
+ */
+public final class RecordedDispatch {
+
+    private final long timestamp;
+    private final SenderKind senderKind;
+    private final List<String> permissions;
+    private final String label;
+    private final String[] args;
+
+    RecordedDispatch(long timestamp, SenderKind senderKind, List<String> permissions, String label, String[] args) {
+        this.timestamp = timestamp;
+        this.senderKind = senderKind;
+        this.permissions = permissions;
+        this.label = label;
+        this.args = args;
+    }
+
+    /**
+     * @return The time of the dispatch in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public SenderKind getSenderKind() {
+        return senderKind;
+    }
+
+    /**
+     * Gets the recorded permission nodes the sender had. Dispatches of senders with the same permissions
+     * share the same list.
+     * @return The granted permission nodes
+     */
+    public List<String> getPermissions() {
+        return permissions;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String[] getArgs() {
+        return args.clone();
+    }
+}
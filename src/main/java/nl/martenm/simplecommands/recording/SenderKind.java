@@ -0,0 +1,28 @@
+package nl.martenm.simplecommands.recording;
+
+import nl.martenm.simplecommands.misc.BufferedCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+
+/**
+ * The kind of sender of a recorded dispatch.
+ */
+public enum SenderKind {
+    PLAYER,
+    CONSOLE,
+    OTHER;
+
+    /**
+     * Gets the kind of the sender.
+     * @param sender The sender
+     * @return The kind
+     */
+    public static SenderKind of(CommandSender sender) {
+        if(sender instanceof BufferedCommandSender) sender = ((BufferedCommandSender) sender).getSender();
+
+        if(sender instanceof Player) return PLAYER;
+        if(sender instanceof ConsoleCommandSender) return CONSOLE;
+        return OTHER;
+    }
+}
@@ -0,0 +1,102 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.PermissiblePlayerSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.util.Allocations;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+/**
+ * Checks the bytes allocated by one dispatch or tab completion after warm-up.
+ * A budget of {@link Allocations#NONE} means the call may not allocate at all.
+ */
+public class AllocationBudgetTest {
+
+    private PermissiblePlayerSender sender;
+    private RootCommand root;
+    private Leaf leaf;
+
+    @BeforeEach
+    public void setup() {
+        Assumptions.assumeTrue(Allocations.isSupported(), "The JVM does not count allocated bytes per thread");
+
+        this.sender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        sender.setPermission("perm.leaf", true);
+        sender.setPermission("perm.branch.leaf", true);
+
+        this.root = new SimpleRoot("root", false);
+        this.leaf = new Leaf("leaf", "perm.leaf");
+        root.addCommand(leaf);
+        root.addCommand(new Leaf("list", "perm.list"));
+        root.addCommand(new Leaf("lobby", null));
+
+        SimpleRoot branch = new SimpleRoot("branch", false);
+        branch.addCommand(new Leaf("leaf", "perm.branch.leaf"));
+        root.addCommand(branch);
+    }
+
+    @Test
+    public void testLeafDispatch() {
+        String[] args = {"leaf"};
+        double bytes = Allocations.measure(() -> root.onCommand(sender, null, "root", args));
+        assert leaf.executions > 0;
+        assert bytes < Allocations.NONE : String.format("A leaf dispatch allocated %.1f bytes", bytes);
+    }
+
+    @Test
+    public void testFrozenLeafDispatch() {
+        root.freeze();
+        root.enablePermissionBitSets(10);
+
+        String[] args = {"leaf"};
+        double bytes = Allocations.measure(() -> root.onCommand(sender, null, "root", args));
+        assert leaf.executions > 0;
+        assert bytes < Allocations.NONE : String.format("A frozen leaf dispatch allocated %.1f bytes", bytes);
+    }
+
+    @Test
+    public void testNestedDispatch() {
+        // Only the arguments passed to the branch are copied.
+        String[] args = {"branch", "leaf"};
+        double bytes = Allocations.measure(() -> root.onCommand(sender, null, "root", args));
+        assert bytes <= 24 : String.format("A nested dispatch allocated %.1f bytes", bytes);
+    }
+
+    @Test
+    public void testSubCommandCompletion() {
+        String[] args = {"l"};
+        assert root.onTabComplete(sender, null, "root", args).size() == 2;
+
+        // The result list, the list of allowed sub-commands and the completions of every allowed sub-command.
+        double bytes = Allocations.measure(() -> root.onTabComplete(sender, null, "root", args));
+        assert bytes <= 768 : String.format("A sub-command completion allocated %.1f bytes", bytes);
+    }
+
+    @Test
+    public void testLeafCompletion() {
+        // The remaining arguments and the empty result list of the leaf.
+        String[] args = {"leaf", ""};
+        double bytes = Allocations.measure(() -> root.onTabComplete(sender, null, "root", args));
+        assert bytes <= 48 : String.format("A leaf completion allocated %.1f bytes", bytes);
+    }
+
+    private static class Leaf extends SimpleCommand {
+
+        private int executions = 0;
+
+        Leaf(String name, String permission) {
+            super(name, permission, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            executions++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.ArgumentMemo;
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ArgumentMemoTest {
+
+    private CountingArgument argument;
+
+    @BeforeEach
+    public void setup() {
+        this.argument = new CountingArgument();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws ParseFailedException {
+        argument.parse("world");
+        argument.parse("world");
+        assert argument.getMemo() == null;
+        assert argument.parsed.get() == 2;
+    }
+
+    @Test
+    public void testHitRate() throws ParseFailedException {
+        argument.enableMemo(10000, 10);
+        assert argument.parse("world").equals("WORLD");
+        assert argument.parse("world").equals("WORLD");
+        assert argument.parse("world").equals("WORLD");
+        argument.parse("nether");
+
+        ArgumentMemo<String> memo = argument.getMemo();
+        assert argument.parsed.get() == 2;
+        assert memo.getHits() == 2;
+        assert memo.getMisses() == 2;
+        assert memo.getHitRate() == 0.5;
+    }
+
+    @Test
+    public void testFailuresMemoized() {
+        argument.enableMemo(10000, 10);
+        for(int i = 0; i < 3; i++) {
+            try {
+                argument.parse("fail");
+                assert false;
+            } catch (ParseFailedException ex) {
+                assert ex.getMessage().equals("Unknown world");
+            }
+        }
+        assert argument.parsed.get() == 1;
+    }
+
+    @Test
+    public void testExpiry() throws ParseFailedException {
+        AtomicLong time = new AtomicLong();
+        argument.enableMemo(10, 10, time::get);
+        argument.parse("world");
+
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(9));
+        argument.parse("world");
+        assert argument.parsed.get() == 1;
+
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        argument.parse("world");
+        assert argument.parsed.get() == 2;
+    }
+
+    @Test
+    public void testBounded() throws ParseFailedException {
+        argument.enableMemo(10000, 16);
+        for(int i = 0; i < 1000; i++) {
+            argument.parse("world" + i);
+            assert argument.getMemo().size() <= 16;
+        }
+    }
+
+    private static class CountingArgument extends SimpleCommandArgument<String> {
+
+        private final AtomicInteger parsed = new AtomicInteger();
+
+        CountingArgument() {
+            super("world");
+        }
+
+        @Override
+        protected String parseArgument(String argument) throws ParseFailedException {
+            parsed.incrementAndGet();
+            if(argument.equals("fail")) throw new ParseFailedException("Unknown world");
+            return argument.toUpperCase();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleAsyncCommandArgument;
+import nl.martenm.simplecommands.arguments.SimpleParsedCommand;
+import nl.martenm.simplecommands.arguments.prefab.SimpleArgumentInteger;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+public class AsyncArgumentTest {
+
+    // Tasks queued for the main thread, run by the test with runMain.
+    private Queue<Runnable> mainTasks;
+    private Semaphore queued;
+    private ConsoleSender consoleSender;
+
+    @BeforeEach
+    public void setup() {
+        this.mainTasks = new ConcurrentLinkedQueue<>();
+        this.queued = new Semaphore(0);
+        this.consoleSender = new ConsoleSender("Console sender");
+    }
+
+    @Test
+    public void testConcurrentResolution() {
+        LookupArgument first = new LookupArgument("first");
+        LookupArgument second = new LookupArgument("second");
+        LookupCommand cmd = new LookupCommand(first, second);
+
+        cmd.onCommand(consoleSender, null, "lookup", new String[] {"5", "a", "b"});
+
+        // Both lookups are started before either one completes.
+        assert first.lookups.size() == 1;
+        assert second.lookups.size() == 1;
+
+        second.lookups.get(0).complete("B");
+        assert mainTasks.isEmpty();
+        first.lookups.get(0).complete("A");
+
+        // The handler runs on the main thread.
+        assert cmd.parsed == null;
+        runMain();
+        assert cmd.parsed.get(0).equals(5);
+        assert cmd.parsed.get(1).equals("A");
+        assert cmd.parsed.get(2).equals("B");
+    }
+
+    @Test
+    public void testFirstFailure() {
+        LookupArgument first = new LookupArgument("first");
+        LookupArgument second = new LookupArgument("second");
+        LookupCommand cmd = new LookupCommand(first, second);
+
+        cmd.onCommand(consoleSender, null, "lookup", new String[] {"5", "a", "b"});
+        second.lookups.get(0).completeExceptionally(new ParseFailedException("fail"));
+
+        // The other lookup is cancelled right away.
+        assert first.lookups.get(0).isCancelled();
+        runMain();
+
+        assert cmd.parsed == null;
+        assert consoleSender.getMessages().size() == 1;
+        assert consoleSender.hasReceived("second: fail");
+    }
+
+    @Test
+    public void testSyncFailure() {
+        LookupArgument first = new LookupArgument("first");
+        LookupArgument second = new LookupArgument("second");
+        LookupCommand cmd = new LookupCommand(first, second);
+
+        cmd.onCommand(consoleSender, null, "lookup", new String[] {"five", "a", "b"});
+
+        assert first.lookups.isEmpty();
+        assert mainTasks.isEmpty();
+        assert consoleSender.getMessages().size() == 1;
+    }
+
+    @Test
+    public void testBugIsRethrown() {
+        LookupArgument first = new LookupArgument("first");
+        LookupArgument second = new LookupArgument("second");
+        LookupCommand cmd = new LookupCommand(first, second);
+
+        cmd.onCommand(consoleSender, null, "lookup", new String[] {"5", "a", "b"});
+        first.lookups.get(0).completeExceptionally(new IllegalStateException("bug"));
+        assert second.lookups.get(0).isCancelled();
+
+        RuntimeException ex = Assertions.assertThrows(RuntimeException.class, this::runMain);
+        assert ex.getCause() instanceof IllegalStateException;
+        assert consoleSender.getMessages().isEmpty();
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        LookupArgument first = new LookupArgument("first");
+        LookupArgument slow = new LookupArgument("slow");
+        slow.setTimeoutMillis(1);
+        LookupCommand cmd = new LookupCommand(first, slow);
+
+        cmd.onCommand(consoleSender, null, "lookup", new String[] {"5", "a", "b"});
+
+        // The lookups never complete, the timeout queues the error.
+        assert queued.tryAcquire(10, TimeUnit.SECONDS);
+        runMain();
+        assert consoleSender.hasReceived("slow: Timed out");
+        assert cmd.parsed == null;
+        assert first.lookups.get(0).isCancelled();
+        assert slow.lookups.get(0).isCancelled();
+    }
+
+    @Test
+    public void testSyncFallback() throws Exception {
+        LookupArgument argument = new LookupArgument("first") {
+            @Override
+            protected CompletableFuture<String> parseArgumentAsync(String argument) {
+                if(argument.equals("fail")) {
+                    CompletableFuture<String> future = new CompletableFuture<>();
+                    future.completeExceptionally(new ParseFailedException("fail"));
+                    return future;
+                }
+                return CompletableFuture.completedFuture(argument.toUpperCase());
+            }
+        };
+        assert argument.parse("a").equals("A");
+
+        try {
+            argument.parse("fail");
+            assert false;
+        } catch (ParseFailedException ex) {
+            assert ex.getMessage().equals("fail");
+        }
+    }
+
+    @Test
+    public void testSyncFallbackDoesNotWait() {
+        LookupArgument argument = new LookupArgument("first");
+        argument.enableMemo(10000, 10);
+
+        // The lookup never completes, parsing fails right away instead of waiting for the timeout.
+        long start = System.nanoTime();
+        for(int i = 0; i < 2; i++) {
+            try {
+                argument.parse("slow");
+                assert false;
+            } catch (ParseFailedException ex) {
+                assert ex.getMessage().equals("Not available right away");
+            }
+        }
+        assert System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(argument.getTimeoutMillis());
+
+        // Both lookups were cancelled, the failure was not memoized.
+        assert argument.lookups.size() == 2;
+        assert argument.lookups.get(0).isCancelled();
+        assert argument.lookups.get(1).isCancelled();
+    }
+
+    private void runMain() {
+        Runnable task;
+        while((task = mainTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private class LookupCommand extends SimpleParsedCommand {
+
+        private List<Object> parsed;
+
+        LookupCommand(LookupArgument first, LookupArgument second) {
+            super("lookup", false);
+            addArgument(new SimpleArgumentInteger("number"));
+            addArgument(first);
+            addArgument(second);
+            setSyncExecutor(task -> {
+                mainTasks.add(task);
+                queued.release();
+            });
+        }
+
+        @Override
+        public boolean onArgumentCommand(CommandSender sender, Command command, String s, String[] args, List<Object> parsed) {
+            this.parsed = parsed;
+            return true;
+        }
+    }
+
+    /**
+     * Argument whose lookups are completed by the test.
+     */
+    private static class LookupArgument extends SimpleAsyncCommandArgument<String> {
+
+        private final List<CompletableFuture<String>> lookups = new CopyOnWriteArrayList<>();
+
+        LookupArgument(String name) {
+            super(name, "%name%: %reason%");
+        }
+
+        @Override
+        protected CompletableFuture<String> parseArgumentAsync(String argument) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            lookups.add(future);
+            return future;
+        }
+
+        @Override
+        public List<String> onTabCompletion(String arg) {
+            return null;
+        }
+    }
+}
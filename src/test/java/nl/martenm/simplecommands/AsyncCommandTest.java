@@ -0,0 +1,138 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import nl.martenm.simplecommands.permissions.PermissionSnapshot;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncCommandTest {
+
+    private ExecutorService asyncThread;
+    private RootCommand root;
+    private LookupCommand lookup;
+    private ThreadCheckingSender sender;
+
+    @BeforeEach
+    public void setup() {
+        this.asyncThread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "async"));
+        this.root = new RootCommand("stats", "stats", false) {
+
+        };
+        this.lookup = new LookupCommand();
+        root.addCommand(lookup);
+        root.addCommand(new SimpleCommand("reset", "+reset", false) {
+            @Override
+            public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+                return true;
+            }
+        });
+        root.setAsyncExecutor(asyncThread);
+
+        this.sender = new ThreadCheckingSender();
+        sender.addPermission("stats");
+        sender.addPermission("stats.lookup.others");
+    }
+
+    @AfterEach
+    public void teardown() {
+        asyncThread.shutdownNow();
+    }
+
+    @Test
+    public void testSnapshotNodes() {
+        assert lookup.getSnapshotNodes().contains("stats.reset");
+        assert lookup.getSnapshotNodes().contains("stats.lookup.others");
+    }
+
+    @Test
+    public void testFrozenNodesFollowChanges() {
+        List<SimpleCommand> generated = new ArrayList<>();
+        root.addSubCommandProvider(() -> generated);
+        root.freeze();
+        assert lookup.getSnapshotNodes() == lookup.getSnapshotNodes();
+
+        // Generated sub-commands can still change on a frozen tree.
+        generated.add(new SimpleCommand("generated", "+generated", false) {
+            @Override
+            public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+                return true;
+            }
+        });
+        root.invalidateSubCommands();
+        assert lookup.getSnapshotNodes().contains("stats.generated");
+
+        generated.clear();
+        root.invalidateSubCommands();
+        assert !lookup.getSnapshotNodes().contains("stats.generated");
+    }
+
+    @Test
+    public void testHandlerUsesSnapshot() throws Exception {
+        root.onCommand(sender, null, "stats", new String[] {"lookup", "Notch"});
+        PermissionSnapshot permissions = lookup.result.get(10, TimeUnit.SECONDS);
+
+        assert lookup.handlerThread.equals("async");
+        assert permissions.hasPermission("stats.lookup.others");
+        assert permissions.contains("stats.reset");
+        assert !permissions.hasPermission("stats.reset");
+        assert lookup.allowedReset.equals(Boolean.FALSE);
+
+        // Nodes outside the snapshot are denied.
+        assert !permissions.contains("other.node");
+        assert !permissions.hasPermission("other.node");
+
+        // The sender was only asked on the main thread.
+        assert sender.offThreadChecks.get() == 0;
+    }
+
+    private class LookupCommand extends SimpleAsyncCommand {
+
+        private final CompletableFuture<PermissionSnapshot> result = new CompletableFuture<>();
+        private volatile String handlerThread;
+        private volatile Boolean allowedReset;
+
+        LookupCommand() {
+            super("lookup", false);
+        }
+
+        @Override
+        protected void onAsyncCommand(CommandSender sender, Command command, String s, String[] args, PermissionSnapshot permissions) {
+            handlerThread = Thread.currentThread().getName();
+            // Framework checks on this thread are answered by the snapshot.
+            allowedReset = root.getSubCommands().stream()
+                    .filter(cmd -> cmd.getName().equals("reset"))
+                    .allMatch(cmd -> cmd.checkPermission(sender));
+            result.complete(permissions);
+        }
+
+        @Override
+        protected Collection<String> getSnapshotPermissions() {
+            return Collections.singletonList("stats.lookup.others");
+        }
+    }
+
+    private static class ThreadCheckingSender extends PlayerSender {
+
+        private final AtomicInteger offThreadChecks = new AtomicInteger();
+
+        ThreadCheckingSender() {
+            super("Player sender");
+        }
+
+        @Override
+        public boolean hasPermission(String s) {
+            if(Thread.currentThread().getName().equals("async")) offThreadChecks.incrementAndGet();
+            return super.hasPermission(s);
+        }
+    }
+}
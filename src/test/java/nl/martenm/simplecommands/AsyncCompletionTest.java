@@ -0,0 +1,174 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.AsyncTabCompletion;
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import nl.martenm.simplecommands.arguments.SimpleParsedCommand;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.completion.AsyncCompletions;
+import nl.martenm.simplecommands.completion.CompletionCache;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class AsyncCompletionTest {
+
+    private static final List<String> HOMES = Arrays.asList("base", "bakery", "farm", "mine");
+
+    // Queries answered by the test while the database stalls.
+    private Map<String, CompletableFuture<List<String>>> stalled;
+    private boolean stall;
+    private AtomicInteger queries;
+
+    @BeforeEach
+    public void setup() {
+        this.stalled = new ConcurrentHashMap<>();
+        this.stall = false;
+        this.queries = new AtomicInteger();
+    }
+
+    @Test
+    public void testFastCompletion() {
+        HomeArgument argument = new HomeArgument();
+        assert argument.complete("ba").equals(Arrays.asList("base", "bakery"));
+    }
+
+    @Test
+    public void testDeadlineFallsBackToPrefix() {
+        HomeArgument argument = new HomeArgument();
+        assert argument.complete("b").equals(Arrays.asList("base", "bakery"));
+
+        // The database stalls, the completions of "b" are narrowed instead.
+        stall = true;
+        assert argument.complete("bak").equals(Arrays.asList("bakery"));
+
+        // Nothing cached at all gives an empty list.
+        assert argument.complete("f").isEmpty();
+
+        // The result is stored when it arrives, for the next keystroke.
+        answer("f");
+        assert argument.getAsyncCompletions().getCached("f").equals(Arrays.asList("farm"));
+        assert argument.complete("fa").equals(Arrays.asList("farm"));
+    }
+
+    @Test
+    public void testPendingNotRepeated() {
+        HomeArgument argument = new HomeArgument();
+        stall = true;
+
+        argument.complete("m");
+        argument.complete("m");
+        argument.complete("m");
+        assert queries.get() == 1;
+
+        // Once answered the input is queried again.
+        answer("m");
+        argument.complete("m");
+        assert queries.get() == 2;
+    }
+
+    @Test
+    public void testNeverCompletedIsGivenUp() {
+        AtomicLong time = new AtomicLong();
+        AsyncCompletions completions = new AsyncCompletions(10, time::get);
+        Function<String, CompletableFuture<List<String>>> provider = input -> {
+            queries.incrementAndGet();
+            return new CompletableFuture<>();
+        };
+
+        assert completions.complete("m", provider, 0).isEmpty();
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(AsyncCompletions.MIN_PENDING_MILLIS));
+        completions.complete("m", provider, 0);
+        assert queries.get() == 1;
+
+        // The query never completes, once it is too old the input is queried again.
+        time.addAndGet(1);
+        completions.complete("m", provider, 0);
+        assert queries.get() == 2;
+        assert completions.getPending() == 1;
+    }
+
+    @Test
+    public void testPendingBounded() {
+        AsyncCompletions completions = new AsyncCompletions(10);
+        for(int i = 0; i < 100; i++) {
+            completions.complete("input" + i, input -> new CompletableFuture<>(), 0);
+            assert completions.getPending() <= 10;
+        }
+    }
+
+    @Test
+    public void testParsedCommandCompletion() {
+        HomeCommand cmd = new HomeCommand();
+        cmd.setCompletionCache(new CompletionCache(10000, 10));
+        ConsoleSender sender = new ConsoleSender("Console sender");
+
+        List<String> completions = cmd.onTabComplete(sender, null, "home", new String[] {"fa"});
+        assert completions.equals(Arrays.asList("farm"));
+    }
+
+    /**
+     * Answers the stalled query of the input.
+     */
+    private void answer(String input) {
+        stalled.remove(input).complete(query(input));
+    }
+
+    private static List<String> query(String input) {
+        return HOMES.stream().filter(home -> home.startsWith(input)).collect(Collectors.toList());
+    }
+
+    private class HomeArgument extends SimpleCommandArgument<String> implements AsyncTabCompletion {
+
+        HomeArgument() {
+            super("home");
+        }
+
+        @Override
+        protected String parseArgument(String argument) throws ParseFailedException {
+            return argument;
+        }
+
+        @Override
+        public CompletableFuture<List<String>> onTabCompletionAsync(String input) {
+            queries.incrementAndGet();
+            if(!stall) return CompletableFuture.completedFuture(query(input));
+
+            CompletableFuture<List<String>> future = new CompletableFuture<>();
+            stalled.put(input, future);
+            return future;
+        }
+
+        @Override
+        public long getCompletionDeadlineMillis() {
+            // A stalled query is never done in time, no need to wait for it.
+            return 0;
+        }
+    }
+
+    private class HomeCommand extends SimpleParsedCommand {
+
+        HomeCommand() {
+            super("home", false);
+            addArgument(new HomeArgument());
+            addArgument(new HomeArgument());
+        }
+
+        @Override
+        protected boolean onArgumentCommand(CommandSender sender, Command command, String s, String[] args, List<Object> parsedArgs) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package nl.martenm.simplecommands;
+
+import com.mojang.brigadier.arguments.DoubleArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.tree.ArgumentCommandNode;
+import com.mojang.brigadier.tree.CommandNode;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import nl.martenm.simplecommands.brigadier.BrigadierExporter;
+import nl.martenm.simplecommands.implementations.RootTestCommand;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class BrigadierExporterTest {
+
+    private ConsoleSender consoleSender;
+    private PlayerSender playerSender;
+    private RootTestCommand testCommand;
+
+    @BeforeEach
+    public void setup() {
+        this.consoleSender = new ConsoleSender("Console sender");
+        this.playerSender = new PlayerSender("Player sender");
+        this.testCommand = new RootTestCommand();
+    }
+
+    @Test
+    public void testExportStructure() {
+        LiteralCommandNode<Object> node = BrigadierExporter.export(testCommand, consoleSender);
+        assert node.getName().equals("test");
+        assert node.getCommand() != null;
+
+        assert node.getChild("always") != null;
+        assert node.getChild("nestedAlways").getChild("1").getChild("always") != null;
+
+        // Aliases redirect to the command node.
+        assert node.getChild("aa").getRedirect() == node.getChild("aliases");
+    }
+
+    @Test
+    public void testExportArgumentTypes() {
+        LiteralCommandNode<Object> node = BrigadierExporter.export(testCommand, consoleSender);
+
+        CommandNode<Object> integer = node.getChild("parsed").getChild("someInteger");
+        assert ((ArgumentCommandNode<Object, ?>) integer).getType() instanceof IntegerArgumentType;
+        assert integer.getCommand() == null;
+
+        CommandNode<Object> someDouble = integer.getChild("someDouble");
+        assert ((ArgumentCommandNode<Object, ?>) someDouble).getType() instanceof DoubleArgumentType;
+
+        CommandNode<Object> string = someDouble.getChild("someFloat").getChild("someString");
+        assert ((ArgumentCommandNode<Object, ?>) string).getType() instanceof StringArgumentType;
+        assert string.getCommand() != null;
+
+        // The last token accepts any text, the server parses it.
+        assert ((StringArgumentType) ((ArgumentCommandNode<Object, ?>) string).getType()).getType() == StringArgumentType.StringType.GREEDY_PHRASE;
+    }
+
+    @Test
+    public void testTextTypes() {
+        assert BrigadierExporter.getTextType(true).getType() == StringArgumentType.StringType.GREEDY_PHRASE;
+        assert BrigadierExporter.getTextType(false).getType() == StringArgumentType.StringType.QUOTABLE_PHRASE;
+    }
+
+    @Test
+    public void testExportPermissionFilter() {
+        LiteralCommandNode<Object> console = BrigadierExporter.export(testCommand, consoleSender);
+        assert console.getChild("permission") != null;
+        assert console.getChild("playerOnly") == null;
+
+        LiteralCommandNode<Object> player = BrigadierExporter.export(testCommand, playerSender);
+        assert player.getChild("permission") == null;
+        assert player.getChild("nestedPermission") == null;
+        assert player.getChild("playerOnly") != null;
+
+        playerSender.addPermission("permission");
+        player = BrigadierExporter.export(testCommand, playerSender);
+        assert player.getChild("permission") != null;
+    }
+
+    @Test
+    public void testExportWithAliases() {
+        List<LiteralCommandNode<Object>> nodes = BrigadierExporter.exportWithAliases(testCommand, consoleSender);
+        assert nodes.size() == 2;
+        assert nodes.get(1).getName().equals("t");
+        assert nodes.get(1).getRedirect() == nodes.get(0);
+    }
+}
@@ -0,0 +1,130 @@
+package nl.martenm.simplecommands;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import nl.martenm.simplecommands.implementations.RootTestCommand;
+import nl.martenm.simplecommands.misc.BufferedCommandSender;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BufferedCommandSenderTest {
+
+    @Test
+    public void testFlushConsole() {
+        CountingConsole console = new CountingConsole();
+        BufferedCommandSender buffered = new BufferedCommandSender(console);
+
+        buffered.sendMessage("first");
+        buffered.sendMessage("second", "third");
+        assert console.getMessages().isEmpty();
+        assert buffered.getBufferedCount() == 3;
+
+        buffered.flush();
+        assert console.batches.get() == 1;
+        assert console.getMessages().size() == 3;
+        assert console.getMessages().get(2).equals("third");
+
+        // Nothing left to flush.
+        buffered.flush();
+        assert console.batches.get() == 1;
+    }
+
+    @Test
+    public void testFlushPlayerComponent() {
+        ComponentPlayer player = new ComponentPlayer();
+        BufferedCommandSender buffered = new BufferedCommandSender(player);
+
+        buffered.sendMessage(ChatColor.GOLD + "first");
+        buffered.sendMessage("second");
+        buffered.flush();
+
+        assert player.components.get() == 1;
+        assert player.getMessages().isEmpty();
+
+        // Every line is its own component, so the gold of the first line does not carry over.
+        assert player.texts.equals(Arrays.asList("", ChatColor.GOLD + "first", "\n", "second")) : player.texts;
+    }
+
+    @Test
+    public void testFormatterGetsRealSender() {
+        AtomicBoolean player = new AtomicBoolean();
+        RootTestCommand root = new RootTestCommand();
+        root.setHelpFormatter(new SimpleHelpFormatter() {
+            @Override
+            public void sendHelp(CommandSender sender, List<SimpleCommand> subCommands) {
+                player.set(sender instanceof Player);
+            }
+        });
+
+        root.onCommand(new PlayerSender("Player sender"), null, "test", new String[] {});
+        assert player.get();
+    }
+
+    @Test
+    public void testFlushPlayerWithoutSpigot() {
+        PlayerSender player = new PlayerSender("Player sender");
+        BufferedCommandSender buffered = new BufferedCommandSender(player);
+
+        buffered.sendMessage("first");
+        buffered.sendMessage("second");
+        buffered.flush();
+        assert player.getMessages().size() == 2;
+    }
+
+    @Test
+    public void testHelpBuffered() {
+        CountingConsole console = new CountingConsole();
+        new RootTestCommand().onCommand(console, null, "test", new String[] {});
+
+        assert console.getMessages().size() >= 5;
+        assert console.batches.get() == 1;
+    }
+
+    private static class CountingConsole extends ConsoleSender {
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        CountingConsole() {
+            super("Console sender");
+        }
+
+        @Override
+        public void sendMessage(String... strings) {
+            batches.incrementAndGet();
+            super.sendMessage(strings);
+        }
+    }
+
+    private static class ComponentPlayer extends PlayerSender {
+
+        private final AtomicInteger components = new AtomicInteger();
+        private final List<String> texts = new ArrayList<>();
+
+        ComponentPlayer() {
+            super("Player sender");
+        }
+
+        @Override
+        public Player.Spigot spigot() {
+            return new Player.Spigot() {
+                @Override
+                public void sendMessage(BaseComponent... component) {
+                    components.incrementAndGet();
+                    for(BaseComponent part : component) {
+                        texts.add(((TextComponent) part).getText());
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.SimpleCommandArgument;
+import nl.martenm.simplecommands.arguments.SimpleParsedCommand;
+import nl.martenm.simplecommands.arguments.prefab.SimpleArgumentInteger;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.implementations.SubAlways;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommandWarmupTest {
+
+    private SimpleRoot root;
+    private AtomicInteger executions;
+    private AtomicInteger parsed;
+    private AtomicInteger failures;
+    private AtomicInteger constructed;
+    private LazyCommand lazy;
+
+    @BeforeEach
+    public void setup() {
+        this.executions = new AtomicInteger();
+        this.parsed = new AtomicInteger();
+        this.failures = new AtomicInteger();
+        this.constructed = new AtomicInteger();
+
+        this.root = new SimpleRoot("test", false);
+        root.addCommand(new Leaf("leaf", "perm.leaf", false));
+        root.addCommand(new Leaf("players", null, true));
+        root.addCommand(new Give());
+        root.addCommand(new SubAlways());
+
+        SimpleRoot nested = new SimpleRoot("nested", false);
+        nested.addCommand(new Leaf("deep", "perm.deep", false));
+        root.addCommand(nested);
+
+        this.lazy = root.addLazyCommand("lazy", "Lazy", null, false, () -> {
+            constructed.incrementAndGet();
+            return new Leaf("lazy", null, false);
+        });
+    }
+
+    @Test
+    public void testHandlersAreNotCalled() {
+        CommandWarmup warmup = new CommandWarmup(10, 10000);
+        warmup.add(root);
+        CommandWarmup.Result result = warmup.run();
+
+        // The help of both roots, leaf, players, give, always, deep and lazy.
+        assert result.getPaths() == 8 : result;
+        assert result.getDispatches() == 10 * 8 : result;
+        assert result.getFailed() == 0;
+        assert result.isComplete();
+
+        assert executions.get() == 0;
+        assert constructed.get() == 0;
+        assert !lazy.isInstantiated();
+        assert root.getRejectCounters().getTotal() == 0;
+    }
+
+    @Test
+    public void testArgumentsAreParsed() {
+        CommandWarmup warmup = new CommandWarmup(5, 10000);
+        warmup.add(root);
+        warmup.run();
+
+        // The sample input is the first tab completion that parses. Choosing it tries the coloured name and diamond once.
+        assert parsed.get() == 1 + 5;
+        assert failures.get() == 1;
+        assert executions.get() == 0;
+    }
+
+    @Test
+    public void testExampleInput() {
+        AtomicInteger amounts = new AtomicInteger();
+        root.addCommand(new SimpleParsedCommand("pay", false) {
+            {
+                addArgument(new SimpleArgumentInteger("amount") {
+                    @Override
+                    protected Integer parseArgument(String argument) throws ParseFailedException {
+                        Integer amount = super.parseArgument(argument);
+                        amounts.incrementAndGet();
+                        return amount;
+                    }
+                });
+            }
+
+            @Override
+            protected boolean onArgumentCommand(CommandSender sender, Command command, String s, String[] args, List<Object> parsedArgs) {
+                executions.incrementAndGet();
+                return true;
+            }
+        });
+
+        // The completion of the integer is its coloured name, the example input parses.
+        CommandWarmup warmup = new CommandWarmup(5, 10000);
+        warmup.add(root);
+        warmup.run();
+        assert amounts.get() == 5;
+        assert executions.get() == 0;
+    }
+
+    @Test
+    public void testPermissionBitSetsBypassed() {
+        root.freeze();
+        root.enablePermissionBitSets(10);
+
+        CommandWarmup warmup = new CommandWarmup(5, 10000);
+        warmup.add(root);
+        CommandWarmup.Result result = warmup.run();
+        assert result.getFailed() == 0;
+        assert root.getPermissionBitSets().size() == 0;
+    }
+
+    @Test
+    public void testInstantiatedLazyCommand() {
+        root.onCommand(new ConsoleSender("Console"), null, "test", new String[] {"lazy"});
+        assert executions.get() == 1;
+
+        CommandWarmup warmup = new CommandWarmup(5, 10000);
+        warmup.add(root);
+        warmup.run();
+        assert constructed.get() == 1;
+        assert executions.get() == 1;
+    }
+
+    @Test
+    public void testFailingPathIsLeftOut() {
+        root.addCommand(new SimpleParsedCommand("broken", false) {
+            {
+                addArgument(new SimpleCommandArgument<Object>("value") {
+                    @Override
+                    protected Object parseArgument(String argument) {
+                        throw new IllegalStateException("Broken");
+                    }
+                });
+            }
+
+            @Override
+            protected boolean onArgumentCommand(CommandSender sender, Command command, String s, String[] args, List<Object> parsedArgs) {
+                return true;
+            }
+        });
+
+        CommandWarmup warmup = new CommandWarmup(10, 10000);
+        warmup.add(root);
+        CommandWarmup.Result result = warmup.run();
+        assert result.getFailed() == 1 : result;
+        assert result.getPaths() == 9;
+        assert result.getDispatches() == 10 * 8;
+    }
+
+    @Test
+    public void testTimeBudget() {
+        CommandWarmup warmup = new CommandWarmup(Integer.MAX_VALUE, 50);
+        warmup.add(root);
+        CommandWarmup.Result result = warmup.run();
+        assert !result.isComplete();
+        assert result.getMillis() < 5000;
+    }
+
+    private class Leaf extends SimpleCommand {
+
+        Leaf(String name, String permission, boolean playerOnly) {
+            super(name, permission, playerOnly);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            executions.incrementAndGet();
+            return true;
+        }
+    }
+
+    private class Give extends SimpleParsedCommand {
+
+        Give() {
+            super("give", "perm.give", false);
+            addArgument(new SimpleCommandArgument<String>("item") {
+                @Override
+                protected String parseArgument(String argument) throws ParseFailedException {
+                    if(!argument.equals("diamond")) {
+                        failures.incrementAndGet();
+                        throw new ParseFailedException("Unknown item");
+                    }
+                    parsed.incrementAndGet();
+                    return argument;
+                }
+
+                @Override
+                public List<String> onTabCompletion(String input) {
+                    return Arrays.asList(ChatColor.AQUA + "item" + ChatColor.RESET, ChatColor.GREEN + "diamond", "dirt");
+                }
+            });
+        }
+
+        @Override
+        protected boolean onArgumentCommand(CommandSender sender, Command command, String s, String[] args, List<Object> parsedArgs) {
+            executions.incrementAndGet();
+            return true;
+        }
+    }
+}
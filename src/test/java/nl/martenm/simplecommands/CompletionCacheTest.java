@@ -0,0 +1,150 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.completion.CompletionCache;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.implementations.SubAliases;
+import nl.martenm.simplecommands.implementations.SubAlways;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class CompletionCacheTest {
+
+    private static final List<String> WARPS = Arrays.asList("spawn", "spleef", "shop", "arena");
+
+    private ConsoleSender consoleSender;
+    private AtomicInteger computed;
+    private Function<String, List<String>> completer;
+
+    @BeforeEach
+    public void setup() {
+        this.consoleSender = new ConsoleSender("Console sender");
+        this.computed = new AtomicInteger();
+        this.completer = prefix -> {
+            computed.incrementAndGet();
+            return WARPS.stream().filter(warp -> warp.startsWith(prefix)).collect(Collectors.toList());
+        };
+    }
+
+    @Test
+    public void testNarrowing() {
+        CompletionCache cache = new CompletionCache(10000, 10);
+
+        assert cache.complete(consoleSender, "warp", 0, "s", completer).size() == 3;
+        assert cache.complete(consoleSender, "warp", 0, "sp", completer).equals(Arrays.asList("spawn", "spleef"));
+        assert cache.complete(consoleSender, "warp", 0, "spa", completer).equals(Arrays.asList("spawn"));
+        assert computed.get() == 1;
+
+        // Deleting a character cannot be narrowed.
+        assert cache.complete(consoleSender, "warp", 0, "s", completer).size() == 3;
+        assert computed.get() == 2;
+
+        // Other arguments and commands are computed separately.
+        cache.complete(consoleSender, "warp", 1, "sp", completer);
+        cache.complete(consoleSender, "home", 1, "sp", completer);
+        assert computed.get() == 4;
+    }
+
+    @Test
+    public void testNotNarrowable() {
+        CompletionCache cache = new CompletionCache(10000, 10);
+        Function<String, List<String>> placeholder = prefix -> {
+            computed.incrementAndGet();
+            return Arrays.asList("<warp>");
+        };
+
+        cache.complete(consoleSender, "warp", 0, "s", placeholder);
+        cache.complete(consoleSender, "warp", 0, "s", placeholder);
+        assert computed.get() == 1;
+
+        assert cache.complete(consoleSender, "warp", 0, "sp", placeholder).equals(Arrays.asList("<warp>"));
+        assert computed.get() == 2;
+    }
+
+    @Test
+    public void testExpiry() {
+        AtomicLong time = new AtomicLong();
+        CompletionCache cache = new CompletionCache(10, 10, time::get);
+
+        cache.complete(consoleSender, "warp", 0, "s", completer);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(9));
+        cache.complete(consoleSender, "warp", 0, "sp", completer);
+        assert computed.get() == 1;
+
+        // Narrowing keeps the time of the first completion.
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        cache.complete(consoleSender, "warp", 0, "spa", completer);
+        assert computed.get() == 2;
+    }
+
+    @Test
+    public void testSizeBound() {
+        CompletionCache cache = new CompletionCache(10000, 2);
+        ConsoleSender other = new ConsoleSender("Other");
+        ConsoleSender third = new ConsoleSender("Third");
+
+        cache.complete(consoleSender, "warp", 0, "s", completer);
+        cache.complete(other, "warp", 0, "s", completer);
+        cache.complete(third, "warp", 0, "s", completer);
+        assert cache.size() == 2;
+
+        // The least recently used sender was removed.
+        cache.complete(consoleSender, "warp", 0, "sp", completer);
+        assert computed.get() == 4;
+    }
+
+    @Test
+    public void testRootCommandCompletion() {
+        SimpleRoot root = new SimpleRoot("test", false);
+        root.addCommand(new SubAlways());
+        root.addCommand(new SubAliases(false));
+        root.setCompletionCache(new CompletionCache(10000, 10));
+
+        List<String> completions = root.onTabComplete(consoleSender, null, "test", new String[] {"a"});
+        assert completions.size() == 2;
+
+        completions = root.onTabComplete(consoleSender, null, "test", new String[] {"alw"});
+        assert completions.equals(Arrays.asList("always"));
+
+        completions = root.onTabComplete(consoleSender, null, "test", new String[] {""});
+        assert completions.size() == 2;
+    }
+
+    @Test
+    public void testStructuralChangesClearCache() {
+        SimpleRoot root = new SimpleRoot("test", false);
+        root.addCommand(new SubAlways());
+        CompletionCache cache = new CompletionCache(10000, 10);
+        root.setCompletionCache(cache);
+
+        assert root.onTabComplete(consoleSender, null, "test", new String[] {"a"}).equals(Arrays.asList("always"));
+
+        // Narrowing the old completions would miss the new command.
+        SubAliases aliases = new SubAliases(false);
+        root.addCommand(aliases);
+        assert cache.size() == 0;
+        assert root.onTabComplete(consoleSender, null, "test", new String[] {"al"}).size() == 2;
+
+        root.removeCommand(aliases);
+        assert cache.size() == 0;
+        assert root.onTabComplete(consoleSender, null, "test", new String[] {"ali"}).isEmpty();
+
+        SimpleRoot replacement = new SimpleRoot("test", false);
+        replacement.addCommand(new SubAliases(false));
+        root.replaceSubCommands(replacement);
+        assert cache.size() == 0;
+        assert root.onTabComplete(consoleSender, null, "test", new String[] {"ali"}).equals(Arrays.asList("aliases"));
+
+        root.addSubCommandProvider(() -> Collections.singletonList(new SubAlways()));
+        assert cache.size() == 0;
+    }
+}
@@ -0,0 +1,212 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test for registering and removing commands while other threads are dispatching.
+ */
+public class ConcurrentCommandTreeTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int COMMANDS_PER_WRITER = 500;
+
+    @Test
+    public void testConcurrentRegistration() throws Exception {
+        SimpleRoot root = new SimpleRoot("stress", false);
+        AtomicInteger executions = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> writers = new ArrayList<>();
+        for(int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for(int i = 0; i < COMMANDS_PER_WRITER; i++) {
+                    root.addCommand(new CountingCommand("cmd-" + writer + "-" + i, executions));
+                }
+                return null;
+            }));
+        }
+
+        List<Future<ConsoleSender>> readers = new ArrayList<>();
+        for(int r = 0; r < READERS; r++) {
+            readers.add(executor.submit(() -> {
+                ConsoleSender sender = new ConsoleSender("Reader");
+                start.await();
+                while(writing.get()) {
+                    // Every command in a snapshot must also be reachable through the dispatcher.
+                    for(SimpleCommand cmd : root.getSubCommands()) {
+                        root.onCommand(sender, null, "stress", new String[] {cmd.getName()});
+                    }
+                }
+                return sender;
+            }));
+        }
+
+        start.countDown();
+        for(Future<?> writer : writers) writer.get(30, TimeUnit.SECONDS);
+        writing.set(false);
+
+        for(Future<ConsoleSender> reader : readers) {
+            ConsoleSender sender = reader.get(30, TimeUnit.SECONDS);
+            assert sender.getMessages().isEmpty();
+        }
+        executor.shutdown();
+
+        // No registration may be lost.
+        assert root.getSubCommands().size() == WRITERS * COMMANDS_PER_WRITER;
+        for(int w = 0; w < WRITERS; w++) {
+            for(int i = 0; i < COMMANDS_PER_WRITER; i++) {
+                int before = executions.get();
+                root.onCommand(new ConsoleSender("Verify"), null, "stress", new String[] {"cmd-" + w + "-" + i});
+                assert executions.get() == before + 1;
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentRemoval() throws Exception {
+        SimpleRoot root = new SimpleRoot("stress", false);
+        AtomicInteger executions = new AtomicInteger();
+
+        List<SimpleCommand> commands = new ArrayList<>();
+        for(int i = 0; i < WRITERS * COMMANDS_PER_WRITER; i++) {
+            commands.add(new CountingCommand("cmd-" + i, executions));
+        }
+        root.addCommands(commands);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> writers = new ArrayList<>();
+        for(int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers.add(executor.submit(() -> {
+                // Remove every even command of this writer's slice.
+                for(int i = writer * COMMANDS_PER_WRITER; i < (writer + 1) * COMMANDS_PER_WRITER; i += 2) {
+                    boolean removed = root.removeCommand(commands.get(i));
+                    assert removed;
+                }
+            }));
+        }
+        for(Future<?> writer : writers) writer.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assert root.getSubCommands().size() == WRITERS * COMMANDS_PER_WRITER / 2;
+
+        ConsoleSender sender = new ConsoleSender("Verify");
+        root.onCommand(sender, null, "stress", new String[] {"cmd-0"});
+        assert sender.hasReceived(String.format(SimpleCommandMessages.UNKNOWN_ARGUMENT.m(), "cmd-0"));
+
+        root.onCommand(sender, null, "stress", new String[] {"cmd-1"});
+        assert executions.get() == 1;
+    }
+
+    @Test
+    public void testReplaceSubCommands() throws Exception {
+        RootCommand root = new RootCommand("reload", "reload", false) {
+
+        };
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        root.addCommand(new SimpleCommand("old", false) {
+            @Override
+            public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+                sender.sendMessage("DONE");
+                return true;
+            }
+        });
+
+        // Start an execution on the old tree and keep it running.
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ConsoleSender inFlight = new ConsoleSender("In flight");
+        Future<?> execution = executor.submit(() -> root.onCommand(inFlight, null, "reload old", new String[] {"old"}));
+        boolean started = entered.await(10, TimeUnit.SECONDS);
+        assert started;
+
+        // Build the replacement tree off-thread. The permission is concatenated to the replacement first.
+        RootCommand replacement = new RootCommand("reload", "other", false) {
+
+        };
+        SimpleCommand attached = new CountingCommand("new", new AtomicInteger());
+        SimpleCommand attachedPermission = new SimpleCommand("newPermission", "+new", false) {
+            @Override
+            public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+                return true;
+            }
+        };
+        replacement.addCommand(attached);
+        replacement.addCommand(attachedPermission);
+        assert attachedPermission.getFullPermission().equals("other.new");
+
+        root.replaceSubCommands(replacement);
+        assert attachedPermission.getFullPermission().equals("reload.new");
+
+        ConsoleSender sender = new ConsoleSender("Console");
+        root.onCommand(sender, null, "reload old", new String[] {"old"});
+        assert sender.hasReceived(String.format(SimpleCommandMessages.UNKNOWN_ARGUMENT.m(), "old"));
+
+        // The in-flight execution finishes against the old tree.
+        release.countDown();
+        execution.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assert inFlight.isExecuted();
+    }
+
+    @Test
+    public void testReplaceTakesProvidersAndHelp() {
+        SimpleRoot root = new SimpleRoot("arena", false);
+        AtomicInteger old = new AtomicInteger();
+        root.addSubCommandProvider(() -> Collections.singletonList(new CountingCommand("castle", old)));
+
+        SimpleRoot replacement = new SimpleRoot("arena", false);
+        AtomicInteger executions = new AtomicInteger();
+        replacement.addSubCommandProvider(() -> Collections.singletonList(new CountingCommand("jungle", executions)));
+        SimpleHelpFormatter formatter = new SimpleHelpFormatter();
+        replacement.setHelpFormatter(formatter);
+
+        root.replaceSubCommands(replacement);
+
+        ConsoleSender sender = new ConsoleSender("Console");
+        root.onCommand(sender, null, "arena", new String[] {"jungle"});
+        root.onCommand(sender, null, "arena", new String[] {"castle"});
+        assert executions.get() == 1;
+        assert old.get() == 0;
+        assert root.getHelpFormatter() == formatter;
+    }
+
+    private static class CountingCommand extends SimpleCommand {
+
+        private final AtomicInteger executions;
+
+        CountingCommand(String name, AtomicInteger executions) {
+            super(name, false);
+            this.executions = executions;
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            executions.incrementAndGet();
+            return true;
+        }
+    }
+}
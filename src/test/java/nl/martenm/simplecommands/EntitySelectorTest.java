@@ -0,0 +1,235 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.ArgumentCursor;
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.prefab.SimpleArgumentEntities;
+import nl.martenm.simplecommands.arguments.selector.EntitySelector;
+import nl.martenm.simplecommands.arguments.selector.WorldSnapshots;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EntitySelectorTest {
+
+    private World world;
+    private List<Entity> entities;
+    private AtomicInteger scans;
+    private WorldSnapshots snapshots;
+    private Player steve;
+    private Player alex;
+    private Set<Entity> selectorDenied;
+
+    @BeforeEach
+    public void setup() {
+        this.entities = new ArrayList<>();
+        this.selectorDenied = new HashSet<>();
+        this.scans = new AtomicInteger();
+        this.world = (World) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {World.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getEntities": scans.incrementAndGet(); return new ArrayList<>(entities);
+                case "getUID": return UUID.nameUUIDFromBytes("world".getBytes());
+                case "getName": return "world";
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: return null;
+            }
+        });
+        this.snapshots = new WorldSnapshots(10000, () -> Collections.singletonList(world));
+
+        this.steve = (Player) entity(Player.class, EntityType.PLAYER, "Steve", 0, 64, 0);
+        this.alex = (Player) entity(Player.class, EntityType.PLAYER, "Alex", 100, 64, 0);
+        entity(Entity.class, EntityType.ZOMBIE, "Zombie", 5, 64, 5);
+        entity(Entity.class, EntityType.ZOMBIE, "Zombie", 40, 64, 0);
+    }
+
+    private Entity entity(Class<? extends Entity> type, EntityType entityType, String name, double x, double y, double z) {
+        Location location = new Location(world, x, y, z);
+        Entity entity = (Entity) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLocation": return location;
+                case "getWorld": return world;
+                case "getType": return entityType;
+                case "getName": return name;
+                case "isValid": return true;
+                case "hasPermission": return !selectorDenied.contains(proxy);
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return name;
+                default: return null;
+            }
+        });
+        entities.add(entity);
+        return entity;
+    }
+
+    private List<Entity> select(org.bukkit.command.CommandSender sender, String text) throws ParseFailedException {
+        return EntitySelector.compile(text).select(sender, snapshots);
+    }
+
+    @Test
+    public void testPlayers() throws ParseFailedException {
+        assert select(steve, "@a").size() == 2;
+        assert select(alex, "@p").equals(Collections.singletonList(alex));
+        assert select(steve, "@s").equals(Collections.singletonList(steve));
+        assert select(steve, "@r").size() == 1;
+        assert select(new ConsoleSender("Console"), "@a").size() == 2;
+    }
+
+    @Test
+    public void testEntityOptions() throws ParseFailedException {
+        assert select(steve, "@e").size() == 4;
+        assert select(steve, "@e[type=zombie]").size() == 2;
+        assert select(steve, "@e[type=!zombie]").size() == 2;
+        assert select(steve, "@e[type=minecraft:zombie,distance=..10]").size() == 1;
+        assert select(steve, "@e[distance=10..50]").size() == 1;
+        assert select(steve, "@e[sort=nearest,limit=2]").equals(Arrays.asList(steve, entities.get(2)));
+        assert select(steve, "@e[name=Alex]").equals(Collections.singletonList(alex));
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] invalid = {"@x", "@e[type=dragonfly]", "@e[limit=0]", "@e[distance=a..]", "@a[type=zombie]", "@e[foo=bar]", "@e[type",
+                "@e[distance=NaN]", "@e[distance=..Infinity]", "@e[distance=-1..]", "@e[distance=10..5]"};
+        for(String text : invalid) {
+            try {
+                EntitySelector.compile(text);
+                assert false : text;
+            } catch (ParseFailedException ignored) {
+
+            }
+        }
+
+        try {
+            select(new ConsoleSender("Console"), "@p");
+            assert false;
+        } catch (ParseFailedException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testHugeDistance() throws ParseFailedException {
+        // The cells of such a radius do not fit in an int, this used to never finish.
+        assert select(steve, "@e[distance=..1e300]").size() == 4;
+        assert select(steve, "@e[distance=..2147483647]").size() == 4;
+        assert select(steve, "@e[distance=1e300]").isEmpty();
+    }
+
+    @Test
+    public void testCompiledOnce() throws ParseFailedException {
+        assert EntitySelector.compile("@e[type=zombie,limit=1]") == EntitySelector.compile("@e[type=zombie,limit=1]");
+    }
+
+    @Test
+    public void testSnapshotShared() throws ParseFailedException {
+        select(steve, "@a");
+        select(steve, "@e[distance=..10]");
+        select(alex, "@p");
+        assert scans.get() == 1;
+
+        WorldSnapshots shortLived = new WorldSnapshots(0, () -> Collections.singletonList(world));
+        EntitySelector.compile("@a").select(steve, shortLived);
+        EntitySelector.compile("@a").select(steve, shortLived);
+        assert scans.get() == 3;
+    }
+
+    @Test
+    public void testSnapshotPerTick() throws ParseFailedException {
+        AtomicLong tick = new AtomicLong();
+        WorldSnapshots perTick = new WorldSnapshots(tick::get, () -> Collections.singletonList(world));
+        EntitySelector.compile("@a").select(steve, perTick);
+        EntitySelector.compile("@e").select(steve, perTick);
+        assert scans.get() == 1;
+
+        tick.incrementAndGet();
+        EntitySelector.compile("@a").select(steve, perTick);
+        assert scans.get() == 2;
+    }
+
+    @Test
+    public void testSnapshotLifetime() throws ParseFailedException {
+        AtomicLong time = new AtomicLong();
+        WorldSnapshots timed = new WorldSnapshots(50, () -> Collections.singletonList(world), time::get);
+        EntitySelector.compile("@a").select(steve, timed);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(49));
+        EntitySelector.compile("@a").select(steve, timed);
+        assert scans.get() == 1;
+
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        EntitySelector.compile("@a").select(steve, timed);
+        assert scans.get() == 2;
+    }
+
+    @Test
+    public void testUnloadedWorldDropped() {
+        List<World> worlds = new ArrayList<>(Collections.singletonList(world));
+        WorldSnapshots cache = new WorldSnapshots(10000, () -> worlds);
+        cache.getAll();
+        assert cache.size() == 1;
+
+        cache.onWorldUnload(new WorldUnloadEvent(world));
+        assert cache.size() == 0;
+
+        // Without the event the snapshot is dropped once the world is gone from the server.
+        cache.getAll();
+        worlds.clear();
+        cache.getAll();
+        assert cache.size() == 0;
+    }
+
+    @Test
+    public void testArgument() throws ParseFailedException {
+        SimpleArgumentEntities players = new SimpleArgumentEntities("targets", true, snapshots, () -> Arrays.asList(steve, alex));
+        assert players.parse(steve, new ArgumentCursor(new String[] {"@a"})).size() == 2;
+        assert players.parse(steve, new ArgumentCursor(new String[] {"alex"})).equals(Collections.singletonList(alex));
+
+        try {
+            players.parse(steve, new ArgumentCursor(new String[] {"@e"}));
+            assert false;
+        } catch (ParseFailedException ignored) {
+
+        }
+
+        assert players.onTabCompletion("@").equals(Arrays.asList("@a", "@p", "@r", "@s"));
+        assert players.onTabCompletion("A").equals(Collections.singletonList("Alex"));
+        assert scans.get() == 1;
+    }
+
+    @Test
+    public void testPlayerNamesWithoutSnapshot() throws ParseFailedException {
+        SimpleArgumentEntities players = new SimpleArgumentEntities("targets", true, snapshots, () -> Arrays.asList(steve, alex));
+        assert players.parse(steve, new ArgumentCursor(new String[] {"Steve"})).equals(Collections.singletonList(steve));
+        assert players.onTabCompletion("S").equals(Collections.singletonList("Steve"));
+        assert scans.get() == 0;
+    }
+
+    @Test
+    public void testSelectorPermission() throws ParseFailedException {
+        SimpleArgumentEntities players = new SimpleArgumentEntities("targets", true, snapshots, () -> Arrays.asList(steve, alex));
+        selectorDenied.add(steve);
+
+        try {
+            players.parse(steve, new ArgumentCursor(new String[] {"@a"}));
+            assert false;
+        } catch (ParseFailedException ignored) {
+
+        }
+
+        // Names still work and selectors are not suggested.
+        assert players.parse(steve, new ArgumentCursor(new String[] {"alex"})).equals(Collections.singletonList(alex));
+        assert players.complete(steve, 0, "").equals(Arrays.asList("Steve", "Alex"));
+        assert players.complete(alex, 0, "@").equals(Arrays.asList("@a", "@p", "@r", "@s"));
+    }
+}
@@ -0,0 +1,122 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.implementations.SubAlways;
+import nl.martenm.simplecommands.misc.ErrorThrottle;
+import nl.martenm.simplecommands.misc.RejectCounters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ErrorThrottleTest {
+
+    private static final int FLOOD = 10000;
+
+    private SimpleRoot root;
+    private ConsoleSender consoleSender;
+
+    @BeforeEach
+    public void setup() {
+        this.root = new SimpleRoot("test", false);
+        root.addCommand(new SubAlways());
+        this.consoleSender = new ConsoleSender("Console sender");
+    }
+
+    @Test
+    public void testTemplateMatchesFormat() {
+        SimpleCommandMessages[] messages = {
+                SimpleCommandMessages.MISSING_ARGUMENTS, SimpleCommandMessages.UNKNOWN_ARGUMENT, SimpleCommandMessages.PLAYER_ONLY,
+                SimpleCommandMessages.NO_PERMISSION, SimpleCommandMessages.SUPPRESSED_ERRORS
+        };
+        for(SimpleCommandMessages message : messages) {
+            assert message.format("value").equals(String.format(message.m(), "value"));
+            assert message.format((Object) null).equals(String.format(message.m(), (Object) null));
+        }
+
+        // Other specifiers are left to String.format.
+        SimpleCommandMessages.UNKNOWN_ARGUMENT.setMessage("&c%d%% unknown: %s");
+        try {
+            assert SimpleCommandMessages.UNKNOWN_ARGUMENT.format(5, "a").equals(String.format(SimpleCommandMessages.UNKNOWN_ARGUMENT.m(), 5, "a"));
+        } finally {
+            SimpleCommandMessages.UNKNOWN_ARGUMENT.setMessage("&cUnknown command argument:&7 %s");
+        }
+    }
+
+    @Test
+    public void testCounters() {
+        root.onCommand(consoleSender, null, "test", new String[] {"nope"});
+        root.onCommand(consoleSender, null, "test", new String[] {"other"});
+
+        RejectCounters counters = root.getRejectCounters();
+        assert counters.get(SimpleCommandMessages.UNKNOWN_ARGUMENT) == 2;
+        assert counters.getTotal() == 2;
+        assert counters.getSuppressed() == 0;
+        assert consoleSender.getMessages().size() == 2;
+        assert consoleSender.hasReceived(String.format(SimpleCommandMessages.UNKNOWN_ARGUMENT.m(), "nope"));
+    }
+
+    @Test
+    public void testThrottle() {
+        AtomicLong time = new AtomicLong();
+        root.setErrorThrottle(new ErrorThrottle(50, 10, time::get));
+
+        for(int i = 0; i < 10; i++) {
+            root.onCommand(consoleSender, null, "test", new String[] {"gibberish" + i});
+        }
+        assert consoleSender.getMessages().size() == 1;
+        assert root.getRejectCounters().getSuppressed() == 9;
+
+        // Other senders are not affected.
+        ConsoleSender other = new ConsoleSender("Other");
+        root.onCommand(other, null, "test", new String[] {"nope"});
+        assert other.getMessages().size() == 1;
+
+        // After the window the error is sent again and mentions the suppressed ones.
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        root.onCommand(consoleSender, null, "test", new String[] {"again"});
+        assert consoleSender.getMessages().size() == 2;
+        assert consoleSender.getMessages().get(1).endsWith(SimpleCommandMessages.SUPPRESSED_ERRORS.format(9));
+    }
+
+    @Test
+    public void testThrottleBounded() {
+        ErrorThrottle throttle = new ErrorThrottle(10000, 16);
+        for(int i = 0; i < 1000; i++) {
+            throttle.check(new ConsoleSender("Sender " + i), SimpleCommandMessages.UNKNOWN_ARGUMENT);
+        }
+        assert throttle.size() == 16;
+    }
+
+    @Test
+    public void testFlood() {
+        QuietSender throttled = new QuietSender();
+        root.setErrorThrottle(new ErrorThrottle(60000, 10));
+        for(int i = 0; i < FLOOD; i++) {
+            root.onCommand(throttled, null, "test", new String[] {"gibberish" + i});
+        }
+
+        assert throttled.received == 1;
+        assert root.getRejectCounters().get(SimpleCommandMessages.UNKNOWN_ARGUMENT) == FLOOD;
+        assert root.getRejectCounters().getSuppressed() == FLOOD - 1;
+    }
+
+    /**
+     * Console sender that only counts messages, so the flood is not dominated by logging.
+     */
+    private static class QuietSender extends ConsoleSender {
+
+        private int received = 0;
+
+        QuietSender() {
+            super("Quiet sender");
+        }
+
+        @Override
+        public void sendMessage(String s) {
+            received++;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.misc.NameFormat;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FootprintTest {
+
+    private static final int BRANCHES = 100;
+    private static final int LEAVES = 100;
+
+    // Upper bound for the average footprint of a node in a frozen tree.
+    private static final long BYTES_PER_NODE = 320;
+
+    @Test
+    public void testFrozenFootprint() {
+        RootCommand mutable = buildTree();
+        List<SimpleCommand> nodes = new ArrayList<>();
+        collect(mutable, nodes);
+
+        // Cache the full permissions like a tree that has been in use for a while.
+        nodes.forEach(SimpleCommand::getFullPermission);
+        long mutableBytes = GraphLayout.parseInstance(mutable).totalSize();
+
+        // A frozen tree keeps its full names, the mutable tree builds them on every call.
+        List<String> fullNames = new ArrayList<>();
+        for(SimpleCommand node : nodes) {
+            for(NameFormat format : NameFormat.values()) {
+                fullNames.add(node.getFullName(format));
+            }
+        }
+        long fullNameBytes = GraphLayout.parseInstance(fullNames.toArray()).totalSize();
+
+        RootCommand frozen = buildTree();
+        frozen.freeze();
+        long frozenBytes = GraphLayout.parseInstance(frozen).totalSize();
+
+                assert frozenBytes / nodes.size() <= BYTES_PER_NODE : frozenBytes / nodes.size() + " bytes per node";
+        assert frozenBytes < mutableBytes + fullNameBytes : frozenBytes + " frozen, " + mutableBytes + " mutable, " + fullNameBytes + " full names";
+    }
+
+    private static RootCommand buildTree() {
+        RootCommand root = new Branch("root", "root");
+        for(int i = 0; i < BRANCHES; i++) {
+            RootCommand branch = new Branch("branch" + i, "+branch" + i);
+            for(int j = 0; j < LEAVES; j++) {
+                Leaf leaf = new Leaf("leaf" + j, "+leaf" + j);
+                if(j % 10 == 0) leaf.addAlias("l" + j);
+                branch.addCommand(leaf);
+            }
+            root.addCommand(branch);
+        }
+        return root;
+    }
+
+    private static void collect(SimpleCommand command, List<SimpleCommand> nodes) {
+        nodes.add(command);
+        if(command instanceof RootCommand) {
+            ((RootCommand) command).getSubCommands().forEach(child -> collect(child, nodes));
+        }
+    }
+
+    private static class Branch extends RootCommand {
+
+        Branch(String name, String permission) {
+            super(name, permission, false);
+        }
+    }
+
+    private static class Leaf extends SimpleCommand {
+
+        Leaf(String name, String permission) {
+            super(name, permission, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            return true;
+        }
+    }
+}
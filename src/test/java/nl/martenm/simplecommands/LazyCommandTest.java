@@ -0,0 +1,117 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.implementations.SubAlways;
+import nl.martenm.simplecommands.implementations.SubNested;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyCommandTest {
+
+    private ConsoleSender consoleSender;
+    private PlayerSender playerSender;
+    private SimpleRoot root;
+    private AtomicInteger constructed;
+    private LazyCommand lazy;
+
+    @BeforeEach
+    public void setup() {
+        this.consoleSender = new ConsoleSender("Console sender");
+        this.playerSender = new PlayerSender("Player sender");
+        this.constructed = new AtomicInteger();
+        this.root = new SimpleRoot("test", false);
+        this.lazy = root.addLazyCommand("always", "Always works", "lazy", false, () -> {
+            constructed.incrementAndGet();
+            return new SubAlways();
+        }, "aw");
+    }
+
+    @Test
+    public void testMetadataOnly() {
+        // Help and completion of the name do not construct the command.
+        root.onCommand(consoleSender, null, "test", new String[0]);
+        assert root.onTabComplete(consoleSender, null, "test", new String[] {"al"}).equals(Arrays.asList("always"));
+        assert root.getSubCommands(consoleSender).contains(lazy);
+
+        // Permissions are checked with the given permission.
+        assert !root.getSubCommands(playerSender).contains(lazy);
+        playerSender.addPermission("lazy");
+        assert root.getSubCommands(playerSender).contains(lazy);
+
+        assert constructed.get() == 0;
+        assert !lazy.isInstantiated();
+    }
+
+    @Test
+    public void testExecution() {
+        root.onCommand(consoleSender, null, "test", new String[] {"aw"});
+        assert consoleSender.hasReceived("DONE");
+        assert lazy.isInstantiated();
+
+        root.onCommand(consoleSender, null, "test", new String[] {"always"});
+        assert constructed.get() == 1;
+
+        // The real command is placed in the tree of the placeholder.
+        assert lazy.getInstance().getFullName().equals("test always");
+    }
+
+    @Test
+    public void testNestedTabCompletion() {
+        LazyCommand nested = root.addLazyCommand("nested", null, null, false, () -> new SubNested("nested", new SubAlways()));
+        assert !nested.isInstantiated();
+
+        List<String> completions = root.onTabComplete(consoleSender, null, "test", new String[] {"nested", ""});
+        assert nested.isInstantiated();
+        assert completions.equals(nested.getInstance().onTabComplete(consoleSender, null, "nested", new String[] {""}));
+    }
+
+    @Test
+    public void testConcurrentConstruction() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<SimpleCommand> instances = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                SimpleCommand instance = lazy.getInstance();
+                synchronized (instances) {
+                    instances.add(instance);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        assert constructed.get() == 1;
+        assert instances.size() == 8;
+        assert instances.stream().allMatch(instance -> instance == instances.get(0));
+    }
+
+    @Test
+    public void testWrongName() {
+        LazyCommand wrong = root.addLazyCommand("wrong", null, null, false, SubAlways::new);
+        try {
+            wrong.getInstance();
+            assert false;
+        } catch (RuntimeException ex) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.SimpleParsedCommand;
+import nl.martenm.simplecommands.arguments.prefab.*;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import org.bukkit.Location;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MultiTokenArgumentTest {
+
+    private ConsoleSender consoleSender;
+    private LocatedPlayer playerSender;
+    private FillCommand fill;
+
+    @BeforeEach
+    public void setup() {
+        this.consoleSender = new ConsoleSender("Console sender");
+        this.playerSender = new LocatedPlayer();
+        this.fill = new FillCommand();
+    }
+
+    @Test
+    public void testParseTokens() {
+        fill.onCommand(consoleSender, null, "fill", new String[] {"1", "64", "-3.5", "2", "5", "stone"});
+        List<Object> parsed = fill.parsed;
+
+        assert parsed.size() == 3;
+        assert parsed.get(0).equals(new Coordinates(1, 64, -3.5));
+        assert parsed.get(1).equals(new IntRange(2, 5));
+        assert parsed.get(2).equals("stone");
+    }
+
+    @Test
+    public void testRelativeCoordinates() {
+        fill.onCommand(playerSender, null, "fill", new String[] {"~", "~10", "~-0.5", "0", "0", "dirt"});
+        assert fill.parsed.get(0).equals(new Coordinates(10.5, 74, -21));
+
+        // The console has no location.
+        fill.onCommand(consoleSender, null, "fill", new String[] {"~", "1", "1", "0", "0", "dirt"});
+        assert consoleSender.getMessages().size() == 1;
+        assert consoleSender.getMessages().get(0).contains("~ 1 1");
+    }
+
+    @Test
+    public void testInvalidRange() {
+        fill.onCommand(consoleSender, null, "fill", new String[] {"0", "0", "0", "5", "2", "dirt"});
+        assert fill.parsed == null;
+        assert consoleSender.getMessages().get(0).contains("The minimum is larger than the maximum");
+    }
+
+    @Test
+    public void testMissing() {
+        fill.onCommand(consoleSender, null, "fill", new String[] {"0", "0", "0", "5"});
+        assert consoleSender.hasReceived(SimpleCommandMessages.MISSING_ARGUMENTS.format("range, block"));
+    }
+
+    @Test
+    public void testCompletionFollowsCursor() {
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {""}).equals(Arrays.asList("~", "10"));
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {"1", "6"}).equals(Collections.singletonList("64"));
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {"1", "2", "-"}).equals(Collections.singletonList("-21"));
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {"1", "2", "3", ""}).get(0).contains("min");
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {"1", "2", "3", "4", ""}).get(0).contains("max");
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {"1", "2", "3", "4", "5", ""}).get(0).contains("block");
+        assert fill.onTabComplete(playerSender, null, "fill", new String[] {"1", "2", "3", "4", "5", "6", ""}).isEmpty();
+        assert fill.onTabComplete(playerSender, null, "fill", new String[0]).isEmpty();
+    }
+
+    private static class FillCommand extends SimpleParsedCommand {
+
+        private List<Object> parsed;
+
+        FillCommand() {
+            super("fill", false);
+            addArgument(new SimpleArgumentCoordinates("position"));
+            addArgument(new SimpleArgumentRange("range"));
+            addArgument(new SimpleArgumentString("block"));
+        }
+
+        @Override
+        protected boolean onArgumentCommand(CommandSender sender, Command command, String s, String[] args, List<Object> parsedArgs) {
+            this.parsed = parsedArgs;
+            return true;
+        }
+    }
+
+    private static class LocatedPlayer extends PlayerSender {
+
+        LocatedPlayer() {
+            super("Player sender");
+        }
+
+        @Override
+        public Location getLocation() {
+            return new Location(null, 10.5, 64, -20.5);
+        }
+    }
+}
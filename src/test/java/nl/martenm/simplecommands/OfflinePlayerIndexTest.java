@@ -0,0 +1,133 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.arguments.ParseFailedException;
+import nl.martenm.simplecommands.arguments.players.OfflinePlayerIndex;
+import nl.martenm.simplecommands.arguments.prefab.SimpleArgumentOfflinePlayer;
+import org.bukkit.OfflinePlayer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+public class OfflinePlayerIndexTest {
+
+    private static final UUID STEVE = UUID.nameUUIDFromBytes("Steve".getBytes());
+    private static final UUID ALEX = UUID.nameUUIDFromBytes("Alex".getBytes());
+    private static final UUID STEPHANIE = UUID.nameUUIDFromBytes("Stephanie".getBytes());
+
+    private File userCache;
+    private OfflinePlayerIndex index;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.userCache = File.createTempFile("usercache", ".json");
+        String json = "[" +
+                "{\"name\":\"Steve\",\"uuid\":\"" + STEVE + "\",\"expiresOn\":\"2030-01-01 00:00:00 +0000\"}," +
+                "{\"name\":\"Alex\",\"uuid\":\"" + ALEX + "\",\"expiresOn\":\"2030-01-01 00:00:00 +0000\"}," +
+                "{\"name\":\"Broken\",\"uuid\":\"not-a-uuid\"}" +
+                "]";
+        Files.write(userCache.toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+        this.index = new OfflinePlayerIndex();
+        index.load(userCache);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        userCache.delete();
+    }
+
+    @Test
+    public void testLoad() {
+        assert index.size() == 2;
+        assert index.lookup("Steve").equals(STEVE);
+        assert index.lookup("alex").equals(ALEX);
+        assert index.getName("ALEX").equals("Alex");
+        assert index.lookup("Broken") == null;
+        assert index.lookup("Herobrine") == null;
+    }
+
+    @Test
+    public void testComplete() {
+        index.add("Stephanie", STEPHANIE);
+
+        assert index.complete("st", 10).equals(Arrays.asList("Stephanie", "Steve"));
+        assert index.complete("Ste", 1).equals(Collections.singletonList("Stephanie"));
+        assert index.complete("", 10).equals(Arrays.asList("Alex", "Stephanie", "Steve"));
+        assert index.complete("x", 10).isEmpty();
+    }
+
+    @Test
+    public void testJoinUpdates() {
+        index.add("Stephanie", STEPHANIE);
+        assert index.lookup("stephanie").equals(STEPHANIE);
+
+        // A renamed player is only kept under the new name once merged.
+        index.add("Steve2", STEVE);
+        assert index.lookup("Steve2").equals(STEVE);
+        assert index.size() == 3;
+        assert index.lookup("Steve") == null;
+    }
+
+    @Test
+    public void testRenameBeforeMerge() {
+        // Steve is renamed twice before the pending players are merged.
+        index.add("Steven", STEVE);
+        assert index.lookup("Steve") == null;
+        assert index.getName("Steve") == null;
+        assert index.complete("Ste", 10).equals(Collections.singletonList("Steven"));
+
+        index.add("Stefan", STEVE);
+        assert index.lookup("Steven") == null;
+        assert index.lookup("Stefan").equals(STEVE);
+        assert index.complete("Ste", 10).equals(Collections.singletonList("Stefan"));
+
+        // Someone else takes the old name.
+        index.add("Steve", STEPHANIE);
+        assert index.lookup("Steve").equals(STEPHANIE);
+        assert index.complete("Ste", 10).equals(Arrays.asList("Stefan", "Steve"));
+
+        assert index.size() == 3;
+        assert index.lookup("Stefan").equals(STEVE);
+        assert index.lookup("Steve").equals(STEPHANIE);
+    }
+
+    @Test
+    public void testManyJoins() {
+        for(int i = 0; i < 1000; i++) {
+            index.add("Player" + i, new UUID(0, i));
+        }
+
+        assert index.lookup("player500").equals(new UUID(0, 500));
+        assert index.complete("Player99", 20).equals(Arrays.asList("Player99", "Player990", "Player991", "Player992",
+                "Player993", "Player994", "Player995", "Player996", "Player997", "Player998", "Player999"));
+        assert index.size() == 1002;
+    }
+
+    @Test
+    public void testArgument() throws ParseFailedException {
+        SimpleArgumentOfflinePlayer argument = new SimpleArgumentOfflinePlayer("player", index, uuid ->
+                (OfflinePlayer) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {OfflinePlayer.class}, (proxy, method, args) -> {
+                    if(method.getName().equals("getUniqueId")) return uuid;
+                    return null;
+                }));
+
+        assert argument.parse("steve").getUniqueId().equals(STEVE);
+        assert argument.onTabCompletion("a").equals(Collections.singletonList("Alex"));
+
+        try {
+            argument.parse("Herobrine");
+            assert false;
+        } catch (ParseFailedException ex) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.paging.PageSessions;
+import nl.martenm.simplecommands.paging.PagedMessage;
+import nl.martenm.simplecommands.paging.SimpleNextPageCommand;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PagingTest {
+
+    private ConsoleSender consoleSender;
+    private AtomicInteger built;
+
+    @BeforeEach
+    public void setup() {
+        this.consoleSender = new ConsoleSender("Console sender");
+        this.built = new AtomicInteger();
+    }
+
+    @Test
+    public void testLazyPages() {
+        PagedMessage message = PagedMessage.of(() -> built.get() < 25 ? "Line " + built.incrementAndGet() : null, 10);
+        assert built.get() == 0;
+
+        List<String> page = message.nextPage();
+        assert page.size() == 10;
+        assert page.get(0).equals("Line 1");
+        // One line is looked ahead to know if there is a next page.
+        assert message.hasNextPage();
+        assert built.get() == 11;
+
+        message.nextPage();
+        assert message.nextPage().size() == 5;
+        assert !message.hasNextPage();
+        assert message.getPage() == 3;
+    }
+
+    @Test
+    public void testSessions() {
+        PageSessions sessions = new PageSessions(10000, 10);
+        PagedMessage message = PagedMessage.of(() -> built.get() < 15 ? "Line " + built.incrementAndGet() : null, 10);
+
+        sessions.send(consoleSender, message, "list next");
+        assert consoleSender.getMessages().size() == 11;
+        assert consoleSender.hasReceived(SimpleCommandMessages.NEXT_PAGE.format(1, "list next"));
+        assert sessions.size() == 1;
+
+        assert sessions.next(consoleSender);
+        assert consoleSender.getMessages().size() == 16;
+        assert sessions.size() == 0;
+
+        // The last page was sent.
+        assert !sessions.next(consoleSender);
+        assert consoleSender.hasReceived(SimpleCommandMessages.NO_NEXT_PAGE.m());
+    }
+
+    @Test
+    public void testSessionExpiry() {
+        AtomicLong time = new AtomicLong();
+        PageSessions sessions = new PageSessions(10, 10, time::get);
+        sessions.send(consoleSender, PagedMessage.of(() -> "Endless", 5), "list next");
+
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(9));
+        assert sessions.next(consoleSender);
+
+        // The session is renewed by every page.
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+        assert !sessions.next(consoleSender);
+    }
+
+    @Test
+    public void testPagedHelp() {
+        PagedRoot root = new PagedRoot();
+        for(int i = 0; i < 500; i++) {
+            root.addCommand(new CountingCommand("cmd" + i));
+        }
+
+        root.onCommand(consoleSender, null, "big", new String[] {});
+        assert built.get() > 0 && built.get() <= 11;
+        assert consoleSender.hasReceived(SimpleCommandMessages.NEXT_PAGE.format(1, "big next"));
+
+        int before = consoleSender.getMessages().size();
+        root.onCommand(consoleSender, null, "big", new String[] {"next"});
+        assert consoleSender.getMessages().size() == before + 11;
+        assert built.get() <= 21;
+    }
+
+    private class PagedRoot extends RootCommand {
+
+        PagedRoot() {
+            super("big", false);
+            SimpleNextPageCommand next = new SimpleNextPageCommand("next", new PageSessions(10000, 10));
+            addCommand(next);
+
+            SimpleHelpFormatter formatter = new SimpleHelpFormatter();
+            formatter.setPaging(10, next);
+            setHelpFormatter(formatter);
+        }
+    }
+
+    private class CountingCommand extends SimpleCommand {
+
+        CountingCommand(String name) {
+            super(name, "Counts how often it is rendered", null, false);
+        }
+
+        @Override
+        public String getDescription() {
+            built.incrementAndGet();
+            return super.getDescription();
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PermissiblePlayerSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class PermissionBitSetsTest {
+
+    @Test
+    public void testBitsMatchDirectChecks() {
+        Random random = new Random(3);
+        SimpleRoot root = buildTree(random, 5, 4);
+        root.freeze();
+
+        List<SimpleCommand> nodes = new ArrayList<>();
+        collect(root, nodes);
+        assert root.getNodeCount() == nodes.size();
+
+        for(int round = 0; round < 50; round++) {
+            PermissiblePlayerSender sender = randomSender(random);
+
+            // Record the direct results before the bit sets are enabled.
+            Map<SimpleCommand, Boolean> permission = new HashMap<>();
+            Map<SimpleCommand, Boolean> allowed = new HashMap<>();
+            for(SimpleCommand node : nodes) {
+                permission.put(node, node.checkPermission(sender));
+                allowed.put(node, node.isAllowed(sender));
+            }
+
+            root.enablePermissionBitSets(10);
+            for(SimpleCommand node : nodes) {
+                assert node.checkPermission(sender) == permission.get(node);
+                assert node.isAllowed(sender) == allowed.get(node);
+            }
+            root.permissionBitSets = null;
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        SimpleRoot root = new SimpleRoot("root", false);
+        root.addCommand(new Leaf("leaf", "a.b"));
+        root.freeze();
+        PermissionBitSets bitSets = root.enablePermissionBitSets(10);
+
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        assert !root.isAllowed(sender);
+        assert bitSets.size() == 1;
+
+        // The bit set is cached until it is invalidated.
+        sender.setPermission("a.b", true);
+        assert !root.isAllowed(sender);
+
+        bitSets.invalidate(sender);
+        assert root.isAllowed(sender);
+    }
+
+    @Test
+    public void testRequiresFrozenTree() {
+        SimpleRoot root = new SimpleRoot("root", false);
+        Assertions.assertThrows(RuntimeException.class, () -> root.enablePermissionBitSets(10));
+    }
+
+    @Test
+    public void testReplaceSubCommandsInvalidates() {
+        SimpleRoot root = new SimpleRoot("root", false);
+        root.addCommand(new Leaf("leaf", "a.b"));
+        root.freeze();
+        PermissionBitSets bitSets = root.enablePermissionBitSets(10);
+
+        ConsoleSender console = new ConsoleSender("Console");
+        root.isAllowed(console);
+        assert bitSets.size() == 1;
+
+        SimpleRoot replacement = new SimpleRoot("root", false);
+        Leaf leaf = new Leaf("other", "a.c");
+        replacement.addCommand(leaf);
+        root.replaceSubCommands(replacement);
+
+        assert bitSets.size() == 0;
+
+        // The new leaf takes the id of the old one.
+        assert leaf.getNodeId() == 1;
+        assert root.getNodeCount() == 2;
+        assert leaf.isAllowed(console);
+    }
+
+    @Test
+    public void testRepeatedReplacementsKeepIds() {
+        SimpleRoot root = new SimpleRoot("root", false);
+        root.addCommand(new Leaf("leaf", "a.b"));
+        root.addCommand(buildBranch(0));
+        root.freeze();
+        PermissionBitSets bitSets = root.enablePermissionBitSets(10);
+        long bytesPerSender = bitSets.getBytesPerSender();
+        int nodeCount = root.getNodeCount();
+
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        for(int reload = 1; reload <= 1000; reload++) {
+            SimpleRoot replacement = new SimpleRoot("root", false);
+            replacement.addCommand(new Leaf("leaf", "a.b"));
+            replacement.addCommand(buildBranch(reload));
+            root.replaceSubCommands(replacement);
+
+            // Only the newest leaf is granted, a reused id should not answer with the bit of an old node.
+            sender.setPermission("branch.leaf" + reload, true);
+            bitSets.invalidate(sender);
+            for(SimpleCommand branch : root.getSubCommands()) {
+                if(!(branch instanceof RootCommand)) continue;
+                for(SimpleCommand leaf : ((RootCommand) branch).getSubCommands()) {
+                    assert leaf.checkPermission(sender) == leaf.getName().equals("leaf" + reload) : leaf.getName();
+                }
+            }
+        }
+
+        assert root.getNodeCount() == nodeCount;
+        assert bitSets.getBytesPerSender() == bytesPerSender;
+    }
+
+    private static SimpleRoot buildBranch(int reload) {
+        SimpleRoot branch = new SimpleRoot("branch", false);
+        branch.addCommand(new Leaf("leaf" + reload, "branch.leaf" + reload));
+        branch.addCommand(new Leaf("other", "branch.other"));
+        return branch;
+    }
+
+    @Test
+    public void testInvalidateDuringBuild() {
+        SimpleRoot root = new SimpleRoot("root", false);
+        root.addCommand(new Leaf("leaf", "a.b"));
+        root.freeze();
+        PermissionBitSets bitSets = root.enablePermissionBitSets(10);
+
+        // The permissions change while the bit set is being built, the invalidation should not be lost.
+        boolean[] changed = new boolean[1];
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Player", Collections.emptyMap()) {
+            @Override
+            public boolean hasPermission(String s) {
+                boolean result = super.hasPermission(s);
+                if(!changed[0]) {
+                    changed[0] = true;
+                    setPermission("a.b", true);
+                    bitSets.invalidate(this);
+                }
+                return result;
+            }
+        };
+
+        assert !root.isAllowed(sender);
+        assert bitSets.size() == 0;
+        assert root.isAllowed(sender);
+        assert bitSets.size() == 1;
+    }
+
+    @Test
+    public void testQuitInvalidates() {
+        SimpleRoot root = new SimpleRoot("root", false);
+        root.addCommand(new Leaf("leaf", "a.b"));
+        root.freeze();
+        PermissionBitSets bitSets = root.enablePermissionBitSets(10);
+
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        root.isAllowed(sender);
+        assert bitSets.size() == 1;
+
+        bitSets.onQuit(new PlayerQuitEvent(sender, "Player left"));
+        assert bitSets.size() == 0;
+    }
+
+    private static void collect(SimpleCommand command, List<SimpleCommand> nodes) {
+        nodes.add(command);
+        if(command instanceof RootCommand) {
+            ((RootCommand) command).getSubCommands().forEach(child -> collect(child, nodes));
+        }
+    }
+
+    private static String randomPermission(Random random) {
+        return "perm." + random.nextInt(10) + "." + random.nextInt(10);
+    }
+
+    private static PermissiblePlayerSender randomSender(Random random) {
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        for(int i = 0; i < 30; i++) {
+            sender.setPermission(randomPermission(random), random.nextBoolean());
+        }
+        return sender;
+    }
+
+    /**
+     * Builds a tree with the given width on each level.
+     */
+    private static SimpleRoot buildTree(Random random, int width, int depth) {
+        SimpleRoot root = new SimpleRoot("root", false);
+        fill(root, random, width, depth);
+        return root;
+    }
+
+    private static void fill(RootCommand parent, Random random, int width, int depth) {
+        List<SimpleCommand> children = new ArrayList<>();
+        for(int i = 0; i < width; i++) {
+            if(depth > 1) {
+                SimpleRoot group = new SimpleRoot("group" + i, false);
+                fill(group, random, width, depth - 1);
+                children.add(group);
+            } else {
+                children.add(new Leaf("leaf" + i, random.nextInt(5) == 0 ? null : randomPermission(random)));
+            }
+        }
+        parent.addCommands(children);
+    }
+
+    private static class Leaf extends SimpleCommand {
+
+        Leaf(String name, String permission) {
+            super(name, permission, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            return true;
+        }
+    }
+}
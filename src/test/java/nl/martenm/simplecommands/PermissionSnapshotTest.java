@@ -0,0 +1,145 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.PermissiblePlayerSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.permissions.PermissionScope;
+import nl.martenm.simplecommands.permissions.PermissionSnapshot;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Differential tests, batch evaluation must always give the same result as asking the sender.
+ */
+public class PermissionSnapshotTest {
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void testSnapshotMatchesPermissible() {
+        Random random = new Random(42);
+
+        for(int round = 0; round < ROUNDS; round++) {
+            Map<String, Permission> registry = randomRegistry(random);
+            PermissiblePlayerSender sender = randomSender(random, registry);
+            PermissionSnapshot snapshot = PermissionSnapshot.of(sender, registry::get);
+
+            for(String node : nodes()) {
+                for(String variant : Arrays.asList(node, node.toUpperCase(Locale.ENGLISH))) {
+                    assert snapshot.hasPermission(variant) == sender.hasPermission(variant) : "Mismatch for " + variant + " in round " + round;
+                    assert snapshot.isPermissionSet(variant) == sender.isPermissionSet(variant);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchMatchesDirect() {
+        Random random = new Random(7);
+        SimpleRoot root = buildTree(random);
+
+        for(int round = 0; round < ROUNDS; round++) {
+            // Batch evaluation outside of a server looks up no registered permissions.
+            PermissiblePlayerSender sender = randomSender(random, Collections.emptyMap());
+
+            root.setBatchPermissions(false);
+            List<String> direct = root.onTabComplete(sender, null, "root", new String[] {""});
+            root.setBatchPermissions(true);
+            List<String> batched = root.onTabComplete(sender, null, "root", new String[] {""});
+
+            assert direct.equals(batched) : "Mismatch in round " + round;
+        }
+    }
+
+    @Test
+    public void testScopeOnlyAppliesToSender() {
+        PermissiblePlayerSender granted = new PermissiblePlayerSender("Granted", Collections.emptyMap());
+        granted.setPermission("a.b", true);
+        PermissiblePlayerSender other = new PermissiblePlayerSender("Other", Collections.emptyMap());
+
+        try (PermissionScope ignored = PermissionScope.open(other, PermissionSnapshot.of(granted))) {
+            assert PermissionScope.hasPermission(other, "a.b");
+            assert PermissionScope.hasPermission(granted, "a.b");
+            assert !other.hasPermission("a.b");
+        }
+        assert !PermissionScope.hasPermission(other, "a.b");
+    }
+
+    private static List<String> nodes() {
+        List<String> nodes = new ArrayList<>();
+        for(String a : Arrays.asList("a", "b", "c")) {
+            nodes.add(a + ".*");
+            for(String b : Arrays.asList("x", "y", "z")) {
+                nodes.add(a + "." + b);
+            }
+        }
+        nodes.add("unregistered");
+        return nodes;
+    }
+
+    private static Map<String, Permission> randomRegistry(Random random) {
+        Map<String, Permission> registry = new HashMap<>();
+        PermissionDefault[] defaults = PermissionDefault.values();
+
+        for(String node : nodes()) {
+            if(node.equals("unregistered") || random.nextInt(3) == 0) continue;
+
+            Map<String, Boolean> children = new HashMap<>();
+            if(node.endsWith(".*")) {
+                // Wildcard permission with all children of its group.
+                String group = node.substring(0, node.length() - 1);
+                for(String child : nodes()) {
+                    if(child.startsWith(group) && !child.equals(node)) children.put(child, random.nextInt(4) != 0);
+                }
+            }
+            registry.put(node, new Permission(node, defaults[random.nextInt(defaults.length)], children));
+        }
+        return registry;
+    }
+
+    private static PermissiblePlayerSender randomSender(Random random, Map<String, Permission> registry) {
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Random", registry);
+        sender.setOp(random.nextBoolean());
+
+        List<String> nodes = nodes();
+        for(int i = random.nextInt(6); i > 0; i--) {
+            sender.setPermission(nodes.get(random.nextInt(nodes.size())), random.nextInt(3) != 0);
+        }
+        return sender;
+    }
+
+    private static SimpleRoot buildTree(Random random) {
+        SimpleRoot root = new SimpleRoot("root", false);
+        List<String> nodes = nodes();
+
+        for(int i = 0; i < 30; i++) {
+            String permission = random.nextInt(5) == 0 ? null : nodes.get(random.nextInt(nodes.size()));
+            if(random.nextBoolean()) {
+                SimpleRoot group = new SimpleRoot("group" + i, false);
+                for(int j = 0; j < 3; j++) {
+                    group.addCommand(new Leaf("leaf" + j, nodes.get(random.nextInt(nodes.size()))));
+                }
+                root.addCommand(group);
+            } else {
+                root.addCommand(new Leaf("leaf" + i, permission));
+            }
+        }
+        return root;
+    }
+
+    private static class Leaf extends SimpleCommand {
+
+        Leaf(String name, String permission) {
+            super(name, permission, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PermissiblePlayerSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.recording.CommandLogReader;
+import nl.martenm.simplecommands.recording.CommandRecorder;
+import nl.martenm.simplecommands.recording.RecordedDispatch;
+import nl.martenm.simplecommands.recording.SenderKind;
+import nl.martenm.simplecommands.util.CommandReplay;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RecordingTest {
+
+    private File file;
+    private RootCommand root;
+    private Leaf buy;
+    private Leaf sell;
+    private ConsoleSender consoleSender;
+    private PermissiblePlayerSender playerSender;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.file = File.createTempFile("commands", ".log");
+        file.delete();
+
+        this.root = new SimpleRoot("shop", false);
+        this.buy = new Leaf("buy", "shop.buy");
+        this.sell = new Leaf("sell", "shop.sell");
+        root.addCommand(buy);
+        root.addCommand(sell);
+
+        this.consoleSender = new ConsoleSender("Console");
+        this.playerSender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        playerSender.setPermission("shop.buy", true);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        file.delete();
+    }
+
+    @Test
+    public void testRecordAndRead() throws Exception {
+        CommandRecorder recorder = new CommandRecorder(root, file);
+        root.setRecorder(recorder);
+        assert recorder.getNodes().equals(Arrays.asList("shop.buy", "shop.sell"));
+
+        root.onCommand(consoleSender, null, "shop", new String[] {"sell", "diamond", "64"});
+        root.onCommand(playerSender, null, "s", new String[] {"buy", "bread"});
+        root.onCommand(playerSender, null, "s", new String[] {"sell", "bread"});
+        root.onCommand(playerSender, null, "s", new String[0]);
+
+        // Sub-commands do not record the dispatch again.
+        recorder.flush();
+        root.setRecorder(null);
+        root.onCommand(consoleSender, null, "shop", new String[] {"buy"});
+        recorder.close();
+        assert recorder.getRecorded() == 4;
+        assert recorder.getDropped() == 0;
+
+        List<RecordedDispatch> dispatches = CommandLogReader.readAll(file);
+        assert dispatches.size() == 4;
+
+        RecordedDispatch console = dispatches.get(0);
+        assert console.getSenderKind() == SenderKind.CONSOLE;
+        // Only the nodes on the dispatched path are checked.
+        assert console.getPermissions().equals(Collections.singletonList("shop.sell"));
+        assert console.getLabel().equals("shop");
+        assert Arrays.equals(console.getArgs(), new String[] {"sell", "diamond", "64"});
+
+        RecordedDispatch player = dispatches.get(1);
+        assert player.getSenderKind() == SenderKind.PLAYER;
+        assert player.getPermissions().equals(Collections.singletonList("shop.buy"));
+        assert player.getLabel().equals("s");
+        assert Arrays.equals(player.getArgs(), new String[] {"buy", "bread"});
+        assert dispatches.get(3).getArgs().length == 0;
+        assert player.getTimestamp() >= console.getTimestamp();
+
+        // Header, session with two nodes, two fingerprints and four small dispatches.
+        assert file.length() <= 160 : "The log is " + file.length() + " bytes";
+    }
+
+    @Test
+    public void testAppendSessions() throws Exception {
+        try (CommandRecorder recorder = new CommandRecorder(root, file)) {
+            recorder.record(playerSender, "shop", new String[] {"buy"});
+        }
+
+        root.addCommand(new Leaf("trade", "shop.trade"));
+        playerSender.setPermission("shop.trade", true);
+        try (CommandRecorder recorder = new CommandRecorder(root, file)) {
+            recorder.record(playerSender, "shop", new String[] {"trade"});
+        }
+
+        List<RecordedDispatch> dispatches = CommandLogReader.readAll(file);
+        assert dispatches.size() == 2;
+        assert dispatches.get(0).getPermissions().equals(Collections.singletonList("shop.buy"));
+        assert dispatches.get(1).getPermissions().equals(Collections.singletonList("shop.trade"));
+    }
+
+    @Test
+    public void testFingerprintChecksPath() throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Counted", Collections.emptyMap()) {
+            @Override
+            public boolean hasPermission(String s) {
+                checks.incrementAndGet();
+                return super.hasPermission(s);
+            }
+        };
+        sender.setPermission("shop.buy", true);
+
+        try (CommandRecorder recorder = new CommandRecorder(root, file)) {
+            recorder.record(sender, "shop", new String[] {"buy"});
+            recorder.record(sender, "shop", new String[] {"buy"});
+            recorder.record(sender, "shop", new String[] {"unknown"});
+            assert checks.get() == 1 : checks.get();
+
+            recorder.record(sender, "shop", new String[] {"sell"});
+            assert checks.get() == 2 : checks.get();
+        }
+
+        List<RecordedDispatch> dispatches = CommandLogReader.readAll(file);
+        assert dispatches.size() == 4;
+        for(RecordedDispatch dispatch : dispatches) {
+            assert dispatch.getPermissions().equals(Collections.singletonList("shop.buy"));
+        }
+    }
+
+    @Test
+    public void testFingerprintFromBitSets() throws Exception {
+        root.freeze();
+        root.enablePermissionBitSets(10);
+
+        try (CommandRecorder recorder = new CommandRecorder(root, file)) {
+            recorder.record(playerSender, "shop", new String[] {"buy"});
+            root.onCommand(playerSender, null, "shop", new String[] {"sell"});
+        }
+
+        // The whole fingerprint comes from the bit set that the dispatch uses as well.
+        assert root.getPermissionBitSets().size() == 1;
+        List<RecordedDispatch> dispatches = CommandLogReader.readAll(file);
+        assert dispatches.get(0).getPermissions().equals(Collections.singletonList("shop.buy"));
+    }
+
+    @Test
+    public void testTruncatedLog() throws Exception {
+        try (CommandRecorder recorder = new CommandRecorder(root, file)) {
+            recorder.record(consoleSender, "shop", new String[] {"buy"});
+            recorder.record(consoleSender, "shop", new String[] {"sell"});
+        }
+
+        // A crash while writing leaves half a record behind.
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.setLength(access.length() - 2);
+        }
+
+        List<RecordedDispatch> dispatches = CommandLogReader.readAll(file);
+        assert dispatches.size() == 1;
+        assert dispatches.get(0).getArgs()[0].equals("buy");
+    }
+
+    @Test
+    public void testNotALog() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("Not a log".getBytes());
+        }
+
+        try {
+            CommandLogReader.readAll(file);
+            assert false;
+        } catch (IOException ex) {
+            assert ex.getMessage().contains("not a command log");
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        try (CommandRecorder recorder = new CommandRecorder(root, file)) {
+            for(int i = 0; i < 100; i++) {
+                recorder.record(consoleSender, "shop", new String[] {"sell", "item" + i});
+                recorder.record(playerSender, "shop", new String[] {"buy", "item" + i});
+                recorder.record(playerSender, "shop", new String[] {"sell", "item" + i});
+            }
+        }
+        List<RecordedDispatch> dispatches = CommandLogReader.readAll(file);
+        assert dispatches.size() == 300;
+
+        CommandReplay.Report report = new CommandReplay(root).replay(dispatches, 3);
+        assert report.getCount() == 300;
+        assert report.getPercentile(50) <= report.getPercentile(99);
+        assert report.getPercentile(99) <= report.getMax();
+        assert report.getThroughput() > 0;
+
+        // The player may not sell, so only the console and the player buying execute.
+        assert sell.executions == 3 * 100;
+        assert buy.executions == 3 * 100;
+    }
+
+    private static class Leaf extends SimpleCommand {
+
+        private int executions = 0;
+
+        Leaf(String name, String permission) {
+            super(name, permission, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            executions++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import nl.martenm.simplecommands.implementations.GeneratedTree;
+import nl.martenm.simplecommands.implementations.GeneratedTree.PermissionLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Builds generated trees of 10 to 100.000 nodes and checks how dispatch, tab completion, the help and the heap usage scale.
+ * Every check compares the smallest and the largest tree and fails if the cost grows faster than expected.
+ * The measured numbers are printed so the curves can be compared between versions.
+ *
+ * The checks measure wall clock time, so they only run in the performance profile: mvn test -Pperformance
+ */
+@Tag("performance")
+public class ScalabilityTest {
+
+    private static final int[] SIZES = {10, 100, 1000, 10000, 100000};
+    private static final int[] DEPTHS = {2, 5, 10, 20};
+
+    // The largest allowed growth exponent: cost ~ size ^ exponent. Constant costs get some room for cache effects.
+    private static final double CONSTANT = 0.35;
+    private static final double LINEAR = 1.35;
+
+    private static final int ITERATIONS = 1000;
+    private static final int ROUNDS = 5;
+
+    private PrintStream out;
+
+    @BeforeEach
+    public void setup() {
+        // The test senders log every message and permission check, keep that out of the timings.
+        this.out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+
+            }
+        }));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        System.setOut(out);
+    }
+
+    @Test
+    public void testDispatchIsConstantInTreeSize() {
+        double[] times = new double[SIZES.length];
+        for(int i = 0; i < SIZES.length; i++) {
+            GeneratedTree tree = GeneratedTree.balanced(SIZES[i], 2, 3, PermissionLayout.NONE);
+            ConsoleSender sender = new ConsoleSender("Console");
+            String[] args = tree.getDeepestArgs();
+            assert args.length == 2;
+
+            times[i] = measure(() -> {
+                sender.getMessages().clear();
+                tree.getRoot().onCommand(sender, null, "gen", args);
+            });
+            assert sender.isExecuted();
+        }
+
+        assertScaling("dispatch", toDouble(SIZES), times, CONSTANT);
+    }
+
+    @Test
+    public void testDispatchIsLinearInDepth() {
+        double[] times = new double[DEPTHS.length];
+        for(int i = 0; i < DEPTHS.length; i++) {
+            GeneratedTree tree = new GeneratedTree(DEPTHS[i] + 1, DEPTHS[i], 1, 3, PermissionLayout.NONE);
+            ConsoleSender sender = new ConsoleSender("Console");
+            String[] args = tree.getDeepestArgs();
+            assert args.length == DEPTHS[i];
+
+            times[i] = measure(() -> {
+                sender.getMessages().clear();
+                tree.getRoot().onCommand(sender, null, "gen", args);
+            });
+            assert sender.isExecuted();
+        }
+
+        assertScaling("dispatch by depth", toDouble(DEPTHS), times, LINEAR);
+    }
+
+    @Test
+    public void testPermissionLayouts() {
+        for(PermissionLayout layout : PermissionLayout.values()) {
+            double[] times = new double[SIZES.length];
+            for(int i = 0; i < SIZES.length; i++) {
+                GeneratedTree tree = GeneratedTree.balanced(SIZES[i], 20, 3, layout);
+                PlayerSender sender = new PlayerSender("Player");
+                String[] args = tree.getDeepestArgs();
+
+                // Without permissions the deepest node cannot be executed unless the layout has none.
+                tree.getRoot().onCommand(sender, null, "gen", args);
+                assert sender.isExecuted() == (layout == PermissionLayout.NONE);
+
+                for(SimpleCommand node : tree.getDeepestPath()) {
+                    if(node.getFullPermission() != null) sender.addPermission(node.getFullPermission());
+                }
+
+                times[i] = measure(() -> {
+                    sender.getMessages().clear();
+                    tree.getRoot().onCommand(sender, null, "gen", args);
+                });
+                assert sender.isExecuted();
+
+                // Deeper trees take longer, compare the cost per level.
+                times[i] /= args.length;
+            }
+
+            assertScaling("dispatch per level with " + layout + " permissions", toDouble(SIZES), times, CONSTANT);
+        }
+    }
+
+    @Test
+    public void testTabCompletionIsLinearInChildren() {
+        double[] children = new double[SIZES.length];
+        double[] times = new double[SIZES.length];
+        for(int i = 0; i < SIZES.length; i++) {
+            GeneratedTree tree = GeneratedTree.balanced(SIZES[i], 2, 3, PermissionLayout.NONE);
+            ConsoleSender sender = new ConsoleSender("Console");
+            String[] args = tree.getDeepestArgs();
+            args[args.length - 1] = "n";
+
+            children[i] = ((RootCommand) tree.getDeepestPath().get(0)).getSubCommands().size();
+            times[i] = measure(() -> tree.getRoot().onTabComplete(sender, null, "gen", args));
+            assert tree.getRoot().onTabComplete(sender, null, "gen", args).size() == children[i];
+        }
+
+        assertScaling("tab completion", children, times, LINEAR);
+    }
+
+    @Test
+    public void testHelpIsLinearInChildren() {
+        double[] children = new double[SIZES.length];
+        double[] times = new double[SIZES.length];
+        for(int i = 0; i < SIZES.length; i++) {
+            GeneratedTree tree = GeneratedTree.balanced(SIZES[i], 2, 3, PermissionLayout.NONE);
+            ConsoleSender sender = new ConsoleSender("Console");
+            String[] args = {tree.getDeepestArgs()[0]};
+
+            children[i] = ((RootCommand) tree.getDeepestPath().get(0)).getSubCommands().size();
+            times[i] = measure(() -> {
+                sender.getMessages().clear();
+                tree.getRoot().onCommand(sender, null, "gen", args);
+            }, ITERATIONS / 10);
+            assert sender.getMessages().size() >= children[i];
+        }
+
+        assertScaling("help", children, times, LINEAR);
+    }
+
+    @Test
+    public void testHeapIsLinearInTreeSize() {
+        double[] mutable = new double[SIZES.length];
+        double[] frozen = new double[SIZES.length];
+        for(int i = 0; i < SIZES.length; i++) {
+            GeneratedTree tree = GeneratedTree.balanced(SIZES[i], 20, 3, PermissionLayout.ATTACHED);
+            mutable[i] = GraphLayout.parseInstance(tree.getRoot()).totalSize();
+
+            tree.getRoot().freeze();
+            frozen[i] = GraphLayout.parseInstance(tree.getRoot()).totalSize();
+        }
+
+        assertScaling("heap", toDouble(SIZES), mutable, 1.1);
+        assertScaling("frozen heap", toDouble(SIZES), frozen, 1.1);
+    }
+
+    /**
+     * Measures the average time of the operation in nanoseconds. The best of a few rounds is used so a
+     * garbage collection or JIT compilation in one round does not count.
+     */
+    private static double measure(Runnable operation) {
+        return measure(operation, ITERATIONS);
+    }
+
+    private static double measure(Runnable operation, int iterations) {
+        for(int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                operation.run();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / (double) iterations;
+    }
+
+    /**
+     * Fails if the cost grows faster than size ^ maxExponent between the smallest and the largest size.
+     */
+    private void assertScaling(String name, double[] sizes, double[] costs, double maxExponent) {
+        double exponent = Math.log(costs[costs.length - 1] / costs[0]) / Math.log(sizes[sizes.length - 1] / sizes[0]);
+        out.println(String.format("%s: sizes %s, costs %s, exponent %.2f (max %.2f)", name, Arrays.toString(sizes), format(costs), exponent, maxExponent));
+        assert exponent <= maxExponent : String.format("The %s cost grows with exponent %.2f, expected at most %.2f", name, exponent, maxExponent);
+    }
+
+    private static String format(double[] values) {
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) builder.append(", ");
+            builder.append(String.format("%.1f", values[i]));
+        }
+        return builder.append("]").toString();
+    }
+
+    private static double[] toDouble(int[] values) {
+        return Arrays.stream(values).asDoubleStream().toArray();
+    }
+}
@@ -0,0 +1,78 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.PlayerSender;
+import nl.martenm.simplecommands.implementations.RootTestCommand;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.implementations.SubCommandPermissionTest;
+import nl.martenm.simplecommands.listeners.SimpleCommandSendFilter;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SimpleCommandSendFilterTest {
+
+    private PlayerSender playerSender;
+    private SimpleCommandSendFilter filter;
+    private Plugin plugin;
+    private Map<String, Plugin> owners;
+
+    @BeforeEach
+    public void setup() {
+        this.playerSender = new PlayerSender("Player sender");
+
+        this.plugin = plugin("TestPlugin");
+        this.owners = new HashMap<>();
+        for(String label : Arrays.asList("restricted", "r", "test", "t")) {
+            owners.put(label, plugin);
+        }
+        this.filter = new SimpleCommandSendFilter(plugin, owners::get);
+
+        SimpleRoot restricted = new SimpleRoot("restricted", false);
+        restricted.addCommand(new SubCommandPermissionTest());
+        restricted.addAlias("r");
+        filter.addCommand(restricted);
+
+        filter.addCommand(new RootTestCommand());
+    }
+
+    @Test
+    public void testRemovesDeniedCommands() {
+        List<String> commands = new ArrayList<>(Arrays.asList("restricted", "r", "testplugin:restricted", "testplugin:r", "test", "t", "other"));
+        filter.onCommandSend(new PlayerCommandSendEvent(playerSender, commands));
+
+        assert commands.equals(Arrays.asList("test", "t", "other"));
+    }
+
+    @Test
+    public void testKeepsAllowedCommands() {
+        playerSender.addPermission("permission");
+        List<String> commands = new ArrayList<>(Arrays.asList("restricted", "r", "test"));
+        filter.onCommandSend(new PlayerCommandSendEvent(playerSender, commands));
+
+        assert commands.size() == 3;
+    }
+
+    @Test
+    public void testKeepsLabelsOfOtherPlugins() {
+        owners.put("r", plugin("OtherPlugin"));
+        owners.remove("restricted");
+
+        List<String> commands = new ArrayList<>(Arrays.asList("restricted", "r", "testplugin:restricted", "testplugin:r", "otherplugin:r"));
+        filter.onCommandSend(new PlayerCommandSendEvent(playerSender, commands));
+
+        assert commands.equals(Arrays.asList("restricted", "r", "otherplugin:r")) : commands;
+    }
+
+    private Plugin plugin(String name) {
+        return (Plugin) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Plugin.class},
+                (proxy, method, args) -> method.getName().equals("getName") ? name : null);
+    }
+}
@@ -3,6 +3,7 @@ package nl.martenm.simplecommands;
 import nl.martenm.simplecommands.bukkit.ConsoleSender;
 import nl.martenm.simplecommands.bukkit.PlayerSender;
 import nl.martenm.simplecommands.implementations.*;
+import nl.martenm.simplecommands.misc.NameFormat;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.junit.jupiter.api.Assertions;
@@ -246,4 +247,115 @@ public class SimpleCommandTest {
         root.onCommand(consoleSender, null, "test", new String[] {});
         assert consoleSender.hasReceived("Commands are present but hidden by the developer.", true);
     }
+
+    @Test
+    public void testFreezeMetadata() {
+        RootCommand root = new RootCommand("permission", "permission", false) {
+
+        };
+        SimpleCommand attached = new SubAttached();
+        SimpleCommand nested = new SubNested("nested", new SubAliases(true));
+        nested.addAlias("n");
+        root.addCommand(attached);
+        root.addCommand(nested);
+        root.addAlias("p");
+        root.freeze();
+
+        assert root.isFrozen() && attached.isFrozen();
+        assert attached.getFullPermission().equals("permission.attached");
+        assert nested.getFullPermission().equals("permission");
+        assert attached.getDepth() == 1;
+
+        SimpleCommand aliases = ((RootCommand) nested).getSubCommands().iterator().next();
+        assert aliases.getDepth() == 2;
+        assert aliases.getFullName(NameFormat.NO_ALIAS).equals("permission nested aliases");
+        assert aliases.getFullName(NameFormat.ALL_ALIAS).equals("p n aa");
+        assert aliases.getFullName(NameFormat.ROOT_ALIAS).equals("p nested aliases");
+    }
+
+    @Test
+    public void testFreezeImmutable() {
+        testCommand.freeze();
+
+        Assertions.assertThrows(RuntimeException.class, () -> testCommand.addCommand(new SubAlways()));
+        Assertions.assertThrows(RuntimeException.class, () -> testCommand.removeCommand(testCommand.getSubCommands().iterator().next()));
+        Assertions.assertThrows(RuntimeException.class, () -> testCommand.addAlias("other"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> testCommand.getAliases().add("other"));
+        Assertions.assertThrows(RuntimeException.class, () -> testCommand.setHidden(true));
+        Assertions.assertThrows(RuntimeException.class, () -> testCommand.setHelpFormatter(new SimpleHelpFormatter()));
+
+        // The full names are precomputed and shared between formats with the same text.
+        SimpleCommand always = testCommand.getSubCommands().stream().filter(c -> c.getName().equals("always")).findFirst().get();
+        for(NameFormat a : NameFormat.values()) {
+            for(NameFormat b : NameFormat.values()) {
+                String name = always.getFullName(a);
+                assert !name.equals(always.getFullName(b)) || name == always.getFullName(b) : a + " " + b;
+            }
+        }
+        assert always.getFullName().equals("test always");
+
+        // The frozen tree still works as before.
+        testCommand.onCommand(consoleSender, cmd, "test always", new String[] {"always"});
+        assert consoleSender.isExecuted();
+    }
+
+    @Test
+    public void testFreezeReportsProblems() {
+        RootCommand root = new SimpleRoot("test", false);
+        root.addCommand(new SubAliases(true));
+        SimpleCommand collision = new SubAlways();
+        collision.addAlias("aa");
+        root.addCommand(collision);
+        root.addCommand(new SubAttached());
+
+        RuntimeException ex = Assertions.assertThrows(RuntimeException.class, root::freeze);
+        assert ex.getMessage().contains("2 problem(s)");
+        assert ex.getMessage().contains("'aa'");
+        assert !root.isFrozen();
+    }
+
+    @Test
+    public void testFreezeReplaceSubCommands() {
+        RootCommand root = new RootCommand("permission", "permission", false) {
+
+        };
+        root.addCommand(new SubAlways());
+        root.freeze();
+
+        RootCommand replacement = new SimpleRoot("permission", false);
+        SimpleCommand attached = new SubAttached();
+        replacement.addCommand(attached);
+        root.replaceSubCommands(replacement);
+
+        assert attached.isFrozen();
+        assert attached.getFullPermission().equals("permission.attached");
+        assert attached.getFullName().equals("permission attachedPermission");
+    }
+
+    @Test
+    public void testFreezeRejectedReplacement() {
+        RootCommand root = new RootCommand("permission", "permission", false) {
+
+        };
+        root.addCommand(new SubAlways());
+        root.freeze();
+
+        RootCommand replacement = new RootCommand("replacement", "replacement", false) {
+
+        };
+        SimpleCommand attached = new SubAttached();
+        SimpleCommand collision = new SubAlways();
+        collision.addAlias("attachedPermission");
+        replacement.addCommand(attached);
+        replacement.addCommand(collision);
+
+        Assertions.assertThrows(RuntimeException.class, () -> root.replaceSubCommands(replacement));
+
+        // The rejected children still belong to the replacement, with its permissions.
+        assert attached.getParent() == replacement;
+        assert collision.getParent() == replacement;
+        assert !attached.isFrozen();
+        assert attached.getFullPermission().equals("replacement.attached");
+        assert root.getSubCommands().iterator().next() instanceof SubAlways;
+    }
 }
@@ -0,0 +1,139 @@
+package nl.martenm.simplecommands;
+
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PermissiblePlayerSender;
+import nl.martenm.simplecommands.implementations.SimpleRoot;
+import nl.martenm.simplecommands.implementations.SubAlways;
+import nl.martenm.simplecommands.permissions.PermissionBitSets;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class SubCommandProviderTest {
+
+    private ConsoleSender consoleSender;
+    private RootCommand root;
+    private List<String> arenas;
+    private AtomicInteger generated;
+    private SubCommandProvider provider;
+
+    @BeforeEach
+    public void setup() {
+        this.consoleSender = new ConsoleSender("Console sender");
+        this.root = new RootCommand("arena", "arena", false) { };
+        this.arenas = new ArrayList<>(Arrays.asList("castle", "desert"));
+        this.generated = new AtomicInteger();
+        this.provider = () -> {
+            generated.incrementAndGet();
+            return arenas.stream().map(Arena::new).collect(Collectors.toList());
+        };
+
+        root.addCommand(new SubAlways());
+        root.addSubCommandProvider(provider);
+    }
+
+    @Test
+    public void testCachedUntilInvalidated() {
+        root.onCommand(consoleSender, null, "arena", new String[] {"castle"});
+        assert consoleSender.hasReceived("Joined castle");
+        assert root.onTabComplete(consoleSender, null, "arena", new String[] {""}).size() == 3;
+        assert root.getSubCommands().size() == 3;
+        assert generated.get() == 1;
+
+        arenas.remove("desert");
+        arenas.add("jungle");
+        assert root.getSubCommands().size() == 3;
+        assert root.onTabComplete(consoleSender, null, "arena", new String[] {"j"}).isEmpty();
+
+        root.invalidateSubCommands();
+        assert root.onTabComplete(consoleSender, null, "arena", new String[] {"j"}).equals(Collections.singletonList("jungle"));
+        assert generated.get() == 2;
+
+        // The stale command is no longer known.
+        consoleSender.reset();
+        root.onCommand(consoleSender, null, "arena", new String[] {"desert"});
+        assert !consoleSender.hasReceived("Joined desert");
+    }
+
+    @Test
+    public void testGeneratedCommandsInTree() {
+        SimpleCommand castle = root.getSubCommands().stream().filter(cmd -> cmd.getName().equals("castle")).findFirst().orElse(null);
+        assert castle != null;
+        assert castle.getFullName().equals("arena castle");
+        assert castle.getFullPermission().equals("arena.castle");
+    }
+
+    @Test
+    public void testNormalCommandWins() {
+        arenas.add("always");
+        root.invalidateSubCommands();
+
+        root.onCommand(consoleSender, null, "arena", new String[] {"always"});
+        assert consoleSender.hasReceived("DONE");
+        assert !consoleSender.hasReceived("Joined always");
+    }
+
+    @Test
+    public void testEmptyProvider() {
+        SimpleRoot empty = new SimpleRoot("empty", false);
+        empty.addSubCommandProvider(Collections::emptyList);
+
+        // No exception, the sender is told the argument is unknown.
+        empty.onCommand(consoleSender, null, "empty", new String[] {"castle"});
+        assert !consoleSender.getMessages().isEmpty();
+    }
+
+    @Test
+    public void testRemoveProvider() {
+        assert root.getSubCommands().size() == 3;
+        assert root.removeSubCommandProvider(provider);
+        assert root.getSubCommands().size() == 1;
+        assert !root.removeSubCommandProvider(provider);
+    }
+
+    @Test
+    public void testFrozenTree() {
+        root.freeze();
+        PermissionBitSets bitSets = root.enablePermissionBitSets(10);
+
+        PermissiblePlayerSender sender = new PermissiblePlayerSender("Player", Collections.emptyMap());
+        sender.setPermission("arena.castle", true);
+        assert root.getSubCommands(sender).stream().map(SimpleCommand::getName).collect(Collectors.toList()).equals(Collections.singletonList("castle"));
+        assert bitSets.size() == 1;
+
+        // Invalidating the generated commands also drops the permission bits.
+        arenas.add("jungle");
+        root.invalidateSubCommands();
+        assert bitSets.size() == 0;
+        assert root.getSubCommands().size() == 4;
+        assert root.getSubCommands().stream().noneMatch(cmd -> cmd.getName().equals("jungle") && cmd.isFrozen());
+
+        // The generated commands are found in the compact snapshot.
+        root.onCommand(consoleSender, null, "arena", new String[] {"jungle"});
+        assert consoleSender.hasReceived("Joined jungle");
+
+        // Providers can still be managed.
+        assert root.removeSubCommandProvider(provider);
+        assert root.getSubCommands().size() == 1;
+        root.addSubCommandProvider(provider);
+        assert root.getSubCommands().size() == 4;
+    }
+
+    private static class Arena extends SimpleCommand {
+
+        Arena(String name) {
+            super(name, "+" + name, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            sender.sendMessage("Joined " + name);
+            return true;
+        }
+    }
+}
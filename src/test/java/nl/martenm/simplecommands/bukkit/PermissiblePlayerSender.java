@@ -0,0 +1,79 @@
+package nl.martenm.simplecommands.bukkit;
+
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.*;
+
+/**
+ * Player sender that resolves permissions the same way Bukkit's PermissibleBase does.
+ * Child permissions of set permissions are expanded and unset permissions use the registered default.
+ */
+public class PermissiblePlayerSender extends PlayerSender {
+
+    private final Map<String, Permission> registry;
+    private final Map<String, Boolean> attachments = new LinkedHashMap<>();
+    private final Map<String, Boolean> effective = new HashMap<>();
+    private boolean op = false;
+
+    public PermissiblePlayerSender(String senderName, Map<String, Permission> registry) {
+        super(senderName);
+        this.registry = registry;
+    }
+
+    public void setPermission(String permission, boolean value) {
+        attachments.put(permission, value);
+        recalculatePermissions();
+    }
+
+    @Override
+    public void recalculatePermissions() {
+        effective.clear();
+        for(Permission permission : registry.values()) {
+            if(permission.getDefault().getValue(op)) calculate(permission.getName(), true);
+        }
+        attachments.forEach(this::calculate);
+    }
+
+    private void calculate(String name, boolean value) {
+        String lower = name.toLowerCase(Locale.ENGLISH);
+        effective.put(lower, value);
+
+        Permission permission = registry.get(lower);
+        if(permission == null) return;
+        permission.getChildren().forEach((child, childValue) -> calculate(child, childValue == value));
+    }
+
+    @Override
+    public boolean hasPermission(String s) {
+        String name = s.toLowerCase(Locale.ENGLISH);
+        if(effective.containsKey(name)) return effective.get(name);
+
+        Permission permission = registry.get(name);
+        if(permission != null) return permission.getDefault().getValue(op);
+        return Permission.DEFAULT_PERMISSION.getValue(op);
+    }
+
+    @Override
+    public boolean isPermissionSet(String s) {
+        return effective.containsKey(s.toLowerCase(Locale.ENGLISH));
+    }
+
+    @Override
+    public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+        Set<PermissionAttachmentInfo> infos = new HashSet<>();
+        effective.forEach((name, value) -> infos.add(new PermissionAttachmentInfo(this, name, null, value)));
+        return infos;
+    }
+
+    @Override
+    public boolean isOp() {
+        return op;
+    }
+
+    @Override
+    public void setOp(boolean op) {
+        this.op = op;
+        recalculatePermissions();
+    }
+}
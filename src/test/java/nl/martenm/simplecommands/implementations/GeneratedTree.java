@@ -0,0 +1,141 @@
+package nl.martenm.simplecommands.implementations;
+
+import nl.martenm.simplecommands.RootCommand;
+import nl.martenm.simplecommands.SimpleCommand;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builds a synthetic command tree breadth first. Every node gets the same amount of children until the
+ * node count or the maximum depth is reached. Nodes without children send "DONE" when executed.
+ */
+public class GeneratedTree {
+
+    public enum PermissionLayout {
+        // No node has a permission.
+        NONE,
+        // Every node has its own permission.
+        ABSOLUTE,
+        // Every node attaches its name to the permission of its parent.
+        ATTACHED
+    }
+
+    private final RootCommand root;
+    private final int nodeCount;
+    private final List<SimpleCommand> deepestPath = new ArrayList<>();
+
+    /**
+     * @param nodes The amount of nodes including the root
+     * @param maxDepth The maximum depth, the root has depth 0
+     * @param branching The amount of children of every node
+     * @param maxAliases Node i gets i % (maxAliases + 1) aliases
+     * @param layout How permissions are assigned
+     */
+    public GeneratedTree(int nodes, int maxDepth, int branching, int maxAliases, PermissionLayout layout) {
+        this.root = new Node("gen", layout == PermissionLayout.NONE ? null : "gen");
+
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add((Node) root);
+        Node deepest = (Node) root;
+        int count = 1;
+
+        while(count < nodes && !queue.isEmpty()) {
+            Node parent = queue.poll();
+            List<Node> children = new ArrayList<>();
+            for(int i = 0; i < branching && count < nodes; i++) {
+                Node child = new Node("n" + count, permission(layout, count));
+                for(int a = 0; a < count % (maxAliases + 1); a++) {
+                    child.addAlias("a" + count + "_" + a);
+                }
+                child.parentNode = parent;
+                child.depth = parent.depth + 1;
+                children.add(child);
+
+                if(child.depth < maxDepth) queue.add(child);
+                if(child.depth > deepest.depth) deepest = child;
+                count++;
+            }
+
+            // Add all children at once, every change copies the children of the parent.
+            parent.addCommands(children);
+        }
+        this.nodeCount = count;
+
+        for(Node node = deepest; node != root; node = node.parentNode) {
+            deepestPath.add(0, node);
+        }
+    }
+
+    /**
+     * Builds a tree with the smallest branching that fits the nodes within the depth.
+     */
+    public static GeneratedTree balanced(int nodes, int maxDepth, int maxAliases, PermissionLayout layout) {
+        int branching = 2;
+        while(capacity(branching, maxDepth) < nodes) branching++;
+        return new GeneratedTree(nodes, maxDepth, branching, maxAliases, layout);
+    }
+
+    private static long capacity(int branching, int depth) {
+        long total = 1;
+        long level = 1;
+        for(int i = 0; i < depth && total < Integer.MAX_VALUE; i++) {
+            level *= branching;
+            total += level;
+        }
+        return total;
+    }
+
+    private static String permission(PermissionLayout layout, int index) {
+        switch (layout) {
+            case ABSOLUTE: return "gen.node" + index;
+            case ATTACHED: return "+n" + index;
+            default: return null;
+        }
+    }
+
+    public RootCommand getRoot() {
+        return root;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return The arguments that lead to the deepest node
+     */
+    public String[] getDeepestArgs() {
+        return deepestPath.stream().map(SimpleCommand::getName).toArray(String[]::new);
+    }
+
+    /**
+     * @return The nodes from the first child of the root to the deepest node
+     */
+    public List<SimpleCommand> getDeepestPath() {
+        return deepestPath;
+    }
+
+    private static class Node extends RootCommand {
+
+        private Node parentNode;
+        private int depth = 0;
+
+        Node(String name, String permission) {
+            super(name, permission, false);
+        }
+
+        @Override
+        public boolean onCommand(CommandSender sender, Command command, String s, String[] args) {
+            if(getSubCommands().isEmpty()) {
+                sender.sendMessage("DONE");
+                return true;
+            }
+            return super.onCommand(sender, command, s, args);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package nl.martenm.simplecommands.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by an operation on the current thread using the HotSpot thread MXBean.
+ */
+public final class Allocations {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 10000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * Budget for an operation that does not allocate, below the smallest object.
+     */
+    public static final double NONE = 1;
+
+    private static final com.sun.management.ThreadMXBean BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+
+    }
+
+    /**
+     * @return True if the JVM can count the bytes allocated per thread
+     */
+    public static boolean isSupported() {
+        return BEAN.isThreadAllocatedMemorySupported() && BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Measures the bytes one call of the operation allocates after warm-up.
+     * The lowest total of a few rounds is used, so an allocation by the JIT in one round does not count.
+     * Reading the counter allocates a few bytes per round, so an operation that does not allocate measures slightly above zero,
+     * while one object per call is at least 16 bytes. Use {@link #NONE} as the budget for operations that should not allocate.
+     * @param operation The operation
+     * @return The average bytes per call
+     */
+    public static double measure(Runnable operation) {
+        for(int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = BEAN.getThreadAllocatedBytes(thread);
+            for(int i = 0; i < ITERATIONS; i++) {
+                operation.run();
+            }
+            long allocated = BEAN.getThreadAllocatedBytes(thread) - start;
+            best = Math.min(best, allocated);
+        }
+
+        return (double) best / ITERATIONS;
+    }
+}
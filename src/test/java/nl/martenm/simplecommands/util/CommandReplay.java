@@ -0,0 +1,118 @@
+package nl.martenm.simplecommands.util;
+
+import nl.martenm.simplecommands.RootCommand;
+import nl.martenm.simplecommands.bukkit.ConsoleSender;
+import nl.martenm.simplecommands.bukkit.PermissiblePlayerSender;
+import nl.martenm.simplecommands.bukkit.TestCommandSender;
+import nl.martenm.simplecommands.recording.RecordedDispatch;
+import nl.martenm.simplecommands.recording.SenderKind;
+
+import java.util.*;
+
+/**
+ * Feeds recorded dispatches back through a command tree and measures the latency of every dispatch.
+ * Console dispatches use a console sender, all others a player with exactly the recorded permissions.
+ */
+public final class CommandReplay {
+
+    private final RootCommand root;
+    private final Map<List<Object>, TestCommandSender> senders = new HashMap<>();
+
+    public CommandReplay(RootCommand root) {
+        this.root = root;
+    }
+
+    /**
+     * Replays the dispatches in order.
+     * @param dispatches The recorded dispatches
+     * @param rounds The amount of times the whole log is replayed. Only the last round is measured, the others warm up the JIT
+     * @return The latencies of the last round
+     */
+    public Report replay(List<RecordedDispatch> dispatches, int rounds) {
+        long[] latencies = new long[dispatches.size()];
+        long total = 0;
+        for(int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < dispatches.size(); i++) {
+                RecordedDispatch dispatch = dispatches.get(i);
+                TestCommandSender sender = getSender(dispatch);
+                String[] args = dispatch.getArgs();
+
+                long before = System.nanoTime();
+                root.onCommand(sender, null, dispatch.getLabel(), args);
+                latencies[i] = System.nanoTime() - before;
+
+                sender.getMessages().clear();
+            }
+            total = System.nanoTime() - start;
+        }
+        return new Report(latencies, total);
+    }
+
+    private TestCommandSender getSender(RecordedDispatch dispatch) {
+        List<Object> key = Arrays.asList(dispatch.getSenderKind(), dispatch.getPermissions());
+        return senders.computeIfAbsent(key, k -> {
+            if(dispatch.getSenderKind() == SenderKind.CONSOLE) {
+                ConsoleSender sender = new ConsoleSender("Console");
+                dispatch.getPermissions().forEach(sender::addPermission);
+                return sender;
+            }
+
+            PermissiblePlayerSender sender = new PermissiblePlayerSender("Player" + senders.size(), Collections.emptyMap());
+            dispatch.getPermissions().forEach(permission -> sender.setPermission(permission, true));
+            return sender;
+        });
+    }
+
+    /**
+     * Latency percentiles and throughput of one replay.
+     */
+    public static final class Report {
+
+        private final long[] latencies;
+        private final long total;
+
+        Report(long[] latencies, long total) {
+            this.latencies = latencies.clone();
+            this.total = total;
+            Arrays.sort(this.latencies);
+        }
+
+        /**
+         * @return The amount of dispatches
+         */
+        public int getCount() {
+            return latencies.length;
+        }
+
+        /**
+         * @param percentile The percentile between 0 and 100
+         * @return The latency in nanoseconds
+         */
+        public long getPercentile(double percentile) {
+            if(latencies.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        /**
+         * @return The highest latency in nanoseconds
+         */
+        public long getMax() {
+            return latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+        }
+
+        /**
+         * @return The dispatches per second, including the time spent between the dispatches
+         */
+        public double getThroughput() {
+            return total == 0 ? 0 : latencies.length * 1e9 / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d dispatches, p50 %d ns, p90 %d ns, p99 %d ns, max %d ns, %.0f dispatches/s",
+                    getCount(), getPercentile(50), getPercentile(90), getPercentile(99), getMax(), getThroughput());
+        }
+    }
+}